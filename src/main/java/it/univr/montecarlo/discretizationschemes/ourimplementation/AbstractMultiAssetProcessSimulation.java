@@ -0,0 +1,511 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.DoubleUnaryOperator;
+
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionWithSinglePathAccess;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This is an abstract class for the discretization and simulation of n Itô processes
+ * dX^j_t=\mu^j(t,X_t)dt+\sigma^j(t,X_t)dW^j_t, j = 0, ..., n-1, where W^0, ..., W^{n-1} are Brownian motions with a
+ * given correlation matrix. It is the version of AbstractProcessSimulation for many assets, for example in order to
+ * value basket options: the two abstract methods return the drift mu^j(X_{i-1}, t_i)(t_i-t_{i-1}) and the diffusion
+ * sigma^j(X_{i-1}, t_i)(W^j_{t_i}-W^j_{t_{i-1}}) of the asset j, given the realizations of all the assets and the
+ * correlated increment of W^j.
+ *
+ * The correlated increments are computed from the ones of an n-dimensional Brownian motion with independent factors,
+ * multiplying them by the lower triangular matrix L such that L L^T is the correlation matrix. L is computed only once,
+ * by a Cholesky factorization, and only its lower triangle is kept. The product is computed for blocks of
+ * NUMBER_OF_PATHS_PER_BATCH simulations at a time, four columns of L at a time, so that the increments of a block
+ * stay in the cache and every correlated increment is read and written once every four factors: the cost of a time
+ * step is of order n^2/2 multiplications for every simulation.
+ *
+ * If a derived class also implements FusedMultiAssetDiscretizationScheme, the time steps are performed by its method
+ * evolve, and the simulations are generated block by block: only the realizations of the assets for a block of
+ * simulations are kept during the simulation, together with the paths which are stored. Otherwise, every time step
+ * is performed for all the simulations, by getDrift and getDiffusion.
+ * If the Brownian motion is not given in the constructor, it is a BrownianMotionFromCounterBasedRandomNumbers, which
+ * does not store its increments: with many assets, a Brownian motion storing n times the number of simulations times
+ * the number of time steps increments would need more memory than the paths themselves.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public abstract class AbstractMultiAssetProcessSimulation {
+
+	/**
+	 * The number of simulations for which the correlated increments are computed together.
+	 */
+	public static final int NUMBER_OF_PATHS_PER_BATCH = 256;
+
+	/*
+	 * simulatedPaths[k][j] will contain the realizations of F(X^j_{t_k}), where F is the inverse transform: this is
+	 * what we actually simulate. It is volatile since it is set by the thread generating the paths.
+	 */
+	private volatile RandomVariable[][] simulatedPaths;
+
+	/*
+	 * The entry k * numberOfAssets + j will contain the realizations of X^j_{t_k} = f(F(X^j_{t_k})), where f is the
+	 * transform. It is computed from simulatedPaths only when it is asked for the first time.
+	 */
+	private AtomicReferenceArray<RandomVariable> paths;
+
+	private final int numberOfAssets;
+	private final int numberOfSimulations;
+	private final TimeDiscretization times;
+	private final double[] initialValues;
+
+	// choleskyFactor[i] has length i + 1: it contains the row i of the lower triangular matrix L, up to the diagonal
+	private final double[][] choleskyFactor;
+
+	private final int seed;
+
+	// used as the stochastic driver of the processes. Volatile since it can be constructed by a thread and used by others
+	private volatile BrownianMotion brownianMotion;
+
+	/*
+	 * As in AbstractProcessSimulation: transform gives the function we have to apply to the simulated processes in
+	 * order to get the ones we want to return. They are the same for all the assets.
+	 */
+	protected DoubleUnaryOperator transform;
+	protected DoubleUnaryOperator inverseTransform;
+
+	// to be used as transform and inverse transform when the derived classes simulate the processes themselves
+	protected static final DoubleUnaryOperator IDENTITY = x -> x;
+
+	/*
+	 * Abstract because they depend on the processes and on the scheme. The drift and the diffusion of the asset j can
+	 * depend on the realizations of all the assets.
+	 */
+	protected abstract RandomVariable getDrift(RandomVariable[] lastRealizations, int assetIndex, int timeIndex);
+
+	protected abstract RandomVariable getDiffusion(RandomVariable[] lastRealizations, int assetIndex, int timeIndex,
+			RandomVariable correlatedBrownianIncrement);
+
+	/**
+	 * It constructs a simulation of the processes driven by a BrownianMotionFromCounterBasedRandomNumbers with the
+	 * given seed.
+	 *
+	 * @param initialValues, the initial values of the processes
+	 * @param correlationMatrix, the correlation matrix of the Brownian motions driving the processes. It must be
+	 *                           symmetric and positive definite
+	 * @param numberOfSimulations, the number of simulations
+	 * @param seed, the seed of the Brownian motion
+	 * @param times, the time discretization
+	 */
+	public AbstractMultiAssetProcessSimulation(double[] initialValues, double[][] correlationMatrix,
+			int numberOfSimulations, int seed, TimeDiscretization times) {
+		this.numberOfAssets = initialValues.length;
+		this.initialValues = initialValues.clone();
+		this.numberOfSimulations = numberOfSimulations;
+		this.seed = seed;
+		this.times = times;
+		choleskyFactor = getCholeskyFactor(correlationMatrix, numberOfAssets);
+	}
+
+	/**
+	 * It constructs a simulation of the processes driven by a given Brownian motion with independent factors, one for
+	 * every asset: the number of simulations and the time discretization are the ones of the Brownian motion.
+	 *
+	 * @param initialValues, the initial values of the processes
+	 * @param correlationMatrix, the correlation matrix of the Brownian motions driving the processes. It must be
+	 *                           symmetric and positive definite
+	 * @param brownianMotion, the Brownian motion with independent factors, which get correlated
+	 */
+	public AbstractMultiAssetProcessSimulation(double[] initialValues, double[][] correlationMatrix,
+			BrownianMotion brownianMotion) {
+		if (brownianMotion.getNumberOfFactors() != initialValues.length) {
+			throw new IllegalArgumentException("Error: the number of factors of the Brownian motion is not the number of assets!");
+		}
+		this.numberOfAssets = initialValues.length;
+		this.initialValues = initialValues.clone();
+		this.numberOfSimulations = brownianMotion.getNumberOfPaths();
+		this.seed = 0;
+		this.times = brownianMotion.getTimeDiscretization();
+		this.brownianMotion = brownianMotion;
+		choleskyFactor = getCholeskyFactor(correlationMatrix, numberOfAssets);
+	}
+
+	/*
+	 * It returns the lower triangle of the matrix L such that L L^T is the correlation matrix, computed by the
+	 * Cholesky-Banachiewicz algorithm: the row i of L only depends on the rows before.
+	 */
+	private static double[][] getCholeskyFactor(double[][] correlationMatrix, int numberOfAssets) {
+		if (correlationMatrix.length != numberOfAssets) {
+			throw new IllegalArgumentException("Error: the size of the correlation matrix is not the number of assets!");
+		}
+		double[][] lowerTriangle = new double[numberOfAssets][];
+		for (int i = 0; i < numberOfAssets; i++) {
+			if (correlationMatrix[i].length != numberOfAssets) {
+				throw new IllegalArgumentException("Error: the size of the correlation matrix is not the number of assets!");
+			}
+			lowerTriangle[i] = new double[i + 1];
+			for (int j = 0; j <= i; j++) {
+				if (Math.abs(correlationMatrix[i][j] - correlationMatrix[j][i]) > 1E-12) {
+					throw new IllegalArgumentException("Error: the correlation matrix is not symmetric!");
+				}
+				double sum = correlationMatrix[i][j];
+				for (int k = 0; k < j; k++) {
+					sum -= lowerTriangle[i][k] * lowerTriangle[j][k];
+				}
+				if (j < i) {
+					lowerTriangle[i][j] = sum / lowerTriangle[j][j];
+				} else {
+					if (sum <= 0) {
+						throw new IllegalArgumentException("Error: the correlation matrix is not positive definite!");
+					}
+					lowerTriangle[i][i] = Math.sqrt(sum);
+				}
+			}
+		}
+		return lowerTriangle;
+	}
+
+	/*
+	 * It writes in independentIncrements[j] the increments W_{t_{k+1}}-W_{t_k}, k = timeIndex, of the factor j of the
+	 * Brownian motion, for the simulations from firstPath to firstPath + numberOfPathsInBatch - 1.
+	 */
+	private void getIndependentBrownianIncrements(BrownianMotion stochasticDriver, int timeIndex, int firstPath,
+			int numberOfPathsInBatch, double[][] independentIncrements) {
+		for (int factor = 0; factor < numberOfAssets; factor++) {
+			if (stochasticDriver instanceof BrownianMotionWithSinglePathAccess) {
+				((BrownianMotionWithSinglePathAccess) stochasticDriver).getBrownianIncrements(timeIndex, factor,
+						firstPath, numberOfPathsInBatch, independentIncrements[factor]);
+			} else {
+				RandomVariable brownianIncrement = stochasticDriver.getBrownianIncrement(timeIndex, factor);
+				for (int i = 0; i < numberOfPathsInBatch; i++) {
+					independentIncrements[factor][i] = brownianIncrement.get(firstPath + i);
+				}
+			}
+		}
+	}
+
+	/*
+	 * It writes in correlatedIncrements[i][p] the sum of L_{ij} independentIncrements[j][p] for j from 0 to i, for any
+	 * p from 0 to numberOfPathsInBatch - 1. The columns of L are taken four at a time: in this way, the row
+	 * correlatedIncrements[i] is read and written once every four factors, and the inner loop can be vectorized.
+	 */
+	private void correlate(double[][] independentIncrements, double[][] correlatedIncrements, int numberOfPathsInBatch) {
+		for (int i = 0; i < numberOfAssets; i++) {
+			double[] rowOfFactor = choleskyFactor[i];
+			double[] correlatedIncrement = correlatedIncrements[i];
+			double firstCoefficient = rowOfFactor[0];
+			double[] firstIncrement = independentIncrements[0];
+			for (int p = 0; p < numberOfPathsInBatch; p++) {
+				correlatedIncrement[p] = firstCoefficient * firstIncrement[p];
+			}
+			int j = 1;
+			for (; j + 3 <= i; j += 4) {
+				double coefficient0 = rowOfFactor[j];
+				double coefficient1 = rowOfFactor[j + 1];
+				double coefficient2 = rowOfFactor[j + 2];
+				double coefficient3 = rowOfFactor[j + 3];
+				double[] increment0 = independentIncrements[j];
+				double[] increment1 = independentIncrements[j + 1];
+				double[] increment2 = independentIncrements[j + 2];
+				double[] increment3 = independentIncrements[j + 3];
+				for (int p = 0; p < numberOfPathsInBatch; p++) {
+					correlatedIncrement[p] += coefficient0 * increment0[p] + coefficient1 * increment1[p]
+							+ coefficient2 * increment2[p] + coefficient3 * increment3[p];
+				}
+			}
+			for (; j <= i; j++) {
+				double coefficient = rowOfFactor[j];
+				double[] increment = independentIncrements[j];
+				for (int p = 0; p < numberOfPathsInBatch; p++) {
+					correlatedIncrement[p] += coefficient * increment[p];
+				}
+			}
+		}
+	}
+
+	/*
+	 * This method simulates the processes up to the last time index for which isTimeIndexToBeStored is true, and
+	 * returns an array whose entry [k][j] contains the realizations of F(X^j_{t_k}) if isTimeIndexToBeStored[k] is
+	 * true, and is null otherwise.
+	 */
+	private RandomVariable[][] simulate(boolean[] isTimeIndexToBeStored) {
+		int lastTimeIndexToSimulate = 0;
+		for (int timeIndex = 0; timeIndex < isTimeIndexToBeStored.length; timeIndex++) {
+			if (isTimeIndexToBeStored[timeIndex]) {
+				lastTimeIndexToSimulate = timeIndex;
+			}
+		}
+		BrownianMotion stochasticDriver = getStochasticDriver();
+		RandomVariable[][] storedRealizations = new RandomVariable[times.getNumberOfTimes()][];
+
+		double[] initialSimulatedValues = new double[numberOfAssets];
+		for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+			initialSimulatedValues[assetIndex] = inverseTransform.applyAsDouble(initialValues[assetIndex]);
+		}
+		if (isTimeIndexToBeStored[0]) {
+			storedRealizations[0] = new RandomVariable[numberOfAssets];
+			for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+				storedRealizations[0][assetIndex] = new RandomVariableFromDoubleArray(times.getTime(0), initialSimulatedValues[assetIndex]);
+			}
+		}
+
+		double[][] independentIncrements = new double[numberOfAssets][NUMBER_OF_PATHS_PER_BATCH];
+		double[][] correlatedIncrements = new double[numberOfAssets][NUMBER_OF_PATHS_PER_BATCH];
+
+		if (this instanceof FusedMultiAssetDiscretizationScheme) {
+			FusedMultiAssetDiscretizationScheme fusedScheme = (FusedMultiAssetDiscretizationScheme) this;
+			double[][][] storedValues = new double[lastTimeIndexToSimulate + 1][][];
+			for (int timeIndex = 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+				if (isTimeIndexToBeStored[timeIndex]) {
+					storedValues[timeIndex] = new double[numberOfAssets][numberOfSimulations];
+				}
+			}
+
+			// the only arrays which are updated during the simulation: they contain F(X^j_{t_k}) for a batch of simulations
+			double[][] simulatedProcesses = new double[numberOfAssets][NUMBER_OF_PATHS_PER_BATCH];
+			for (int firstPath = 0; firstPath < numberOfSimulations; firstPath += NUMBER_OF_PATHS_PER_BATCH) {
+				int numberOfPathsInBatch = Math.min(NUMBER_OF_PATHS_PER_BATCH, numberOfSimulations - firstPath);
+				for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+					Arrays.fill(simulatedProcesses[assetIndex], initialSimulatedValues[assetIndex]);
+				}
+				for (int timeIndex = 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+					getIndependentBrownianIncrements(stochasticDriver, timeIndex - 1, firstPath, numberOfPathsInBatch,
+							independentIncrements);
+					correlate(independentIncrements, correlatedIncrements, numberOfPathsInBatch);
+					fusedScheme.evolve(simulatedProcesses, correlatedIncrements, numberOfPathsInBatch, timeIndex);
+					if (isTimeIndexToBeStored[timeIndex]) {
+						for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+							System.arraycopy(simulatedProcesses[assetIndex], 0, storedValues[timeIndex][assetIndex],
+									firstPath, numberOfPathsInBatch);
+						}
+					}
+				}
+			}
+
+			for (int timeIndex = 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+				if (storedValues[timeIndex] != null) {
+					storedRealizations[timeIndex] = new RandomVariable[numberOfAssets];
+					for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+						storedRealizations[timeIndex][assetIndex] = new RandomVariableFromDoubleArray(times.getTime(timeIndex),
+								storedValues[timeIndex][assetIndex]);
+					}
+				}
+			}
+		} else {
+			RandomVariable[] lastRealizations = new RandomVariable[numberOfAssets];
+			for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+				lastRealizations[assetIndex] = new RandomVariableFromDoubleArray(times.getTime(0), initialSimulatedValues[assetIndex]);
+			}
+			for (int timeIndex = 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+				// the correlated increments of all the simulations, computed batch by batch
+				double[][] correlatedIncrementsOfStep = new double[numberOfAssets][numberOfSimulations];
+				for (int firstPath = 0; firstPath < numberOfSimulations; firstPath += NUMBER_OF_PATHS_PER_BATCH) {
+					int numberOfPathsInBatch = Math.min(NUMBER_OF_PATHS_PER_BATCH, numberOfSimulations - firstPath);
+					getIndependentBrownianIncrements(stochasticDriver, timeIndex - 1, firstPath, numberOfPathsInBatch,
+							independentIncrements);
+					correlate(independentIncrements, correlatedIncrements, numberOfPathsInBatch);
+					for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+						System.arraycopy(correlatedIncrements[assetIndex], 0, correlatedIncrementsOfStep[assetIndex],
+								firstPath, numberOfPathsInBatch);
+					}
+				}
+				RandomVariable[] newRealizations = new RandomVariable[numberOfAssets];
+				for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+					RandomVariable correlatedBrownianIncrement = new RandomVariableFromDoubleArray(times.getTime(timeIndex),
+							correlatedIncrementsOfStep[assetIndex]);
+					newRealizations[assetIndex] = lastRealizations[assetIndex]
+							.add(getDrift(lastRealizations, assetIndex, timeIndex))
+							.add(getDiffusion(lastRealizations, assetIndex, timeIndex, correlatedBrownianIncrement));
+				}
+				lastRealizations = newRealizations;
+				if (isTimeIndexToBeStored[timeIndex]) {
+					storedRealizations[timeIndex] = lastRealizations;
+				}
+			}
+		}
+		return storedRealizations;
+	}
+
+	/*
+	 * It generates the paths of all the assets, if this has not already been done. It is synchronized, so that if many
+	 * threads ask for the paths at the same time they are generated only once.
+	 */
+	private synchronized void generate() {
+		if (simulatedPaths == null) {
+			boolean[] isTimeIndexToBeStored = new boolean[times.getNumberOfTimes()];
+			Arrays.fill(isTimeIndexToBeStored, true);
+			RandomVariable[][] generatedPaths = simulate(isTimeIndexToBeStored);
+			paths = new AtomicReferenceArray<RandomVariable>(times.getNumberOfTimes() * numberOfAssets);
+			// in this way the initial values are exactly the ones given, also if F(f(x)) is not exactly x
+			for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+				paths.set(assetIndex, new RandomVariableFromDoubleArray(times.getTime(0), initialValues[assetIndex]));
+			}
+			simulatedPaths = generatedPaths;
+		}
+	}
+
+	private RandomVariable transformBack(RandomVariable simulatedRealizations) {
+		return transform == IDENTITY ? simulatedRealizations : simulatedRealizations.apply(transform);
+	}
+
+	/**
+	 * It returns the realizations of all the assets at the final time, simulated without storing the paths: only the
+	 * realizations of the assets for a batch of simulations are kept during the simulation if the class implements
+	 * FusedMultiAssetDiscretizationScheme, and the ones for all the simulations at the current time otherwise. If the
+	 * paths have already been generated, they are not simulated again.
+	 *
+	 * @return an array whose entry j is the random variable with the realizations of the asset j at the final time
+	 */
+	public RandomVariable[] getFinalValuesWithoutStoringPaths() {
+		int lastTimeIndex = times.getNumberOfTimes() - 1;
+		if (simulatedPaths != null) {
+			return getFinalValues();
+		}
+		boolean[] isTimeIndexToBeStored = new boolean[times.getNumberOfTimes()];
+		isTimeIndexToBeStored[lastTimeIndex] = true;
+		RandomVariable[] finalValues = simulate(isTimeIndexToBeStored)[lastTimeIndex];
+		for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+			finalValues[assetIndex] = lastTimeIndex == 0
+					? new RandomVariableFromDoubleArray(times.getTime(0), initialValues[assetIndex])
+					: transformBack(finalValues[assetIndex]);
+		}
+		return finalValues;
+	}
+
+	// getters
+
+	/**
+	 * It returns a random variable with the realizations of the given asset at a given time index. It generates the
+	 * processes only if this has not already done.
+	 *
+	 * @param timeIndex, index of the time considered
+	 * @param assetIndex, index of the asset considered
+	 * @return a random variable with the realizations of the asset at the given time index
+	 */
+	public RandomVariable getProcessAtGivenTimeIndex(int timeIndex, int assetIndex) {
+		// otherwise, the index in paths might be the one of another asset at another time
+		if (assetIndex < 0 || assetIndex >= numberOfAssets) {
+			throw new IllegalArgumentException("Error: the asset index " + assetIndex + " is not the one of an asset!");
+		}
+		if (simulatedPaths == null) {
+			generate();
+		}
+		int index = timeIndex * numberOfAssets + assetIndex;
+		RandomVariable realizations = paths.get(index);
+		if (realizations == null) {
+			paths.compareAndSet(index, null, transformBack(simulatedPaths[timeIndex][assetIndex]));
+			realizations = paths.get(index);
+		}
+		return realizations;
+	}
+
+	/**
+	 * It returns a random variable with the realizations of the given asset at the final time.
+	 *
+	 * @param assetIndex, index of the asset considered
+	 * @return a random variable with the realizations of the asset at the final time
+	 */
+	public RandomVariable getFinalValue(int assetIndex) {
+		return getProcessAtGivenTimeIndex(times.getNumberOfTimes() - 1, assetIndex);
+	}
+
+	/**
+	 * It returns the realizations of all the assets at the final time.
+	 *
+	 * @return an array whose entry j is the random variable with the realizations of the asset j at the final time
+	 */
+	public RandomVariable[] getFinalValues() {
+		RandomVariable[] finalValues = new RandomVariable[numberOfAssets];
+		for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+			finalValues[assetIndex] = getFinalValue(assetIndex);
+		}
+		return finalValues;
+	}
+
+	/**
+	 * It returns the Brownian motion with independent factors driving the processes. It is constructed only when it is
+	 * needed for the first time, if it is not given in the constructor.
+	 *
+	 * @return the Brownian motion driving the processes, before the factors get correlated
+	 */
+	public BrownianMotion getStochasticDriver() {
+		if (brownianMotion == null) {
+			constructStochasticDriver();
+		}
+		return brownianMotion;
+	}
+
+	private synchronized void constructStochasticDriver() {
+		if (brownianMotion == null) {
+			brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, numberOfAssets, numberOfSimulations, seed);
+		}
+	}
+
+	/**
+	 * It returns the element (i,j) of the lower triangular matrix L such that L L^T is the correlation matrix.
+	 *
+	 * @param i, the index of the row
+	 * @param j, the index of the column
+	 * @return the element (i,j) of the Cholesky factor of the correlation matrix
+	 */
+	public double getCholeskyFactorElement(int i, int j) {
+		return j <= i ? choleskyFactor[i][j] : 0.0;
+	}
+
+	/**
+	 * It returns the initial values of the processes
+	 *
+	 * @return the initial values of the processes
+	 */
+	public double[] getInitialValues() {
+		return initialValues.clone();
+	}
+
+	/**
+	 * It returns the number of assets, i.e., of processes
+	 *
+	 * @return the number of assets
+	 */
+	public int getNumberOfAssets() {
+		return numberOfAssets;
+	}
+
+	/**
+	 * It returns the seed by which the Brownian motion is generated. It is 0 if the Brownian motion is given in the
+	 * constructor.
+	 *
+	 * @return the seed by which the Brownian motion is generated
+	 */
+	public int getSeed() {
+		return seed;
+	}
+
+	/**
+	 * It returns the time discretization of the processes
+	 *
+	 * @return the time discretization of the processes
+	 */
+	public TimeDiscretization getTimeDiscretization() {
+		return times;
+	}
+
+	/**
+	 * It returns the number of times in the time discretization
+	 *
+	 * @return the number of times in the time discretization
+	 */
+	public int getNumberOfTimes() {
+		return times.getNumberOfTimes();
+	}
+
+	/**
+	 * It returns the number of paths of the processes, i.e., the number of simulations
+	 *
+	 * @return the number of paths of the processes
+	 */
+	public int getNumberOfSimulations() {
+		return numberOfSimulations;
+	}
+}
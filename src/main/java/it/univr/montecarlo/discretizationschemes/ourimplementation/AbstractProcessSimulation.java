@@ -1,7 +1,19 @@
 package it.univr.montecarlo.discretizationschemes.ourimplementation;
 
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.DoubleUnaryOperator;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
 
+import it.univr.montecarlo.pathstorage.PathStorage;
+import it.univr.montecarlo.stochasticdrivers.AntitheticBrownianMotion;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionWithSinglePathAccess;
+import it.univr.montecarlo.stochasticdrivers.MomentMatchedBrownianMotion;
 import net.finmath.montecarlo.BrownianMotion;
 import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
 import net.finmath.montecarlo.RandomVariableFromDoubleArray;
@@ -16,13 +28,59 @@ import net.finmath.time.TimeDiscretization;
  * implemented in different ways depending on the scheme (for example, Euler, log-Euler or Milstein)
  * and on the dynamics of the process. All the other methods are implemented in this class, as they
  * only depend on the generation of the process.
+ * If a derived class also implements FusedDiscretizationScheme, the process is generated by its method evolve,
+ * which performs a whole time step on arrays of doubles, instead of getDrift and getDiffusion. In this case, knock-out
+ * barriers can be set, so that the trajectories which exit them are not evolved anymore.
+ * The process is simulated incrementally: it is simulated only up to the biggest time index asked so far, and the
+ * simulation is continued from there if a later time index is asked.
+ * Once it is configured (by the constructor and the setters), an object of this class can be shared by many threads:
+ * every time step is simulated only once, by the first thread asking for it, while the other threads wait for the
+ * simulation to be extended and then use the same paths.
  *
  * @author Andrea Mazzon
  *
  */
 public abstract class AbstractProcessSimulation {
-	// it will contain the paths of the process
-	private RandomVariable[] paths;// not yet initialized: default value is null.
+	/*
+	 * It will contain the paths of F(X), where X is the process and F the inverse transform (for example, the
+	 * logarithm of the process for the log Euler scheme): this is what we actually simulate. The entry for a given
+	 * time index is set to null once the one of paths has been computed from it, so that the paths are not kept
+	 * twice. It is an AtomicReferenceArray so that a thread which finds null here also finds the entry of paths.
+	 */
+	private AtomicReferenceArray<RandomVariable> simulatedPaths;// not yet initialized: default value is null.
+
+	/*
+	 * It will contain the paths of the process X = f(F(X)), where f is the transform. The entry for a given time
+	 * index is computed from simulatedPaths only when it is asked for the first time. It is an AtomicReferenceArray
+	 * so that the entries can be computed by many threads: at most, the same entry gets computed twice.
+	 */
+	private AtomicReferenceArray<RandomVariable> paths;
+
+	/*
+	 * If it is not null, the paths of the process X are written here while they are generated, instead of being kept
+	 * in simulatedPaths and paths. See setPathStorage.
+	 */
+	private PathStorage pathStorage;
+
+	/*
+	 * The index of the last time up to which the paths have been simulated, -1 if the simulation has not started. It is
+	 * set after the fields above are written up to that index: since it is volatile, a thread which reads it also sees
+	 * the paths up to that index.
+	 */
+	private volatile int lastSimulatedTimeIndex = -1;
+
+	/*
+	 * The state from which the simulation is continued when a time index bigger than lastSimulatedTimeIndex is asked.
+	 * It is null before the simulation starts and after the last time index is reached. It is only used by the thread
+	 * extending the simulation.
+	 */
+	private SimulationState retainedState;
+
+	/*
+	 * It is not null while a thread is extending the simulation: the threads asking for time indices which are not
+	 * simulated yet wait for it to complete.
+	 */
+	private final AtomicReference<CompletableFuture<Void>> extension = new AtomicReference<CompletableFuture<Void>>();
 
 	private int numberOfSimulations;
 
@@ -34,8 +92,31 @@ public abstract class AbstractProcessSimulation {
 	// used in order to generate the Brownian motion
 	private int seed;
 
-	// used as the stochastic driver of the process
-	private BrownianMotion brownianMotion;
+	// used as the stochastic driver of the process. Volatile since it can be constructed by a thread and used by others
+	private volatile BrownianMotion brownianMotion;
+
+	// true if the stochastic driver is given in the constructor, false if it is constructed from the seed
+	private boolean isStochasticDriverGiven;
+
+	// variance reduction methods for the stochastic driver constructed from the seed, see the setters
+	private boolean useAntitheticVariates;
+	private boolean useMomentMatching;
+
+	/*
+	 * Used only if the paths are generated in parallel, see setParallelGeneration: in this case the simulations
+	 * are split into blocks of numberOfPathsPerBlock paths, which are generated by forkJoinPool. If it is 0, the
+	 * paths are generated by a single thread.
+	 */
+	private int numberOfPathsPerBlock;
+	private ForkJoinPool forkJoinPool;
+
+	/*
+	 * If hasKnockOutBarriers is true, the simulations whose process exits [lowerKnockOutBarrier, upperKnockOutBarrier]
+	 * at a time of the time discretization are not evolved anymore, see setKnockOutBarriers.
+	 */
+	private boolean hasKnockOutBarriers;
+	private double lowerKnockOutBarrier;
+	private double upperKnockOutBarrier;
 
 	/*
 	 * They are not the identity if it can be useful to use Itô's formula in order to simulate a
@@ -47,6 +128,12 @@ public abstract class AbstractProcessSimulation {
 	protected DoubleUnaryOperator transform;
 	protected DoubleUnaryOperator inverseTransform;// log for log Euler
 
+	/*
+	 * To be used by the derived classes as transform and inverse transform when they simulate the process itself:
+	 * in this case the paths of the process are the simulated paths, without any copy.
+	 */
+	protected static final DoubleUnaryOperator IDENTITY = x -> x;
+
 	/*
 	 * Abstract because they depend on the process and on the scheme. We suppose that the drift and the
 	 * diffusion are functions of the process and of the time.
@@ -63,87 +150,735 @@ public abstract class AbstractProcessSimulation {
 		this.times = times;
 	}
 
+	/**
+	 * It constructs a simulation of the process driven by a given one-dimensional Brownian motion: the number of
+	 * simulations and the time discretization are the ones of the Brownian motion. For example, the Brownian motion
+	 * can be an object of type BrownianMotionFromCounterBasedRandomNumbers, which does not store its increments.
+	 *
+	 * @param initialValue, the initial value of the process
+	 * @param brownianMotion, the Brownian motion driving the process
+	 */
+	public AbstractProcessSimulation(double initialValue, BrownianMotion brownianMotion) {
+		this.numberOfSimulations = brownianMotion.getNumberOfPaths();
+		this.initialValue = initialValue;
+		this.times = brownianMotion.getTimeDiscretization();
+		this.brownianMotion = brownianMotion;
+		isStochasticDriverGiven = true;
+	}
+
+	/**
+	 * It makes the paths of the process be generated in parallel. The simulations are split into blocks of
+	 * numberOfPathsPerBlock consecutive paths (the last block might have less paths), which are simulated by the
+	 * given ForkJoinPool.
+	 * If the Brownian motion is given in the constructor, or if antithetic variates or moment matching are used, every
+	 * block takes the increments of its paths from it: then the paths are the same as the ones generated by a single
+	 * thread. With a
+	 * BrownianMotionFromCounterBasedRandomNumbers, the increments of every block are also generated in parallel.
+	 * Otherwise, every block is driven by its own Brownian motion, whose
+	 * seed is deterministically derived from the seed of the simulation and from the index of the block. Note that in
+	 * this case the paths are not the ones generated by a single thread with the stochastic driver returned by
+	 * getStochasticDriver().
+	 * In both cases, the paths do not depend on the number of threads of the pool.
+	 * This is possible only if the class extending this one implements FusedDiscretizationScheme.
+	 *
+	 * @param numberOfPathsPerBlock, the number of paths simulated together by the same thread
+	 * @param forkJoinPool, the pool simulating the blocks. If null, the common pool is used.
+	 */
+	public void setParallelGeneration(int numberOfPathsPerBlock, ForkJoinPool forkJoinPool) {
+		if (!(this instanceof FusedDiscretizationScheme)) {
+			throw new UnsupportedOperationException("Error: parallel generation needs a FusedDiscretizationScheme!");
+		}
+		if (numberOfPathsPerBlock <= 0) {
+			throw new IllegalArgumentException("Error: the number of paths per block must be positive!");
+		}
+		if (hasSimulationStarted()) {
+			throw new IllegalStateException("Error: the paths have already been generated!");
+		}
+		this.numberOfPathsPerBlock = numberOfPathsPerBlock;
+		this.forkJoinPool = forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * It makes the process be driven by an AntitheticBrownianMotion: the increments of the first half of the simulations
+	 * are used, with flipped sign, for the second half. In this case the number of simulations must be even. Note that
+	 * the simulations i and i + numberOfSimulations/2 are not independent, see
+	 * AntitheticBrownianMotion.getStandardErrorOfAntitheticEstimator.
+	 * It can be called only if the Brownian motion is constructed from the seed, before it is constructed.
+	 *
+	 * @param useAntitheticVariates, true if antithetic variates have to be used
+	 */
+	public void setAntitheticVariates(boolean useAntitheticVariates) {
+		checkStochasticDriverCanBeModified();
+		if (useAntitheticVariates && numberOfSimulations % 2 != 0) {
+			throw new IllegalArgumentException("Error: antithetic variates need an even number of simulations!");
+		}
+		this.useAntitheticVariates = useAntitheticVariates;
+	}
+
+	/**
+	 * It makes the process be driven by a MomentMatchedBrownianMotion: for every time step, the Brownian increments are
+	 * rescaled such that their sample mean is exactly 0 and their sample variance is exactly the time step.
+	 * It can be called only if the Brownian motion is constructed from the seed, before it is constructed.
+	 *
+	 * @param useMomentMatching, true if moment matching has to be used
+	 */
+	public void setMomentMatching(boolean useMomentMatching) {
+		checkStochasticDriverCanBeModified();
+		this.useMomentMatching = useMomentMatching;
+	}
+
+	/**
+	 * It makes the simulation drop the trajectories which exit the corridor [B_L,B_U] at a time of the time
+	 * discretization, as the ones knocked out by a BarrierOption with these barriers. The simulations which are still
+	 * inside the corridor are kept one after the other in the arrays which are evolved, and the time steps only
+	 * compute them: the cost of a time step is proportional to the number of trajectories which have not been knocked
+	 * out yet. If the Brownian motion gives access to the increments of single simulations, as
+	 * BrownianMotionFromCounterBasedRandomNumbers, only the increments of these trajectories are generated.
+	 *
+	 * After a trajectory is knocked out, its realizations are NaN: the payoffs have to be zero when the process is NaN,
+	 * as for BarrierOption, which considers NaN outside of the barriers. The other realizations are the same as without
+	 * barriers. It can be called only for the classes implementing FusedDiscretizationScheme, whose inverse transform
+	 * is increasing, before the simulation starts.
+	 *
+	 * @param lowerBarrier, the lower barrier B_L: it can be 0 if there is no lower barrier
+	 * @param upperBarrier, the upper barrier B_U: it can be Double.POSITIVE_INFINITY if there is no upper barrier
+	 */
+	public void setKnockOutBarriers(double lowerBarrier, double upperBarrier) {
+		if (!(this instanceof FusedDiscretizationScheme)) {
+			throw new UnsupportedOperationException("Error: knock-out barriers need a FusedDiscretizationScheme!");
+		}
+		if (!(lowerBarrier < upperBarrier)) {
+			throw new IllegalArgumentException("Error: the lower barrier must be smaller than the upper barrier!");
+		}
+		if (hasSimulationStarted()) {
+			throw new IllegalStateException("Error: the paths have already been generated!");
+		}
+		this.hasKnockOutBarriers = true;
+		this.lowerKnockOutBarrier = lowerBarrier;
+		this.upperKnockOutBarrier = upperBarrier;
+	}
+
+	/**
+	 * It makes the paths of the process be stored in the given PathStorage, for example a PathMajorPathStorage, which
+	 * keeps every path contiguous in memory, or a MemoryMappedPathStorage, which keeps the paths in a file outside of
+	 * the heap. In the second case, the process should be generated in parallel (see setParallelGeneration), driven
+	 * by the Brownian motions of the blocks or by a given Brownian motion which does not store its increments, like
+	 * BrownianMotionFromCounterBasedRandomNumbers: then no array of length numberOfSimulations is needed during the
+	 * simulation. The time slices are written in the storage while the process is generated, already transformed
+	 * back (for example, after taking the exponential for the log Euler scheme).
+	 * In this case, getProcessAtGivenTimeIndex returns the time slice given by getRealizationsAtTimeIndex of the
+	 * storage every time it is called, without keeping it (for a FloatPathStorage, a random variable on the stored
+	 * floats), whereas getPathForGivenSimulation and getRealizationsOfPathFunctional read the paths from the storage.
+	 *
+	 * @param pathStorage, the storage, with the number of simulations and of times of the process
+	 */
+	public void setPathStorage(PathStorage pathStorage) {
+		if (pathStorage.getNumberOfSimulations() != numberOfSimulations || pathStorage.getNumberOfTimes() != times.getNumberOfTimes()) {
+			throw new IllegalArgumentException("Error: the size of the storage is not the one of the paths!");
+		}
+		if (hasSimulationStarted()) {
+			throw new IllegalStateException("Error: the paths have already been generated!");
+		}
+		this.pathStorage = pathStorage;
+	}
+
 	/*
-	 * This method generates the process. Here we have a for loop, with respect to the time, such that
-	 * at every iteration we fill the entry path[timeIndex] of path by adding the drift and the
-	 * diffusion to path[timeIndex-1], also taking into consideration the possible transform and
-	 * inverse transform.
+	 * It returns true if the paths are driven by the Brownian motion returned by getStochasticDriver(), false if they
+	 * are generated in parallel by blocks which have their own Brownian motions, see setParallelGeneration.
 	 */
-	private void generate() {
+	boolean isDrivenByStochasticDriver() {
+		return numberOfPathsPerBlock == 0 || isStochasticDriverGiven || useAntitheticVariates || useMomentMatching;
+	}
 
-		int numberOfTimes = times.getNumberOfTimes();
-		/*
-		 * One-dimensional Brownian motion, taken from the Finmath library. Note that it has a method
-		 * getIncrement(int timeIndex, int factor) that must be called in the generation of the
-		 * diffusion in the derived classes. So we don't use it here, but in the derived classes.
-		 */
-		brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfSimulations, seed);
+	private boolean hasSimulationStarted() {
+		return lastSimulatedTimeIndex >= 0 || extension.get() != null;
+	}
+
+	private void checkStochasticDriverCanBeModified() {
+		if (isStochasticDriverGiven) {
+			throw new IllegalStateException("Error: the Brownian motion is given in the constructor!");
+		}
+		if (brownianMotion != null) {
+			throw new IllegalStateException("Error: the Brownian motion has already been constructed!");
+		}
+	}
+
+	/*
+	 * It makes the paths of the process be simulated at least up to the given time index. If many threads call it at
+	 * the same time, every time step is simulated only once, by the first thread asking for it: the other ones wait
+	 * for the simulation to be extended and then check again. Note that CompletableFuture.join does not block a thread
+	 * of a ForkJoinPool without letting the pool use another thread, so the paths can be asked by tasks running in the
+	 * same pool which generates them in parallel.
+	 */
+	private void simulateUpTo(int timeIndex) {
+		while (lastSimulatedTimeIndex < timeIndex) {
+			CompletableFuture<Void> newExtension = new CompletableFuture<Void>();
+			CompletableFuture<Void> extensionInProgress = extension.compareAndExchange(null, newExtension);
+			if (extensionInProgress != null) {
+				extensionInProgress.join();
+				continue;
+			}
+			try {
+				extendSimulation(timeIndex);
+				extension.set(null);
+				newExtension.complete(null);
+			} catch (RuntimeException | Error exception) {
+				// the simulation might have been partially extended: the next thread starts again from the beginning
+				retainedState = null;
+				lastSimulatedTimeIndex = -1;
+				extension.set(null);
+				newExtension.completeExceptionally(exception);
+				throw exception;
+			}
+		}
+	}
+
+	/*
+	 * This method extends the simulation of the process from lastSimulatedTimeIndex to the given time index, starting
+	 * from the retained state. The time steps are computed by advance: the realizations of F(X) at every time index
+	 * are stored in simulatedPaths, whereas the transform is applied only when the process at a given time index is
+	 * asked. If there is a PathStorage, the realizations of the process are written in it, already transformed.
+	 * When the last time index is reached, the state is not retained anymore.
+	 */
+	private void extendSimulation(int timeIndex) {
+		// another thread might have extended the simulation after this one checked lastSimulatedTimeIndex
+		if (timeIndex <= lastSimulatedTimeIndex) {
+			return;
+		}
+		if (retainedState == null) {
+			if (pathStorage != null) {
+				// the initial values are written by chunks: the storage might be bigger than the heap
+				double[] initialValues = new double[Math.min(numberOfSimulations, 1 << 16)];
+				Arrays.fill(initialValues, initialValue);
+				for (int firstSimulation = 0; firstSimulation < numberOfSimulations; firstSimulation += initialValues.length) {
+					pathStorage.setValues(0, firstSimulation, initialValues,
+							Math.min(initialValues.length, numberOfSimulations - firstSimulation));
+				}
+			} else {
+				// the entry for the time index 0 is not needed, since the one of paths is given here
+				simulatedPaths = new AtomicReferenceArray<RandomVariable>(times.getNumberOfTimes());
+				paths = new AtomicReferenceArray<RandomVariable>(times.getNumberOfTimes());
+				// in this way the initial value is exactly the one given, also if F(f(x)) is not exactly x
+				paths.set(0, new RandomVariableFromDoubleArray(times.getTime(0), initialValue));
+			}
+			retainedState = getInitialSimulationState();
+		}
+		boolean[] isTimeIndexToBeStored = new boolean[times.getNumberOfTimes()];
+		Arrays.fill(isTimeIndexToBeStored, true);
+		RandomVariable[] newRealizations = pathStorage != null ? null : new RandomVariable[times.getNumberOfTimes()];
+		advance(retainedState, timeIndex, isTimeIndexToBeStored, newRealizations, pathStorage, null);
+		if (newRealizations != null) {
+			for (int newTimeIndex = lastSimulatedTimeIndex + 1; newTimeIndex <= timeIndex; newTimeIndex++) {
+				if (newTimeIndex > 0) {
+					simulatedPaths.set(newTimeIndex, newRealizations[newTimeIndex]);
+				}
+			}
+		}
+		if (timeIndex == times.getNumberOfTimes() - 1) {
+			retainedState = null;
+		}
+		lastSimulatedTimeIndex = timeIndex;
+	}
+
+	/*
+	 * It returns the realizations of the process X = f(F(X)) from the ones of F(X), where f is the transform.
+	 */
+	private RandomVariable transformBack(RandomVariable simulatedRealizations) {
+		return transform == IDENTITY ? simulatedRealizations : simulatedRealizations.apply(transform);
+	}
+
+	/*
+	 * It writes in the storage the values f(simulatedValues[i]) for i from 0 to numberOfValues - 1, where f is the
+	 * transform, as the ones of the simulations from firstSimulation on at the given time index. The buffer is used
+	 * for the transformed values.
+	 */
+	private void storeTransformedValues(PathStorage storage, int timeIndex, int firstSimulation, double[] simulatedValues,
+			int numberOfValues, double[] buffer) {
+		if (transform == IDENTITY) {
+			storage.setValues(timeIndex, firstSimulation, simulatedValues, numberOfValues);
+			return;
+		}
+		for (int i = 0; i < numberOfValues; i++) {
+			buffer[i] = transform.applyAsDouble(simulatedValues[i]);
+		}
+		storage.setValues(timeIndex, firstSimulation, buffer, numberOfValues);
+	}
+
+	/*
+	 * This method simulates the process from the beginning up to the last time index for which isTimeIndexToBeStored
+	 * is true, and returns an array with the realizations of F(X) at these time indices (the other entries are null),
+	 * where F is the inverse transform. Nothing is retained by this object. If stochasticDriver is not null, the process
+	 * is driven by it instead of the one returned by getStochasticDriver().
+	 */
+	private RandomVariable[] simulate(boolean[] isTimeIndexToBeStored, BrownianMotion stochasticDriver) {
+		int lastTimeIndexToSimulate = 0;
+		for (int timeIndex = 0; timeIndex < isTimeIndexToBeStored.length; timeIndex++) {
+			if (isTimeIndexToBeStored[timeIndex]) {
+				lastTimeIndexToSimulate = timeIndex;
+			}
+		}
+		RandomVariable[] storedRealizations = new RandomVariable[times.getNumberOfTimes()];
+		if (isTimeIndexToBeStored[0]) {
+			storedRealizations[0] = new RandomVariableFromDoubleArray(times.getTime(0), inverseTransform.applyAsDouble(initialValue));
+		}
+		advance(getInitialSimulationState(), lastTimeIndexToSimulate, isTimeIndexToBeStored, storedRealizations, null,
+				stochasticDriver);
+		return storedRealizations;
+	}
 
+	/*
+	 * The state of a simulation which can be continued: the realizations of F(X) at the time index lastTimeIndex,
+	 * where F is the inverse transform.
+	 * If the class extending this one implements FusedDiscretizationScheme, the simulations are split into blocks
+	 * (only one if the paths are not generated in parallel): simulatedProcessOfBlocks[b] contains the realizations of
+	 * the paths of the block b, and brownianMotionsOfBlocks[b] its Brownian motion, if the block has its own. They are
+	 * constructed by the block when it is simulated for the first time, and released when it reaches the last time
+	 * index. If there are knock-out barriers, simulatedProcessOfBlocks[b] only contains the first
+	 * numbersOfAlivePathsOfBlocks[b] simulations of the block which have not been knocked out, whose indices in the
+	 * block are in alivePathsOfBlocks[b]. If the class also implements FusedDiscretizationSchemeWithStateVariable,
+	 * stateVariableOfBlocks[b] contains the realizations of the state variable, with the same entries as
+	 * simulatedProcessOfBlocks[b]. Otherwise, the realizations are given by currentSimulation.
+	 */
+	private static class SimulationState {
+		private int lastTimeIndex;
+		private double[][] simulatedProcessOfBlocks;
+		private double[][] stateVariableOfBlocks;
+		private BrownianMotion[] brownianMotionsOfBlocks;
+		private int[][] alivePathsOfBlocks;
+		private int[] numbersOfAlivePathsOfBlocks;
+		private RandomVariable currentSimulation;
+	}
+
+	private SimulationState getInitialSimulationState() {
+		SimulationState state = new SimulationState();
+		if (this instanceof FusedDiscretizationScheme) {
+			int numberOfBlocks = (numberOfSimulations + getNumberOfPathsPerBlock() - 1) / getNumberOfPathsPerBlock();
+			state.simulatedProcessOfBlocks = new double[numberOfBlocks][];
+			state.brownianMotionsOfBlocks = new BrownianMotion[numberOfBlocks];
+			if (this instanceof FusedDiscretizationSchemeWithStateVariable) {
+				state.stateVariableOfBlocks = new double[numberOfBlocks][];
+			}
+			if (hasKnockOutBarriers) {
+				state.alivePathsOfBlocks = new int[numberOfBlocks][];
+				state.numbersOfAlivePathsOfBlocks = new int[numberOfBlocks];
+			}
+		} else {
+			state.currentSimulation = new RandomVariableFromDoubleArray(times.getTime(0), inverseTransform.applyAsDouble(initialValue));
+		}
+		return state;
+	}
+
+	// if the paths are not generated in parallel, all the simulations are in the same block
+	private int getNumberOfPathsPerBlock() {
+		return numberOfPathsPerBlock > 0 ? numberOfPathsPerBlock : numberOfSimulations;
+	}
+
+	/*
+	 * This method simulates the process from the time index of the given state up to lastTimeIndexToSimulate, and
+	 * updates the state. The realizations of F(X) at the time indices for which isTimeIndexToBeStored is true are
+	 * written in storedRealizations or, if storage is not null, the ones of X are written in the storage.
+	 * If the class extending this one implements FusedDiscretizationScheme, the process is simulated as arrays
+	 * of doubles which are updated in place at every time step, block by block (in parallel if setParallelGeneration
+	 * has been called). Otherwise, it is simulated as a RandomVariable object, by getDrift and getDiffusion.
+	 * If stochasticDriver is not null, the blocks take their increments from it instead of the Brownian motion returned
+	 * by getStochasticDriver(): this is only possible for the classes implementing FusedDiscretizationScheme, since
+	 * getDiffusion takes the increments from getStochasticDriver().
+	 */
+	private void advance(SimulationState state, int lastTimeIndexToSimulate, boolean[] isTimeIndexToBeStored,
+			RandomVariable[] storedRealizations, PathStorage storage, BrownianMotion stochasticDriver) {
+		if (lastTimeIndexToSimulate <= state.lastTimeIndex) {
+			return;
+		}
+		if (this instanceof FusedDiscretizationScheme) {
+			double[][] storedValues = new double[lastTimeIndexToSimulate + 1][];
+			for (int timeIndex = state.lastTimeIndex + 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+				if (isTimeIndexToBeStored[timeIndex] && storage == null) {
+					storedValues[timeIndex] = new double[numberOfSimulations];
+				}
+			}
+
+			/*
+			 * If it is not null, the blocks take their increments from it. It is constructed here (if needed) and not
+			 * by the blocks, which would do it concurrently.
+			 */
+			BrownianMotion stochasticDriverOfBlocks = !isDrivenByStochasticDriver() ? null
+					: stochasticDriver != null ? stochasticDriver : getStochasticDriver();
+
+			int numberOfBlocks = state.simulatedProcessOfBlocks.length;
+			if (numberOfPathsPerBlock > 0) {
+				forkJoinPool.submit(() -> IntStream.range(0, numberOfBlocks).parallel()
+						.forEach(blockIndex -> simulateBlock(state, blockIndex, stochasticDriverOfBlocks,
+								isTimeIndexToBeStored, lastTimeIndexToSimulate, storedValues, storage))).join();
+			} else {
+				simulateBlock(state, 0, stochasticDriverOfBlocks, isTimeIndexToBeStored, lastTimeIndexToSimulate,
+						storedValues, storage);
+			}
+
+			for (int timeIndex = state.lastTimeIndex + 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+				if (storedValues[timeIndex] != null) {
+					storedRealizations[timeIndex] = new RandomVariableFromDoubleArray(times.getTime(timeIndex), storedValues[timeIndex]);
+				}
+			}
+		} else {
+			RandomVariable currentSimulation = state.currentSimulation;
+			for (int timeIndex = state.lastTimeIndex + 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+				currentSimulation = simulateOneStep(currentSimulation, timeIndex);
+				if (isTimeIndexToBeStored[timeIndex]) {
+					if (storage != null) {
+						RandomVariable transformedRealizations = transformBack(currentSimulation);
+						double[] transformedValues = new double[numberOfSimulations];
+						for (int i = 0; i < numberOfSimulations; i++) {
+							transformedValues[i] = transformedRealizations.get(i);
+						}
+						storage.setValues(timeIndex, 0, transformedValues, numberOfSimulations);
+					} else {
+						storedRealizations[timeIndex] = currentSimulation;
+					}
+				}
+			}
+			state.currentSimulation = currentSimulation;
+		}
+		state.lastTimeIndex = lastTimeIndexToSimulate;
+	}
+
+	/*
+	 * It simulates the paths of the block with the given index from the time index of the state up to
+	 * lastTimeIndexToSimulate, and writes their realizations in storedValues, or in the storage if it is not null.
+	 * They are driven by stochasticDriverOfBlocks if it is not null, and by a Brownian motion with a seed derived from
+	 * the one of the simulation otherwise.
+	 */
+	private void simulateBlock(SimulationState state, int blockIndex, BrownianMotion stochasticDriverOfBlocks,
+			boolean[] isTimeIndexToBeStored, int lastTimeIndexToSimulate, double[][] storedValues, PathStorage storage) {
+		FusedDiscretizationScheme fusedScheme = (FusedDiscretizationScheme) this;
+		FusedDiscretizationSchemeWithStateVariable schemeWithStateVariable = this instanceof FusedDiscretizationSchemeWithStateVariable
+				? (FusedDiscretizationSchemeWithStateVariable) this : null;
+		int firstPath = blockIndex * getNumberOfPathsPerBlock();
+		int numberOfPathsInBlock = Math.min(getNumberOfPathsPerBlock(), numberOfSimulations - firstPath);
+
+		// the only array which is updated during the simulation: it contains F(X_{t_k}), F inverse transform
+		double[] simulatedProcess = state.simulatedProcessOfBlocks[blockIndex];
+		// null if the scheme has no state variable
+		double[] stateVariable = schemeWithStateVariable != null ? state.stateVariableOfBlocks[blockIndex] : null;
+		int[] alivePaths = hasKnockOutBarriers ? state.alivePathsOfBlocks[blockIndex] : null;
+		int numberOfAlivePaths = hasKnockOutBarriers ? state.numbersOfAlivePathsOfBlocks[blockIndex] : numberOfPathsInBlock;
+		if (simulatedProcess == null) {
+			simulatedProcess = new double[numberOfPathsInBlock];
+			Arrays.fill(simulatedProcess, inverseTransform.applyAsDouble(initialValue));
+			if (schemeWithStateVariable != null) {
+				stateVariable = new double[numberOfPathsInBlock];
+				Arrays.fill(stateVariable, schemeWithStateVariable.getInitialValueOfStateVariable());
+			}
+			if (hasKnockOutBarriers) {
+				alivePaths = IntStream.range(0, numberOfPathsInBlock).toArray();
+				boolean isInitialValueInside = initialValue >= lowerKnockOutBarrier && initialValue <= upperKnockOutBarrier;
+				numberOfAlivePaths = isInitialValueInside ? numberOfPathsInBlock : 0;
+			}
+		}
+		// the barriers for F(X): F is increasing
+		double lowerBarrierOfSimulatedProcess = inverseTransform.applyAsDouble(lowerKnockOutBarrier);
+		double upperBarrierOfSimulatedProcess = inverseTransform.applyAsDouble(upperKnockOutBarrier);
+		// used to write the realizations of all the simulations of the block, NaN for the ones knocked out
+		double[] allPathsOfBlock = hasKnockOutBarriers && storage != null ? new double[numberOfPathsInBlock] : null;
+
+		// if the block has its own Brownian motion, the first path of the block is the first path of the Brownian motion
+		BrownianMotion brownianMotionOfBlock = stochasticDriverOfBlocks;
+		if (brownianMotionOfBlock == null) {
+			brownianMotionOfBlock = state.brownianMotionsOfBlocks[blockIndex];
+			if (brownianMotionOfBlock == null) {
+				brownianMotionOfBlock = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPathsInBlock,
+						getSeedOfBlock(blockIndex));
+			}
+		}
+		int firstPathOfBrownianMotion = stochasticDriverOfBlocks != null ? firstPath : 0;
+
+		double[] brownianIncrements = new double[numberOfPathsInBlock];
+		double[] transformedValues = storage != null ? new double[numberOfPathsInBlock] : null;
+		for (int timeIndex = state.lastTimeIndex + 1; timeIndex <= lastTimeIndexToSimulate; timeIndex++) {
+			if (hasKnockOutBarriers) {
+				getBrownianIncrementsOfAlivePaths(brownianMotionOfBlock, timeIndex - 1, firstPathOfBrownianMotion,
+						alivePaths, numberOfAlivePaths, brownianIncrements);
+				if (schemeWithStateVariable != null) {
+					schemeWithStateVariable.evolve(simulatedProcess, stateVariable, brownianIncrements, firstPath, alivePaths,
+							numberOfAlivePaths, timeIndex);
+				} else {
+					fusedScheme.evolve(simulatedProcess, brownianIncrements, firstPath, alivePaths, numberOfAlivePaths, timeIndex);
+				}
+				numberOfAlivePaths = knockOut(simulatedProcess, stateVariable, alivePaths, numberOfAlivePaths,
+						lowerBarrierOfSimulatedProcess, upperBarrierOfSimulatedProcess);
+				if (isTimeIndexToBeStored[timeIndex]) {
+					double[] target = storage != null ? allPathsOfBlock : storedValues[timeIndex];
+					int firstIndexOfTarget = storage != null ? 0 : firstPath;
+					Arrays.fill(target, firstIndexOfTarget, firstIndexOfTarget + numberOfPathsInBlock, Double.NaN);
+					for (int i = 0; i < numberOfAlivePaths; i++) {
+						target[firstIndexOfTarget + alivePaths[i]] = simulatedProcess[i];
+					}
+					if (storage != null) {
+						storeTransformedValues(storage, timeIndex, firstPath, allPathsOfBlock, numberOfPathsInBlock, transformedValues);
+					}
+				}
+				continue;
+			}
+			getBrownianIncrements(brownianMotionOfBlock, timeIndex - 1, firstPathOfBrownianMotion, numberOfPathsInBlock,
+					brownianIncrements);
+			if (schemeWithStateVariable != null) {
+				schemeWithStateVariable.evolve(simulatedProcess, stateVariable, brownianIncrements, firstPath,
+						numberOfPathsInBlock, timeIndex);
+			} else {
+				fusedScheme.evolve(simulatedProcess, brownianIncrements, firstPath, numberOfPathsInBlock, timeIndex);
+			}
+			if (isTimeIndexToBeStored[timeIndex]) {
+				if (storage != null) {
+					storeTransformedValues(storage, timeIndex, firstPath, simulatedProcess, numberOfPathsInBlock, transformedValues);
+				} else {
+					System.arraycopy(simulatedProcess, 0, storedValues[timeIndex], firstPath, numberOfPathsInBlock);
+				}
+			}
+		}
+
+		// the state of the block is kept only if the simulation can be continued
+		boolean isLastTimeIndex = lastTimeIndexToSimulate == times.getNumberOfTimes() - 1;
+		state.simulatedProcessOfBlocks[blockIndex] = isLastTimeIndex ? null : simulatedProcess;
+		if (schemeWithStateVariable != null) {
+			state.stateVariableOfBlocks[blockIndex] = isLastTimeIndex ? null : stateVariable;
+		}
+		state.brownianMotionsOfBlocks[blockIndex] = isLastTimeIndex || stochasticDriverOfBlocks != null ? null
+				: brownianMotionOfBlock;
+		if (hasKnockOutBarriers) {
+			state.alivePathsOfBlocks[blockIndex] = isLastTimeIndex ? null : alivePaths;
+			state.numbersOfAlivePathsOfBlocks[blockIndex] = numberOfAlivePaths;
+		}
+	}
+
+	/*
+	 * It removes from simulatedProcess, stateVariable (if it is not null) and alivePaths the simulations whose
+	 * realization of F(X) is not in [lowerBarrier, upperBarrier], or is NaN, moving the other ones to the beginning of
+	 * the arrays in the same order, and returns their number.
+	 */
+	private static int knockOut(double[] simulatedProcess, double[] stateVariable, int[] alivePaths,
+			int numberOfAlivePaths, double lowerBarrier, double upperBarrier) {
+		int numberOfPathsStillAlive = 0;
+		for (int i = 0; i < numberOfAlivePaths; i++) {
+			double value = simulatedProcess[i];
+			if (value >= lowerBarrier && value <= upperBarrier) {
+				simulatedProcess[numberOfPathsStillAlive] = value;
+				if (stateVariable != null) {
+					stateVariable[numberOfPathsStillAlive] = stateVariable[i];
+				}
+				alivePaths[numberOfPathsStillAlive] = alivePaths[i];
+				numberOfPathsStillAlive++;
+			}
+		}
+		return numberOfPathsStillAlive;
+	}
+
+	/*
+	 * It writes in brownianIncrements[i] the increment W_{t_{k+1}}-W_{t_k}, k = timeIndex, of the simulation
+	 * firstPath + alivePaths[i] of the given Brownian motion, for i from 0 to numberOfAlivePaths - 1. If the Brownian
+	 * motion gives access to the increments of single simulations, only the ones of these simulations are computed.
+	 */
+	private static void getBrownianIncrementsOfAlivePaths(BrownianMotion brownianMotion, int timeIndex, int firstPath,
+			int[] alivePaths, int numberOfAlivePaths, double[] brownianIncrements) {
+		if (brownianMotion instanceof BrownianMotionWithSinglePathAccess) {
+			BrownianMotionWithSinglePathAccess brownianMotionWithSinglePathAccess = (BrownianMotionWithSinglePathAccess) brownianMotion;
+			for (int i = 0; i < numberOfAlivePaths; i++) {
+				brownianIncrements[i] = brownianMotionWithSinglePathAccess.getBrownianIncrement(firstPath + alivePaths[i], timeIndex, 0);
+			}
+		} else if (numberOfAlivePaths > 0) {
+			RandomVariable allBrownianIncrements = brownianMotion.getBrownianIncrement(timeIndex, 0);
+			for (int i = 0; i < numberOfAlivePaths; i++) {
+				brownianIncrements[i] = allBrownianIncrements.get(firstPath + alivePaths[i]);
+			}
+		}
+	}
+
+	/*
+	 * It writes in brownianIncrements the increments W_{t_{k+1}}-W_{t_k}, k = timeIndex, of the simulations from
+	 * firstPath to firstPath + numberOfPathsToGet - 1 of the given Brownian motion. If the Brownian motion gives
+	 * access to the increments of single simulations, only the ones of these simulations are computed.
+	 */
+	private static void getBrownianIncrements(BrownianMotion brownianMotion, int timeIndex, int firstPath,
+			int numberOfPathsToGet, double[] brownianIncrements) {
+		if (brownianMotion instanceof BrownianMotionWithSinglePathAccess) {
+			((BrownianMotionWithSinglePathAccess) brownianMotion).getBrownianIncrements(timeIndex, 0, firstPath,
+					numberOfPathsToGet, brownianIncrements);
+		} else {
+			RandomVariable allBrownianIncrements = brownianMotion.getBrownianIncrement(timeIndex, 0);
+			for (int i = 0; i < numberOfPathsToGet; i++) {
+				brownianIncrements[i] = allBrownianIncrements.get(firstPath + i);
+			}
+		}
+	}
+
+	/*
+	 * It derives the seed of the Brownian motion of a block from the seed of the simulation and from the index of the
+	 * block, by the mixing function of the SplitMix64 generator: close seeds and close block indices give independent
+	 * looking seeds.
+	 */
+	private int getSeedOfBlock(int blockIndex) {
+		long mixed = seed * 0x9E3779B97F4A7C15L + (blockIndex + 1) * 0xBF58476D1CE4E5B9L;
+		mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+		mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+		return (int) (mixed ^ (mixed >>> 31));
+	}
+
+	/*
+	 * This method computes the realizations of F(X) at timeIndex from the ones at timeIndex-1, by
+	 * getDrift and getDiffusion.
+	 */
+	private RandomVariable simulateOneStep(RandomVariable lastSimulation, int timeIndex) {
 		/*
+		 * For every time step, we compute drift and diffusion of the process, as
+		 * RandomVariable objects, and we add them to the previous value of the process.
+		 * Note that, calling f the transform we apply to get the value process back and
+		 * F = f^{-1} the function that we actually simulate, we have that 
+		 * F(X_{t_k}) = F(X_{t_{k-1}})+drift(F(X_{t_{k-1}),t_{k-1})+diffusion(F(X_{t_{k-1}),t_{k-1})
+		 * and X_{t_k}= f(F{X_{t_k})). Here lastSimulation is already F(X_{t_{k-1}}): we don't need to apply
+		 * the inverse transform, and we don't apply the transform to the result, since it is needed only
+		 * when the process is asked.
 		 * The drift and the diffusion of the process are random variables. We don't need to store them in an array:
 		 * they will be uploaded every time.
 		 */
-		RandomVariable processDrift;
-		RandomVariable processDiffusion;
+		RandomVariable processDrift = getDrift(lastSimulation, timeIndex);
+		RandomVariable processDiffusion = getDiffusion(lastSimulation, timeIndex);
+		return lastSimulation.add(processDrift).add(processDiffusion);
+	}
 
-		paths = new RandomVariable[numberOfTimes];// one random variable every time
+	/**
+	 * It simulates the process without storing its paths, and returns its realizations only at the given time indices.
+	 * The process is rolled forward in time keeping only its last realization, so that the memory needed for the
+	 * process is of order numberOfSimulations, whatever the number of times. The simulation stops at the biggest
+	 * of the given time indices.
+	 * The memory is of order numberOfSimulations only if the increments of the Brownian motion are generated on
+	 * demand. For this reason, if the object is constructed from a seed and the class implements
+	 * FusedDiscretizationScheme, the process is driven here by a BrownianMotionFromCounterBasedRandomNumbers with the
+	 * same seed (with antithetic variates and moment matching, if they are set), and not by the
+	 * BrownianMotionFromMersenneRandomNumbers returned by getStochasticDriver(), which keeps all its
+	 * numberOfTimes * numberOfSimulations increments: for example, about 8 GB for 1000 times and 1000000 simulations.
+	 * In this case, the realizations are not the ones returned by getProcessAtGivenTimeIndex. Otherwise, the process is
+	 * driven by its stochastic driver (or by the Brownian motions of the blocks, see setParallelGeneration) and, if the
+	 * paths have already been simulated up to the given time indices, they are not simulated again.
+	 *
+	 * @param snapshotTimeIndices, the indices of the times at which we want the realizations of the process
+	 * @return an array whose i-th entry is the random variable with the realizations of the process at
+	 *         snapshotTimeIndices[i]
+	 */
+	public RandomVariable[] getProcessAtGivenTimeIndicesWithoutStoringPaths(int... snapshotTimeIndices) {
+		boolean[] isTimeIndexToBeStored = new boolean[times.getNumberOfTimes()];
+		for (int snapshotTimeIndex : snapshotTimeIndices) {
+			if (snapshotTimeIndex < 0 || snapshotTimeIndex >= times.getNumberOfTimes()) {
+				throw new IllegalArgumentException("Error: the time index " + snapshotTimeIndex + " is not in the time discretization!");
+			}
+			isTimeIndexToBeStored[snapshotTimeIndex] = true;
+		}
 
-		paths[0] = new RandomVariableFromDoubleArray(times.getTime(0), initialValue);
+		BrownianMotion streamingDriver = getStochasticDriverWithIncrementsOnDemand();
+		RandomVariable[] snapshots = new RandomVariable[snapshotTimeIndices.length];
+		if (streamingDriver == null
+				&& Arrays.stream(snapshotTimeIndices).allMatch(snapshotTimeIndex -> snapshotTimeIndex <= lastSimulatedTimeIndex)) {
+			for (int i = 0; i < snapshotTimeIndices.length; i++) {
+				snapshots[i] = getProcessAtGivenTimeIndex(snapshotTimeIndices[i]);
+			}
+			return snapshots;
+		}
 
-		for (int timeIndex = 1; timeIndex < times.getNumberOfTimes(); timeIndex++) {
-			/*
-			 * For every time step, we compute drift and diffusion of the process, as
-			 * RandomVariable objects, and we add them to the previous value of the process.
-			 * Note that, calling f the transform we apply to get the value process back and
-			 * F = f^{-1} the function that we actually simulate, we have that 
-			 * F(X_{t_k}) = F(X_{t_{k-1}})+drift(F(X_{t_{k-1}),t_{k-1})+diffusion(F(X_{t_{k-1}),t_{k-1})
-			 * and X_{t_k}= f(F{X_{t_k})). So first we apply the inverse transform.
-			 */
-			RandomVariable inverseOfLastSimulation = paths[timeIndex - 1].apply(inverseTransform);
-			processDrift = getDrift(inverseOfLastSimulation, timeIndex);
-			processDiffusion = getDiffusion(inverseOfLastSimulation, timeIndex);
-			RandomVariable simulatedInverseTransform = inverseOfLastSimulation.add(processDrift).add(processDiffusion);
+		// all the entries but the ones of the snapshots are null: they are not kept in memory
+		RandomVariable[] storedRealizations = simulate(isTimeIndexToBeStored, streamingDriver);
+		storedRealizations[0] = new RandomVariableFromDoubleArray(times.getTime(0), initialValue);
+		for (int timeIndex = 1; timeIndex < storedRealizations.length; timeIndex++) {
+			if (storedRealizations[timeIndex] != null) {
+				storedRealizations[timeIndex] = transformBack(storedRealizations[timeIndex]);
+			}
+		}
 
-			// ..and then we transform back
-			paths[timeIndex] = simulatedInverseTransform.apply(transform);
+		// the same time index might be asked more than once
+		for (int i = 0; i < snapshotTimeIndices.length; i++) {
+			snapshots[i] = storedRealizations[snapshotTimeIndices[i]];
+		}
+		return snapshots;
+	}
+
+	/*
+	 * It returns the Brownian motion by which the process is simulated without storing its paths, if it is not the one
+	 * returned by getStochasticDriver(): a BrownianMotionFromCounterBasedRandomNumbers with the seed of the object,
+	 * whose increments are generated on demand, if the object is constructed from a seed and the paths are driven by
+	 * the stochastic driver. It returns null otherwise.
+	 */
+	private BrownianMotion getStochasticDriverWithIncrementsOnDemand() {
+		if (isStochasticDriverGiven || !isDrivenByStochasticDriver() || !(this instanceof FusedDiscretizationScheme)) {
+			return null;
 		}
+		return getStochasticDriverFromIndependentIncrements(new BrownianMotionFromCounterBasedRandomNumbers(times, 1,
+				getNumberOfIndependentSimulations(), seed));
+	}
+
+	/**
+	 * It returns the final value of the process, simulated without storing its paths. As for
+	 * getProcessAtGivenTimeIndicesWithoutStoringPaths, if the object is constructed from a seed the process is driven
+	 * by a BrownianMotionFromCounterBasedRandomNumbers with the same seed, so that the memory is of order
+	 * numberOfSimulations.
+	 *
+	 * @return random variable holding the realizations of the process at the final time
+	 */
+	public RandomVariable getFinalValueWithoutStoringPaths() {
+		return getProcessAtGivenTimeIndicesWithoutStoringPaths(times.getNumberOfTimes() - 1)[0];
 	}
 
 	// getters
 
 	/**
 	 * It returns the vector of random variables with the realizations of the process.
-	 * It generates the process only if this has not already done.
+	 * It generates the process only if this has not already done. Note that if the paths are kept in a PathStorage,
+	 * all the time slices are given by its method getRealizationsAtTimeIndex, which might copy them.
 	 *
 	 * @return paths, vector of random variables with the realizations of the
 	 *         process.
 	 */
 	public RandomVariable[] getPaths() {
-		if (paths == null) {
-			generate();
-		}
 		/*
-		 * NOTE: here we have to return a clone of our array object. If we return the
-		 * object itself, it might be accessed and modified from the outside. For
-		 * example, modifying the k-th element.
+		 * NOTE: here we have to return a new array. If we return the array where we keep the paths, it might be
+		 * accessed and modified from the outside. For example, modifying the k-th element.
 		 */
-		return paths.clone();
+		RandomVariable[] pathsToReturn = new RandomVariable[times.getNumberOfTimes()];
+		// the process is simulated up to the last time at once, and not extended by one time step at every index
+		simulateUpTo(times.getNumberOfTimes() - 1);
+		for (int timeIndex = 0; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+			pathsToReturn[timeIndex] = getProcessAtGivenTimeIndex(timeIndex);
+		}
+		return pathsToReturn;
 	}
 
 	
 	/**
 	 * It returns a random variable with the realizations of the process at a give
-	 * time index. It generates the process only if this has not already done.
+	 * time index. It simulates the process up to the given time index only if this has not already done:
+	 * the later time indices are simulated only when they are asked.
+	 * The transform is applied to the simulated realizations at the given time index
+	 * only the first time they are asked.
 	 *
 	 * @param timeInstant, index of the time considered
 	 * @return paths, vector of random variables with the realizations of the
 	 *         process.
 	 */
 	public RandomVariable getProcessAtGivenTimeIndex(int timeIndex) {
-		if (paths == null) {
-			generate();
+		simulateUpTo(timeIndex);
+		if (pathStorage != null) {
+			if (timeIndex == 0) {
+				return new RandomVariableFromDoubleArray(times.getTime(0), initialValue);
+			}
+			return pathStorage.getRealizationsAtTimeIndex(timeIndex, times.getTime(timeIndex));
 		}
-		return paths[timeIndex];
+		RandomVariable realizations = paths.get(timeIndex);
+		if (realizations == null) {
+			RandomVariable simulatedRealizations = simulatedPaths.get(timeIndex);
+			// if it is null, another thread has already set the entry of paths
+			if (simulatedRealizations != null) {
+				paths.compareAndSet(timeIndex, null, transformBack(simulatedRealizations));
+				// the realizations of F(X) are not needed anymore: the simulation keeps its own last realizations
+				simulatedPaths.set(timeIndex, null);
+			}
+			realizations = paths.get(timeIndex);
+		}
+		return realizations;
 	}
 
 	/**
@@ -159,21 +894,51 @@ public abstract class AbstractProcessSimulation {
 
 	/**
 	 * It returns a vector of doubles representing a path of the process for a given simulation.
+	 * If the paths are kept in a PathMajorPathStorage, this is a sequential read of the path.
 	 *
 	 * @param pathNumber, index of the simulation we consider
 	 * @return the path of the process for the given simulation index
 	 */
 	public double[] getPathForGivenSimulation(int pathNumber) {
-		RandomVariable[] pathAsRandomVariables = getPaths();
-		int numberOfTimes = times.getNumberOfTimes();
-		double samplePath[] = new double[numberOfTimes];
-		for (int timeIndex = 0; timeIndex < numberOfTimes; timeIndex++) {
-			RandomVariable realizationsAtTimeIndex = pathAsRandomVariables[timeIndex];
-			samplePath[timeIndex] = realizationsAtTimeIndex.get(pathNumber);
-		}
+		double samplePath[] = new double[times.getNumberOfTimes()];
+		getPathForGivenSimulation(pathNumber, samplePath);
 		return samplePath;
 	}
 
+	/*
+	 * It writes the path of the process for the given simulation in samplePath, without copying the array of paths.
+	 */
+	private void getPathForGivenSimulation(int pathNumber, double[] samplePath) {
+		simulateUpTo(times.getNumberOfTimes() - 1);
+		if (pathStorage != null) {
+			pathStorage.getPath(pathNumber, samplePath);
+			return;
+		}
+		for (int timeIndex = 0; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+			samplePath[timeIndex] = getProcessAtGivenTimeIndex(timeIndex).get(pathNumber);
+		}
+	}
+
+	/**
+	 * It returns the realizations of a functional of the paths of the process, computed path by path: for example, a
+	 * path dependent payoff. The functional is applied to an array with the path of every simulation: the same array
+	 * is used for all the simulations, so the functional must not keep it. If the paths are kept in a
+	 * PathMajorPathStorage, every path is read sequentially from memory.
+	 *
+	 * @param functional, the functional, which gets the path as an array of doubles whose k-th entry is the value of the
+	 *                    process at the time index k
+	 * @return the realizations of the functional, at the final time
+	 */
+	public RandomVariable getRealizationsOfPathFunctional(ToDoubleFunction<double[]> functional) {
+		double[] samplePath = new double[times.getNumberOfTimes()];
+		double[] realizations = new double[numberOfSimulations];
+		for (int pathNumber = 0; pathNumber < numberOfSimulations; pathNumber++) {
+			getPathForGivenSimulation(pathNumber, samplePath);
+			realizations[pathNumber] = functional.applyAsDouble(samplePath);
+		}
+		return new RandomVariableFromDoubleArray(times.getTime(times.getNumberOfTimes() - 1), realizations);
+	}
+
 	/**
 	 * It prints a vector of doubles representing a path of the process for a given
 	 * simulation.
@@ -206,7 +971,8 @@ public abstract class AbstractProcessSimulation {
 	}
 
 	/**
-	 * It returns the seed by which the Brownian motion is generated
+	 * It returns the seed by which the Brownian motion is generated. It is 0 if the Brownian motion is given in the
+	 * constructor.
 	 *
 	 * @return the seed by which the Brownian motion is generated
 	 */
@@ -220,6 +986,14 @@ public abstract class AbstractProcessSimulation {
 	 * @return the Brownian motion driving the process, as a BrownianMotion object
 	 */
 	public BrownianMotion getStochasticDriver() {
+		/*
+		 * One-dimensional Brownian motion, taken from the Finmath library. Note that it has a method
+		 * getIncrement(int timeIndex, int factor) that must be called in the generation of the
+		 * diffusion in the derived classes. It is constructed only when it is needed for the first time.
+		 */
+		if (brownianMotion == null) {
+			constructStochasticDriver();
+		}
 		/*
 		 * This is fine since we know that the implementation of the class implementing
 		 * BrownianMotion that we use here is immutable, see BrownianMotionFromMersenneRandomNumbers:
@@ -229,6 +1003,38 @@ public abstract class AbstractProcessSimulation {
 		return brownianMotion;
 	}
 
+	/*
+	 * It constructs the Brownian motion from the seed. It is synchronized, so that if many threads ask for the Brownian
+	 * motion at the same time it is constructed only once.
+	 */
+	private synchronized void constructStochasticDriver() {
+		if (brownianMotion == null) {
+			brownianMotion = getStochasticDriverFromIndependentIncrements(new BrownianMotionFromMersenneRandomNumbers(
+					times, 1, getNumberOfIndependentSimulations(), seed));
+		}
+	}
+
+	// the number of simulations of the Brownian motion constructed from the seed, before antithetic variates
+	private int getNumberOfIndependentSimulations() {
+		return useAntitheticVariates ? numberOfSimulations / 2 : numberOfSimulations;
+	}
+
+	/*
+	 * It returns the Brownian motion driving the process if it is constructed from the seed, given the one with
+	 * getNumberOfIndependentSimulations() independent simulations: antithetic variates and moment matching are applied
+	 * to it, if they are set.
+	 */
+	private BrownianMotion getStochasticDriverFromIndependentIncrements(BrownianMotion independentIncrements) {
+		BrownianMotion stochasticDriver = independentIncrements;
+		if (useAntitheticVariates) {
+			stochasticDriver = new AntitheticBrownianMotion(stochasticDriver);
+		}
+		if (useMomentMatching) {
+			stochasticDriver = new MomentMatchedBrownianMotion(stochasticDriver);
+		}
+		return stochasticDriver;
+	}
+
 	/**
 	 * It returns the time discretization of the process
 	 *
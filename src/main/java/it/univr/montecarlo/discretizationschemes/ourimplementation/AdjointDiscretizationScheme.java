@@ -0,0 +1,63 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+/**
+ * This interface is implemented by the classes extending AbstractProcessSimulation whose time steps can be recorded on
+ * an AdjointTape, so that AdjointSensitivities can compute the derivatives of the value of a product with respect to
+ * the initial value, the volatility sigma and the drift mu of the process by adjoint algorithmic differentiation.
+ *
+ * As for FusedDiscretizationScheme, the time steps are done on the simulated process F(X), where F is the inverse
+ * transform of the scheme. The values recorded on the tape must be computed with the same operations as in the
+ * simulation, so that they are the same as the ones of the paths of the process.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface AdjointDiscretizationScheme {
+
+	/**
+	 * It returns the volatility sigma of the process
+	 *
+	 * @return the volatility of the process
+	 */
+	double getSigmaVolatility();
+
+	/**
+	 * It returns the drift mu of the process
+	 *
+	 * @return the drift of the process
+	 */
+	double getMuDrift();
+
+	/**
+	 * It records on the tape F(X_0), where F is the inverse transform of the scheme
+	 *
+	 * @param tape, the tape
+	 * @param initialValueNode, the node of the initial value X_0
+	 * @return the node of F(X_0)
+	 */
+	int recordInverseTransform(AdjointTape tape, int initialValueNode);
+
+	/**
+	 * It records on the tape F(X_{t_k}) as a function of F(X_{t_{k-1}}), sigma and mu, for a single simulation, where
+	 * k = timeIndex
+	 *
+	 * @param tape, the tape
+	 * @param lastSimulatedValueNode, the node of F(X_{t_{k-1}})
+	 * @param brownianIncrement, the realization of the Brownian increment W_{t_k}-W_{t_{k-1}}
+	 * @param timeIndex, the index k of the time t_k
+	 * @param sigmaVolatilityNode, the node of sigma
+	 * @param muDriftNode, the node of mu
+	 * @return the node of F(X_{t_k})
+	 */
+	int recordStep(AdjointTape tape, int lastSimulatedValueNode, double brownianIncrement, int timeIndex,
+			int sigmaVolatilityNode, int muDriftNode);
+
+	/**
+	 * It records on the tape X_{t_k} as a function of F(X_{t_k}), i.e., the transform of the scheme
+	 *
+	 * @param tape, the tape
+	 * @param simulatedValueNode, the node of F(X_{t_k})
+	 * @return the node of X_{t_k}
+	 */
+	int recordTransform(AdjointTape tape, int simulatedValueNode);
+}
@@ -0,0 +1,209 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import it.univr.montecarlo.estimators.MonteCarloEstimate;
+import it.univr.montecarlo.estimators.RunningStatistics;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionWithSinglePathAccess;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class computes the value of a product, given as a DifferentiablePathFunctional of the paths of a process
+ * simulated by a class extending AbstractProcessSimulation and implementing AdjointDiscretizationScheme and
+ * FusedDiscretizationScheme, together with its derivatives with respect to the initial value, the volatility sigma and
+ * the drift mu of the process, by adjoint algorithmic differentiation.
+ *
+ * For every simulation, the time steps of the scheme are recorded on an AdjointTape, the derivatives of the product
+ * with respect to the values of the path are given by the functional, and a single backward pass through the tape
+ * gives the derivatives with respect to all the parameters. The cost of the backward pass is a small multiple of the
+ * one of the simulation, and does not depend on the number of parameters.
+ *
+ * In order to bound the memory used by the tape, the time steps are split into intervals of
+ * numberOfTimeStepsPerCheckpoint steps. In a first pass, the path is simulated by the method evolve of the scheme,
+ * without the tape, and only F(X) at the beginning of every interval (the checkpoints) is kept, where F is the inverse
+ * transform of the scheme. The intervals are then considered from the last to the first: the time steps of every
+ * interval are simulated again from its checkpoint and recorded on the tape, and the backward pass through them gives
+ * the derivative with respect to F(X) at the checkpoint, which is passed to the previous interval. In this way, the
+ * tape never contains more than the steps of an interval, and every time step is simulated twice, but recorded once.
+ *
+ * The paths are simulated from the Brownian motion returned by getStochasticDriver() of the process, so they are the
+ * same as the ones given by the process, but they are not stored. For this reason, the process cannot be generated in
+ * parallel by blocks with their own Brownian motions (see setParallelGeneration of AbstractProcessSimulation), whose
+ * paths are not driven by that Brownian motion. If the Brownian motion gives access to the increments of single
+ * simulations, as BrownianMotionFromCounterBasedRandomNumbers, only the increments of the simulation which is
+ * considered are computed, so that the memory does not depend on the number of simulations times the number of time
+ * steps. Otherwise, the increments of all the simulations are taken from the Brownian motion, which stores them.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class AdjointSensitivities {
+
+	private final AbstractProcessSimulation process;
+	private final AdjointDiscretizationScheme scheme;
+	private final FusedDiscretizationScheme fusedScheme;
+	private final int numberOfTimeStepsPerCheckpoint;
+
+	/**
+	 * It constructs an object computing the sensitivities with respect to the parameters of the given process
+	 *
+	 * @param process, the process, which has to extend AbstractProcessSimulation and implement
+	 *                 AdjointDiscretizationScheme and FusedDiscretizationScheme
+	 * @param numberOfTimeStepsPerCheckpoint, the number of time steps between two checkpoints: the tape contains at
+	 *                                        most this number of time steps
+	 */
+	public <S extends AbstractProcessSimulation & AdjointDiscretizationScheme & FusedDiscretizationScheme> AdjointSensitivities(
+			S process, int numberOfTimeStepsPerCheckpoint) {
+		if (numberOfTimeStepsPerCheckpoint <= 0) {
+			throw new IllegalArgumentException("Error: the number of time steps per checkpoint must be positive!");
+		}
+		this.process = process;
+		this.scheme = process;
+		this.fusedScheme = process;
+		this.numberOfTimeStepsPerCheckpoint = numberOfTimeStepsPerCheckpoint;
+	}
+
+	/**
+	 * It constructs an object computing the sensitivities with respect to the parameters of the given process, with a
+	 * single checkpoint: all the time steps of a path are recorded on the tape
+	 *
+	 * @param process, the process, which has to extend AbstractProcessSimulation and implement
+	 *                 AdjointDiscretizationScheme and FusedDiscretizationScheme
+	 */
+	public <S extends AbstractProcessSimulation & AdjointDiscretizationScheme & FusedDiscretizationScheme> AdjointSensitivities(
+			S process) {
+		this(process, Math.max(process.getNumberOfTimes() - 1, 1));
+	}
+
+	/**
+	 * It returns the value of the product and its derivatives with respect to the initial value, sigma and mu, with
+	 * their standard errors.
+	 *
+	 * @param functional, the product, given as a functional of the path together with its derivatives
+	 * @return a map with the estimates of "value", "initialValue", "sigmaVolatility" and "muDrift"
+	 */
+	public Map<String, MonteCarloEstimate> getValueAndSensitivities(DifferentiablePathFunctional functional) {
+		if (!process.isDrivenByStochasticDriver()) {
+			throw new IllegalStateException(
+					"Error: the paths of the process are generated by blocks with their own Brownian motions!");
+		}
+		long startTime = System.currentTimeMillis();
+
+		TimeDiscretization times = process.getTimeDiscretization();
+		int numberOfTimeSteps = times.getNumberOfTimes() - 1;
+		int numberOfSimulations = process.getNumberOfSimulations();
+		int numberOfCheckpoints = (numberOfTimeSteps + numberOfTimeStepsPerCheckpoint - 1) / numberOfTimeStepsPerCheckpoint;
+
+		double initialValue = process.getInitialValue();
+		double sigmaVolatility = scheme.getSigmaVolatility();
+		double muDrift = scheme.getMuDrift();
+
+		BrownianMotion brownianMotion = process.getStochasticDriver();
+		BrownianMotionWithSinglePathAccess brownianMotionWithSinglePathAccess =
+				brownianMotion instanceof BrownianMotionWithSinglePathAccess ? (BrownianMotionWithSinglePathAccess) brownianMotion
+						: null;
+		// the increments of all the simulations, only if they cannot be computed simulation by simulation
+		RandomVariable[] brownianIncrements = null;
+		if (brownianMotionWithSinglePathAccess == null) {
+			brownianIncrements = new RandomVariable[numberOfTimeSteps];
+			for (int timeIndex = 1; timeIndex <= numberOfTimeSteps; timeIndex++) {
+				brownianIncrements[timeIndex - 1] = brownianMotion.getBrownianIncrement(timeIndex - 1, 0);
+			}
+		}
+
+		// three inputs, and at most two nodes (F(X) and X) for every time step of an interval
+		AdjointTape tape = new AdjointTape(4 + 2 * numberOfTimeStepsPerCheckpoint);
+		double[] checkpoints = new double[numberOfCheckpoints];
+		double[] path = new double[numberOfTimeSteps + 1];
+		// the increments of the simulation, read in both passes
+		double[] brownianIncrementsOfPath = new double[numberOfTimeSteps];
+		// F(X) and the Brownian increment of the simulation, given to evolve in the first pass
+		double[] simulatedValue = new double[1];
+		double[] brownianIncrement = new double[1];
+		double[] derivatives = new double[numberOfTimeSteps + 1];
+
+		RunningStatistics valueStatistics = new RunningStatistics();
+		RunningStatistics initialValueStatistics = new RunningStatistics();
+		RunningStatistics sigmaVolatilityStatistics = new RunningStatistics();
+		RunningStatistics muDriftStatistics = new RunningStatistics();
+
+		for (int simulationIndex = 0; simulationIndex < numberOfSimulations; simulationIndex++) {
+
+			for (int timeIndex = 1; timeIndex <= numberOfTimeSteps; timeIndex++) {
+				brownianIncrementsOfPath[timeIndex - 1] = brownianMotionWithSinglePathAccess != null
+						? brownianMotionWithSinglePathAccess.getBrownianIncrement(simulationIndex, timeIndex - 1, 0)
+						: brownianIncrements[timeIndex - 1].get(simulationIndex);
+			}
+
+			// first pass: the path and the checkpoints, simulated by evolve without recording on the tape
+			path[0] = initialValue;
+			simulatedValue[0] = process.inverseTransform.applyAsDouble(initialValue);
+			for (int timeIndex = 1; timeIndex <= numberOfTimeSteps; timeIndex++) {
+				if ((timeIndex - 1) % numberOfTimeStepsPerCheckpoint == 0) {
+					checkpoints[(timeIndex - 1) / numberOfTimeStepsPerCheckpoint] = simulatedValue[0];
+				}
+				brownianIncrement[0] = brownianIncrementsOfPath[timeIndex - 1];
+				fusedScheme.evolve(simulatedValue, brownianIncrement, simulationIndex, 1, timeIndex);
+				path[timeIndex] = process.transform.applyAsDouble(simulatedValue[0]);
+			}
+
+			Arrays.fill(derivatives, 0.0);
+			valueStatistics.add(functional.getValueAndDerivatives(path, derivatives));
+
+			// second pass: the intervals backwards, every one recorded again from its checkpoint
+			double adjointOfCheckpoint = 0.0;
+			double sigmaVolatilityAdjoint = 0.0;
+			double muDriftAdjoint = 0.0;
+			double initialValueAdjoint = 0.0;
+			for (int checkpointIndex = numberOfCheckpoints - 1; checkpointIndex >= 0; checkpointIndex--) {
+				tape.clear();
+				int sigmaVolatilityNode = tape.createInput(sigmaVolatility);
+				int muDriftNode = tape.createInput(muDrift);
+				int initialValueNode = checkpointIndex == 0 ? tape.createInput(initialValue) : -1;
+				int checkpointNode = checkpointIndex == 0 ? scheme.recordInverseTransform(tape, initialValueNode)
+						: tape.createInput(checkpoints[checkpointIndex]);
+				int simulatedValueNode = checkpointNode;
+				int lastTimeIndex = Math.min((checkpointIndex + 1) * numberOfTimeStepsPerCheckpoint, numberOfTimeSteps);
+				for (int timeIndex = checkpointIndex * numberOfTimeStepsPerCheckpoint + 1; timeIndex <= lastTimeIndex; timeIndex++) {
+					simulatedValueNode = scheme.recordStep(tape, simulatedValueNode,
+							brownianIncrementsOfPath[timeIndex - 1], timeIndex, sigmaVolatilityNode, muDriftNode);
+					tape.addToAdjoint(scheme.recordTransform(tape, simulatedValueNode), derivatives[timeIndex]);
+				}
+				// the derivative with respect to F(X) at the end of the interval, computed by the next interval
+				tape.addToAdjoint(simulatedValueNode, adjointOfCheckpoint);
+				if (checkpointIndex == 0) {
+					tape.addToAdjoint(initialValueNode, derivatives[0]);
+				}
+				tape.reverse();
+
+				adjointOfCheckpoint = tape.getAdjoint(checkpointNode);
+				sigmaVolatilityAdjoint += tape.getAdjoint(sigmaVolatilityNode);
+				muDriftAdjoint += tape.getAdjoint(muDriftNode);
+				if (checkpointIndex == 0) {
+					initialValueAdjoint = tape.getAdjoint(initialValueNode);
+				}
+			}
+
+			initialValueStatistics.add(initialValueAdjoint);
+			sigmaVolatilityStatistics.add(sigmaVolatilityAdjoint);
+			muDriftStatistics.add(muDriftAdjoint);
+		}
+
+		long elapsedTimeInMilliseconds = System.currentTimeMillis() - startTime;
+		Map<String, MonteCarloEstimate> valueAndSensitivities = new LinkedHashMap<>();
+		valueAndSensitivities.put("value", getEstimate(valueStatistics, elapsedTimeInMilliseconds));
+		valueAndSensitivities.put("initialValue", getEstimate(initialValueStatistics, elapsedTimeInMilliseconds));
+		valueAndSensitivities.put("sigmaVolatility", getEstimate(sigmaVolatilityStatistics, elapsedTimeInMilliseconds));
+		valueAndSensitivities.put("muDrift", getEstimate(muDriftStatistics, elapsedTimeInMilliseconds));
+		return valueAndSensitivities;
+	}
+
+	private static MonteCarloEstimate getEstimate(RunningStatistics statistics, long elapsedTimeInMilliseconds) {
+		return new MonteCarloEstimate(statistics.getMean(), statistics.getStandardError(),
+				statistics.getNumberOfValues(), elapsedTimeInMilliseconds, true);
+	}
+}
@@ -0,0 +1,213 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.Arrays;
+
+/**
+ * This class implements the tape of adjoint algorithmic differentiation: it records the operations giving a value as
+ * a function of some inputs, and then computes the derivatives of that value with respect to all the inputs by going
+ * through the operations backwards once.
+ *
+ * Every recorded value is a node, identified by an int. For every node, the tape stores its value, the nodes it is
+ * computed from (its arguments) and the partial derivatives of the node with respect to its arguments. Everything is
+ * stored in arrays of primitive types, which grow when needed: arguments and partials of the node i are in the
+ * entries from firstArgumentOfNode[i] to firstArgumentOfNode[i + 1] - 1 of arguments and partials. In this way,
+ * recording an operation does not construct any object.
+ *
+ * Once the derivatives of the output with respect to some nodes have been set by addToAdjoint, the method reverse
+ * computes the adjoint of every node, i.e., the derivative of the output with respect to that node, by the chain rule
+ * adjoint(argument) += adjoint(node) * partial derivative of node with respect to argument, going from the last node
+ * to the first one. The cost does not depend on the number of inputs.
+ *
+ * The method clear empties the tape keeping the arrays, so that the same tape can be used many times without
+ * allocating memory.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class AdjointTape {
+
+	private double[] values;
+	private double[] adjoints;
+	// it has one entry more than the nodes: the arguments of the node i end where the ones of the node i + 1 start
+	private int[] firstArgumentOfNode;
+	private int[] arguments;
+	private double[] partials;
+
+	private int numberOfNodes;
+	private int numberOfArguments;
+
+	/**
+	 * It constructs an empty tape with space for a given number of nodes, which is increased when needed
+	 *
+	 * @param initialNumberOfNodes, the number of nodes which can be recorded before the arrays grow
+	 */
+	public AdjointTape(int initialNumberOfNodes) {
+		int capacity = Math.max(initialNumberOfNodes, 16);
+		values = new double[capacity];
+		adjoints = new double[capacity];
+		firstArgumentOfNode = new int[capacity + 1];
+		arguments = new int[2 * capacity];
+		partials = new double[2 * capacity];
+	}
+
+	/**
+	 * It records an input, i.e., a node which is not computed from other nodes
+	 *
+	 * @param value, the value of the input
+	 * @return the node of the input
+	 */
+	public int createInput(double value) {
+		return createNode(value, 0);
+	}
+
+	/**
+	 * It records a node which is computed from one argument
+	 *
+	 * @param value, the value of the node
+	 * @param argument, the node of the argument
+	 * @param partial, the partial derivative of the node with respect to the argument
+	 * @return the new node
+	 */
+	public int record(double value, int argument, double partial) {
+		int node = createNode(value, 1);
+		addArgument(argument, partial);
+		return node;
+	}
+
+	/**
+	 * It records a node which is computed from two arguments
+	 *
+	 * @param value, the value of the node
+	 * @param firstArgument, the node of the first argument
+	 * @param firstPartial, the partial derivative of the node with respect to the first argument
+	 * @param secondArgument, the node of the second argument
+	 * @param secondPartial, the partial derivative of the node with respect to the second argument
+	 * @return the new node
+	 */
+	public int record(double value, int firstArgument, double firstPartial, int secondArgument, double secondPartial) {
+		int node = createNode(value, 2);
+		addArgument(firstArgument, firstPartial);
+		addArgument(secondArgument, secondPartial);
+		return node;
+	}
+
+	/**
+	 * It records a node which is computed from three arguments
+	 *
+	 * @param value, the value of the node
+	 * @param firstArgument, the node of the first argument
+	 * @param firstPartial, the partial derivative of the node with respect to the first argument
+	 * @param secondArgument, the node of the second argument
+	 * @param secondPartial, the partial derivative of the node with respect to the second argument
+	 * @param thirdArgument, the node of the third argument
+	 * @param thirdPartial, the partial derivative of the node with respect to the third argument
+	 * @return the new node
+	 */
+	public int record(double value, int firstArgument, double firstPartial, int secondArgument, double secondPartial,
+			int thirdArgument, double thirdPartial) {
+		int node = createNode(value, 3);
+		addArgument(firstArgument, firstPartial);
+		addArgument(secondArgument, secondPartial);
+		addArgument(thirdArgument, thirdPartial);
+		return node;
+	}
+
+	/**
+	 * It returns the value of a node
+	 *
+	 * @param node, the node
+	 * @return the value of the node
+	 */
+	public double getValue(int node) {
+		return values[node];
+	}
+
+	/**
+	 * It adds a number to the adjoint of a node, i.e., to the derivative of the output with respect to the node. It is
+	 * used before calling reverse, in order to give the derivatives of the output with respect to the nodes it
+	 * directly depends on
+	 *
+	 * @param node, the node
+	 * @param adjoint, the number to add
+	 */
+	public void addToAdjoint(int node, double adjoint) {
+		adjoints[node] += adjoint;
+	}
+
+	/**
+	 * It returns the adjoint of a node: after reverse is called, this is the derivative of the output with respect to
+	 * the node
+	 *
+	 * @param node, the node
+	 * @return the adjoint of the node
+	 */
+	public double getAdjoint(int node) {
+		return adjoints[node];
+	}
+
+	/**
+	 * It computes the adjoints of all the nodes, going through the nodes backwards
+	 */
+	public void reverse() {
+		for (int node = numberOfNodes - 1; node >= 0; node--) {
+			double adjoint = adjoints[node];
+			if (adjoint == 0.0) {
+				continue;
+			}
+			for (int argumentIndex = firstArgumentOfNode[node]; argumentIndex < firstArgumentOfNode[node + 1]; argumentIndex++) {
+				adjoints[arguments[argumentIndex]] += adjoint * partials[argumentIndex];
+			}
+		}
+	}
+
+	/**
+	 * It removes all the nodes from the tape, keeping the memory allocated
+	 */
+	public void clear() {
+		Arrays.fill(adjoints, 0, numberOfNodes, 0.0);
+		numberOfNodes = 0;
+		numberOfArguments = 0;
+	}
+
+	/**
+	 * It returns the number of nodes recorded
+	 *
+	 * @return the number of nodes recorded
+	 */
+	public int getNumberOfNodes() {
+		return numberOfNodes;
+	}
+
+	/**
+	 * It returns the number of nodes which can be recorded before the arrays grow: this is the memory used by the tape
+	 *
+	 * @return the number of nodes which can be recorded before the arrays grow
+	 */
+	public int getCapacity() {
+		return values.length;
+	}
+
+	private int createNode(double value, int numberOfArgumentsOfNode) {
+		if (numberOfNodes == values.length) {
+			int capacity = 2 * values.length;
+			values = Arrays.copyOf(values, capacity);
+			adjoints = Arrays.copyOf(adjoints, capacity);
+			firstArgumentOfNode = Arrays.copyOf(firstArgumentOfNode, capacity + 1);
+		}
+		if (numberOfArguments + numberOfArgumentsOfNode > arguments.length) {
+			int capacity = 2 * arguments.length;
+			arguments = Arrays.copyOf(arguments, capacity);
+			partials = Arrays.copyOf(partials, capacity);
+		}
+		int node = numberOfNodes++;
+		values[node] = value;
+		firstArgumentOfNode[node + 1] = numberOfArguments + numberOfArgumentsOfNode;
+		return node;
+	}
+
+	private void addArgument(int argument, double partial) {
+		arguments[numberOfArguments] = argument;
+		partials[numberOfArguments] = partial;
+		numberOfArguments++;
+	}
+}
@@ -0,0 +1,25 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+/**
+ * This interface represents a functional of the paths of a process, for example the discounted payoff of a path
+ * dependent product, together with its derivatives with respect to the values of the path. It is used by
+ * AdjointSensitivities in order to compute the derivatives of the value of the product with respect to the parameters
+ * of the process.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+@FunctionalInterface
+public interface DifferentiablePathFunctional {
+
+	/**
+	 * It returns the value of the functional for a path, and writes its derivatives with respect to the values of the
+	 * path. The arrays are used for all the simulations, so the functional must not keep them.
+	 *
+	 * @param path, the path, whose k-th entry is the value of the process at the time index k
+	 * @param derivatives, an array of the same length as path, whose entries are 0: the k-th entry has to be set to the
+	 *                     derivative of the functional with respect to the k-th entry of the path
+	 * @return the value of the functional for the path
+	 */
+	double getValueAndDerivatives(double[] path, double[] derivatives);
+}
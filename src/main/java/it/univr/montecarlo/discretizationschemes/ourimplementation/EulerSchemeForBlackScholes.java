@@ -7,11 +7,15 @@ import net.finmath.time.TimeDiscretization;
 /**
  * This class simulates the trajectories of a geometric Brownian motion (i.e.,
  * Black-Scholes model) by using an Euler scheme. It extends AbstractSimulation
- * by giving the implementation of getDrift and getDiffusion.
+ * by giving the implementation of getDrift and getDiffusion. It also implements
+ * FusedDiscretizationScheme, so that the time steps are computed directly on
+ * arrays of doubles, and AdjointDiscretizationScheme, so that its time steps
+ * can be recorded for adjoint algorithmic differentiation.
  *
  * @author Andrea Mazzon
  */
-public class EulerSchemeForBlackScholes extends AbstractProcessSimulation {
+public class EulerSchemeForBlackScholes extends AbstractProcessSimulation implements FusedDiscretizationScheme,
+		AdjointDiscretizationScheme {
 
 	private double muDrift;// mu
 	private double sigmaVolatility;// sigma
@@ -21,8 +25,26 @@ public class EulerSchemeForBlackScholes extends AbstractProcessSimulation {
 		super(initialValue, numberOfSimulations, seed, times);
 		this.muDrift = muDrift;
 		this.sigmaVolatility = sigmaVolatility;
-		transform = (x -> x);
-		inverseTransform = (x -> x);
+		transform = IDENTITY;
+		inverseTransform = IDENTITY;
+	}
+
+	/**
+	 * It constructs an object which simulates the process driven by a given Brownian motion, for example an object of
+	 * type BrownianMotionFromCounterBasedRandomNumbers. The number of simulations and the time discretization are the
+	 * ones of the Brownian motion.
+	 *
+	 * @param sigmaVolatility, the volatility of the process
+	 * @param muDrift, the drift of the process
+	 * @param initialValue, the initial value of the process
+	 * @param brownianMotion, the one-dimensional Brownian motion driving the process
+	 */
+	public EulerSchemeForBlackScholes(double sigmaVolatility, double muDrift, double initialValue, BrownianMotion brownianMotion) {
+		super(initialValue, brownianMotion);
+		this.muDrift = muDrift;
+		this.sigmaVolatility = sigmaVolatility;
+		transform = IDENTITY;
+		inverseTransform = IDENTITY;
 	}
 
 	/*
@@ -54,4 +76,58 @@ public class EulerSchemeForBlackScholes extends AbstractProcessSimulation {
 		return lastRealization.mult(sigmaVolatility).mult(brownianIncrement);
 	}
 
+	/*
+	 * It computes S_{t_k}=S_{t_{k-1}}+mu*S_{t_{k-1}}*(t_k-t_{k-1})+sigma*S_{t_{k-1}}*(W_{t_k}-W_{t_{k-1}}) for
+	 * every simulation, with the operations in the same order as in getDrift and getDiffusion.
+	 */
+	@Override
+	public void evolve(double[] simulatedProcess, double[] brownianIncrements, int numberOfPaths, int timeIndex) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		for (int i = 0; i < numberOfPaths; i++) {
+			double lastRealization = simulatedProcess[i];
+			double drift = lastRealization * muDrift * timeStep;
+			double diffusion = lastRealization * sigmaVolatility * brownianIncrements[i];
+			simulatedProcess[i] = lastRealization + drift + diffusion;
+		}
+	}
+
+	@Override
+	public double getSigmaVolatility() {
+		return sigmaVolatility;
+	}
+
+	@Override
+	public double getMuDrift() {
+		return muDrift;
+	}
+
+	/*
+	 * It records S_{t_k}=S_{t_{k-1}}+mu*S_{t_{k-1}}*(t_k-t_{k-1})+sigma*S_{t_{k-1}}*(W_{t_k}-W_{t_{k-1}}), with the
+	 * operations in the same order as in evolve, together with its partial derivatives with respect to S_{t_{k-1}},
+	 * sigma and mu.
+	 */
+	@Override
+	public int recordStep(AdjointTape tape, int lastSimulatedValueNode, double brownianIncrement, int timeIndex,
+			int sigmaVolatilityNode, int muDriftNode) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		double lastRealization = tape.getValue(lastSimulatedValueNode);
+		double drift = lastRealization * muDrift * timeStep;
+		double diffusion = lastRealization * sigmaVolatility * brownianIncrement;
+		return tape.record(lastRealization + drift + diffusion,
+				lastSimulatedValueNode, 1 + muDrift * timeStep + sigmaVolatility * brownianIncrement,
+				sigmaVolatilityNode, lastRealization * brownianIncrement,
+				muDriftNode, lastRealization * timeStep);
+	}
+
+	// the scheme simulates the process itself: F(X_0) is X_0
+	@Override
+	public int recordInverseTransform(AdjointTape tape, int initialValueNode) {
+		return initialValueNode;
+	}
+
+	// the scheme simulates the process itself: X_{t_k} is F(X_{t_k})
+	@Override
+	public int recordTransform(AdjointTape tape, int simulatedValueNode) {
+		return simulatedValueNode;
+	}
 }
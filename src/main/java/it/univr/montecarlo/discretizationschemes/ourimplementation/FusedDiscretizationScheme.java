@@ -0,0 +1,65 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+/**
+ * This interface is implemented by the classes extending AbstractProcessSimulation which are able to perform a
+ * time step of the discretization scheme directly on arrays of doubles. In this case, AbstractProcessSimulation
+ * uses the method evolve instead of getDrift and getDiffusion: in this way, a time step is a single loop over the
+ * simulations, without constructing the intermediate RandomVariable objects for the drift, the diffusion and their
+ * sum.
+ *
+ * Note that the method works on the simulated process F(X), where F is the inverse transform of the scheme: for
+ * example, the logarithm of the process for the log Euler scheme.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface FusedDiscretizationScheme {
+
+	/**
+	 * It overwrites simulatedProcess[i] = F(X_{t_{k-1}}(omega_i)) with F(X_{t_k}(omega_i)) for any i from 0 to
+	 * numberOfPaths - 1, where k = timeIndex and F is the inverse transform of the scheme.
+	 *
+	 * @param simulatedProcess, the realizations of F(X_{t_{k-1}}), overwritten with the ones of F(X_{t_k})
+	 * @param brownianIncrements, the realizations of the Brownian increment W_{t_k}-W_{t_{k-1}}
+	 * @param numberOfPaths, the number of entries of the two arrays which have to be considered
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	void evolve(double[] simulatedProcess, double[] brownianIncrements, int numberOfPaths, int timeIndex);
+
+	/**
+	 * It does the same as evolve(simulatedProcess, brownianIncrements, numberOfPaths, timeIndex), knowing that the
+	 * entry i of the arrays refers to the simulation firstPath + i. This is the method called by
+	 * AbstractProcessSimulation, which simulates the paths by blocks: it has to be overridden by the schemes whose time
+	 * step depends on quantities of the single simulations which do not evolve with the process. The ones which evolve,
+	 * as the variance in the Heston model, are handled by FusedDiscretizationSchemeWithStateVariable.
+	 *
+	 * @param simulatedProcess, the realizations of F(X_{t_{k-1}}), overwritten with the ones of F(X_{t_k})
+	 * @param brownianIncrements, the realizations of the Brownian increment W_{t_k}-W_{t_{k-1}}
+	 * @param firstPath, the index of the simulation of the first entry of the arrays
+	 * @param numberOfPaths, the number of entries of the two arrays which have to be considered
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	default void evolve(double[] simulatedProcess, double[] brownianIncrements, int firstPath, int numberOfPaths,
+			int timeIndex) {
+		evolve(simulatedProcess, brownianIncrements, numberOfPaths, timeIndex);
+	}
+
+	/**
+	 * It does the same as evolve(simulatedProcess, brownianIncrements, numberOfPaths, timeIndex), knowing that the
+	 * entry i of the arrays refers to the simulation firstPath + pathIndices[i]. This is the method called by
+	 * AbstractProcessSimulation when knock-out barriers are set, since then only the simulations which are still inside
+	 * the barriers are evolved, and the arrays contain them one after the other. As the method above, it has to be
+	 * overridden by the schemes whose time step depends on other quantities of the single simulations.
+	 *
+	 * @param simulatedProcess, the realizations of F(X_{t_{k-1}}), overwritten with the ones of F(X_{t_k})
+	 * @param brownianIncrements, the realizations of the Brownian increment W_{t_k}-W_{t_{k-1}}
+	 * @param firstPath, the index of the simulation which pathIndices refer to
+	 * @param pathIndices, the entry i refers to the simulation firstPath + pathIndices[i]
+	 * @param numberOfPaths, the number of entries of the arrays which have to be considered
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	default void evolve(double[] simulatedProcess, double[] brownianIncrements, int firstPath, int[] pathIndices,
+			int numberOfPaths, int timeIndex) {
+		evolve(simulatedProcess, brownianIncrements, numberOfPaths, timeIndex);
+	}
+}
@@ -0,0 +1,57 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+/**
+ * This interface is implemented by the classes extending AbstractProcessSimulation whose time step also depends on a
+ * state variable of the single simulations, which is evolved together with the process: for example, the variance in
+ * the Heston model. In this case, AbstractProcessSimulation keeps the realizations of the state variable next to the
+ * ones of the process, block by block, and calls the methods evolve of this interface, which update both in place.
+ * In this way, only the state variable at the current time is kept in memory, as the process.
+ *
+ * The entry i of the arrays of the state variable always refers to the same simulation as the entry i of the arrays of
+ * the process: when knock-out barriers are set, the entries of the simulations which are knocked out are removed from
+ * both.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface FusedDiscretizationSchemeWithStateVariable extends FusedDiscretizationScheme {
+
+	/**
+	 * It returns the initial value of the state variable, which is the same for all the simulations
+	 *
+	 * @return the initial value of the state variable
+	 */
+	double getInitialValueOfStateVariable();
+
+	/**
+	 * It overwrites simulatedProcess[i] = F(X_{t_{k-1}}(omega_i)) with F(X_{t_k}(omega_i)) and stateVariable[i] =
+	 * V_{t_{k-1}}(omega_i) with V_{t_k}(omega_i) for any i from 0 to numberOfPaths - 1, where k = timeIndex, F is the
+	 * inverse transform of the scheme, V is the state variable and the entry i of the arrays refers to the simulation
+	 * firstPath + i.
+	 *
+	 * @param simulatedProcess, the realizations of F(X_{t_{k-1}}), overwritten with the ones of F(X_{t_k})
+	 * @param stateVariable, the realizations of V_{t_{k-1}}, overwritten with the ones of V_{t_k}
+	 * @param brownianIncrements, the realizations of the Brownian increment W_{t_k}-W_{t_{k-1}}
+	 * @param firstPath, the index of the simulation of the first entry of the arrays
+	 * @param numberOfPaths, the number of entries of the arrays which have to be considered
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	void evolve(double[] simulatedProcess, double[] stateVariable, double[] brownianIncrements, int firstPath,
+			int numberOfPaths, int timeIndex);
+
+	/**
+	 * It does the same as the method above, knowing that the entry i of the arrays refers to the simulation
+	 * firstPath + pathIndices[i]. This is the method called by AbstractProcessSimulation when knock-out barriers are
+	 * set.
+	 *
+	 * @param simulatedProcess, the realizations of F(X_{t_{k-1}}), overwritten with the ones of F(X_{t_k})
+	 * @param stateVariable, the realizations of V_{t_{k-1}}, overwritten with the ones of V_{t_k}
+	 * @param brownianIncrements, the realizations of the Brownian increment W_{t_k}-W_{t_{k-1}}
+	 * @param firstPath, the index of the simulation which pathIndices refer to
+	 * @param pathIndices, the entry i refers to the simulation firstPath + pathIndices[i]
+	 * @param numberOfPaths, the number of entries of the arrays which have to be considered
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	void evolve(double[] simulatedProcess, double[] stateVariable, double[] brownianIncrements, int firstPath,
+			int[] pathIndices, int numberOfPaths, int timeIndex);
+}
@@ -0,0 +1,30 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+/**
+ * This interface is implemented by the classes extending AbstractMultiAssetProcessSimulation which are able to perform
+ * a time step of the discretization scheme directly on arrays of doubles, for all the assets. In this case,
+ * AbstractMultiAssetProcessSimulation uses the method evolve instead of getDrift and getDiffusion, and simulates the
+ * paths block by block: only the realizations of the assets for a block of simulations are kept during the
+ * simulation.
+ *
+ * As for FusedDiscretizationScheme, the method works on the simulated processes F(X^j), where F is the inverse
+ * transform of the scheme.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface FusedMultiAssetDiscretizationScheme {
+
+	/**
+	 * It overwrites simulatedProcesses[j][i] = F(X^j_{t_{k-1}}(omega_i)) with F(X^j_{t_k}(omega_i)) for any asset j
+	 * and any i from 0 to numberOfPaths - 1, where k = timeIndex and F is the inverse transform of the scheme.
+	 *
+	 * @param simulatedProcesses, the realizations of F(X^j_{t_{k-1}}) for every asset j, overwritten with the ones of
+	 *                            F(X^j_{t_k})
+	 * @param correlatedBrownianIncrements, correlatedBrownianIncrements[j] contains the realizations of the increment
+	 *                                      of the Brownian motion driving the asset j, correlated with the others
+	 * @param numberOfPaths, the number of entries of the arrays which have to be considered
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	void evolve(double[][] simulatedProcesses, double[][] correlatedBrownianIncrements, int numberOfPaths, int timeIndex);
+}
@@ -0,0 +1,309 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.stream.IntStream;
+
+import it.univr.montecarlo.numbersgeneration.PhiloxCounterBasedGenerator;
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class simulates the trajectories of the Heston model
+ * dS_t = mu S_t dt + sqrt(V_t) S_t dW_t, dV_t = kappa (theta - V_t) dt + xi sqrt(V_t) dZ_t, d<W,Z>_t = rho dt,
+ * by the quadratic-exponential (QE) scheme of Andersen. The variance is simulated by matching the first two moments
+ * of V_{t_k} given V_{t_{k-1}}: with a quadratic function of a normal random variable when the variance is far from 0,
+ * with a mixture of a mass in 0 and an exponential distribution otherwise. The logarithm of the process is then
+ * simulated by the discretization
+ * log(S_{t_k}) = log(S_{t_{k-1}}) + mu dt + K0 + K1 V_{t_{k-1}} + K2 V_{t_k} + sqrt(K3 V_{t_{k-1}} + K4 V_{t_k}) Z,
+ * where Z is a standard normal random variable independent of the variance and the coefficients only depend on the
+ * time step. The martingale correction of the scheme is not applied.
+ *
+ * The variance is a state variable of the scheme (see FusedDiscretizationSchemeWithStateVariable): it is kept by
+ * AbstractProcessSimulation next to the process, block by block, and evolved together with it, so that only its
+ * realizations at the current time are in memory, whatever the way the paths are stored. The uniform random number
+ * driving the variance for a simulation and a time step is given by a PhiloxCounterBasedGenerator and only depends on
+ * their indices: the variance is then the same whatever the order in which the simulations and the time steps are
+ * evolved, and is not simulated for the simulations which are knocked out. The process itself is driven by the
+ * Brownian motion W, as in AbstractProcessSimulation.
+ * All the coefficients depending on the time step are computed in the constructor, so the inner loops only have
+ * multiplications and square roots, and a single branch for the variance.
+ *
+ * @author Andrea Mazzon
+ */
+public class HestonQuadraticExponentialScheme extends AbstractProcessSimulation
+		implements FusedDiscretizationSchemeWithStateVariable {
+
+	// the value of psi = s^2/m^2 which separates the quadratic and the exponential approximation, as suggested by Andersen
+	private static final double CRITICAL_PSI = 1.5;
+
+	private final double initialVariance;
+	// it gives the uniform random numbers driving the variance: it has no state, so it is shared by all the blocks
+	private final PhiloxCounterBasedGenerator varianceGenerator;
+
+	/*
+	 * For the time step from t_{k-1} to t_k, the conditional mean of the variance is m = meanConstants[k-1] +
+	 * meanFactors[k-1] V_{t_{k-1}} and its conditional variance is s^2 = varianceConstants[k-1] + varianceFactors[k-1]
+	 * V_{t_{k-1}}.
+	 */
+	private double[] meanConstants;
+	private double[] meanFactors;
+	private double[] varianceConstants;
+	private double[] varianceFactors;
+
+	// the coefficients of the discretization of the logarithm: driftConstants[k-1] = mu dt + K0
+	private double[] driftConstants;
+	private double[] k1;
+	private double[] k2;
+	private double[] k3;
+	private double[] k4;
+	private double[] inverseSquareRootsOfTimeSteps;
+
+	/**
+	 * It constructs an object which simulates the Heston model, with the process driven by a Brownian motion
+	 * constructed from the given seed.
+	 *
+	 * @param muDrift, the drift of the process
+	 * @param kappa, the speed of mean reversion of the variance
+	 * @param theta, the long term mean of the variance
+	 * @param xi, the volatility of the variance
+	 * @param rho, the correlation between the Brownian motions driving the process and the variance
+	 * @param initialValue, the initial value of the process
+	 * @param initialVariance, the initial value of the variance
+	 * @param numberOfSimulations, the number of simulations
+	 * @param seed, the seed of the Brownian motion driving the process. The one of the variance is derived from it
+	 * @param times, the time discretization
+	 */
+	public HestonQuadraticExponentialScheme(double muDrift, double kappa, double theta, double xi, double rho,
+			double initialValue, double initialVariance, int numberOfSimulations, int seed, TimeDiscretization times) {
+		super(initialValue, numberOfSimulations, seed, times);
+		this.initialVariance = initialVariance;
+		// any other integer would do: what matters is that the variance is driven by a different stream
+		this.varianceGenerator = new PhiloxCounterBasedGenerator(~seed);
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+
+		computeCoefficients(muDrift, kappa, theta, xi, rho);
+	}
+
+	/**
+	 * It constructs an object which simulates the Heston model, with the process driven by a given Brownian motion, for
+	 * example an object of type BrownianMotionFromCounterBasedRandomNumbers. The number of simulations and the time
+	 * discretization are the ones of the Brownian motion.
+	 *
+	 * @param muDrift, the drift of the process
+	 * @param kappa, the speed of mean reversion of the variance
+	 * @param theta, the long term mean of the variance
+	 * @param xi, the volatility of the variance
+	 * @param rho, the correlation between the Brownian motions driving the process and the variance
+	 * @param initialValue, the initial value of the process
+	 * @param initialVariance, the initial value of the variance
+	 * @param brownianMotion, the one-dimensional Brownian motion driving the process
+	 * @param varianceSeed, the seed of the random numbers driving the variance
+	 */
+	public HestonQuadraticExponentialScheme(double muDrift, double kappa, double theta, double xi, double rho,
+			double initialValue, double initialVariance, BrownianMotion brownianMotion, int varianceSeed) {
+		super(initialValue, brownianMotion);
+		this.initialVariance = initialVariance;
+		this.varianceGenerator = new PhiloxCounterBasedGenerator(varianceSeed);
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+
+		computeCoefficients(muDrift, kappa, theta, xi, rho);
+	}
+
+	/*
+	 * It computes the coefficients of all the time steps. For the logarithm of the process we use gamma1 = gamma2 = 1/2,
+	 * i.e., the trapezoidal rule for the integral of the variance.
+	 */
+	private void computeCoefficients(double muDrift, double kappa, double theta, double xi, double rho) {
+		if (kappa <= 0 || theta <= 0 || xi <= 0) {
+			throw new IllegalArgumentException("Error: kappa, theta and xi must be positive!");
+		}
+		if (Math.abs(rho) > 1) {
+			throw new IllegalArgumentException("Error: the correlation must be between -1 and 1!");
+		}
+		TimeDiscretization times = getTimeDiscretization();
+		int numberOfTimeSteps = times.getNumberOfTimeSteps();
+		meanConstants = new double[numberOfTimeSteps];
+		meanFactors = new double[numberOfTimeSteps];
+		varianceConstants = new double[numberOfTimeSteps];
+		varianceFactors = new double[numberOfTimeSteps];
+		driftConstants = new double[numberOfTimeSteps];
+		k1 = new double[numberOfTimeSteps];
+		k2 = new double[numberOfTimeSteps];
+		k3 = new double[numberOfTimeSteps];
+		k4 = new double[numberOfTimeSteps];
+		inverseSquareRootsOfTimeSteps = new double[numberOfTimeSteps];
+		for (int timeIndex = 0; timeIndex < numberOfTimeSteps; timeIndex++) {
+			double timeStep = times.getTimeStep(timeIndex);
+			double exponential = Math.exp(-kappa * timeStep);
+
+			meanConstants[timeIndex] = theta * (1 - exponential);
+			meanFactors[timeIndex] = exponential;
+			varianceConstants[timeIndex] = theta * xi * xi * (1 - exponential) * (1 - exponential) / (2 * kappa);
+			varianceFactors[timeIndex] = xi * xi * exponential * (1 - exponential) / kappa;
+
+			driftConstants[timeIndex] = muDrift * timeStep - rho * kappa * theta * timeStep / xi;
+			k1[timeIndex] = 0.5 * timeStep * (kappa * rho / xi - 0.5) - rho / xi;
+			k2[timeIndex] = 0.5 * timeStep * (kappa * rho / xi - 0.5) + rho / xi;
+			k3[timeIndex] = 0.5 * timeStep * (1 - rho * rho);
+			k4[timeIndex] = 0.5 * timeStep * (1 - rho * rho);
+			inverseSquareRootsOfTimeSteps[timeIndex] = 1 / Math.sqrt(timeStep);
+		}
+	}
+
+	/*
+	 * It returns V_{t_k}, k = timeIndex, for the simulation with index path, given V_{t_{k-1}} = lastVariance, by the
+	 * QE scheme.
+	 */
+	private double getNextVariance(double lastVariance, int path, int timeIndex) {
+		double mean = meanConstants[timeIndex - 1] + meanFactors[timeIndex - 1] * lastVariance;
+		double squaredDeviation = varianceConstants[timeIndex - 1] + varianceFactors[timeIndex - 1] * lastVariance;
+		double psi = squaredDeviation / (mean * mean);
+		double uniform = varianceGenerator.getUniform(path, timeIndex);
+		if (psi <= CRITICAL_PSI) {
+			// V = a (b + Z)^2, Z standard normal
+			double twoOverPsi = 2 / psi;
+			double squaredB = twoOverPsi - 1 + Math.sqrt(twoOverPsi * (twoOverPsi - 1));
+			double b = Math.sqrt(squaredB) + NormalDistribution.inverseCumulativeDistribution(uniform);
+			return mean / (1 + squaredB) * b * b;
+		}
+		// V = 0 with probability p, exponential with parameter beta otherwise
+		double p = (psi - 1) / (psi + 1);
+		double beta = (1 - p) / mean;
+		return uniform <= p ? 0.0 : Math.log((1 - p) / (1 - uniform)) / beta;
+	}
+
+	/*
+	 * It returns the variance of all the simulations at the given time index, simulating it from time 0. Only the
+	 * variance at the current time is kept, so the memory is the one of a single time. The simulations are independent,
+	 * so they are simulated in parallel.
+	 */
+	private double[] getVariances(int timeIndex) {
+		double[] variances = new double[getNumberOfSimulations()];
+		int numberOfChunks = (getNumberOfSimulations() + 4095) / 4096;
+		IntStream.range(0, numberOfChunks).parallel().forEach(chunk -> {
+			for (int path = chunk * 4096; path < Math.min(getNumberOfSimulations(), (chunk + 1) * 4096); path++) {
+				double variance = initialVariance;
+				for (int k = 1; k <= timeIndex; k++) {
+					variance = getNextVariance(variance, path, k);
+				}
+				variances[path] = variance;
+			}
+		});
+		return variances;
+	}
+
+	/**
+	 * It returns a random variable with the realizations of the variance at a given time index. The variance is not
+	 * stored: it is simulated again from time 0 at every call, with the same random numbers, so it is the one which
+	 * drives the paths of the process.
+	 *
+	 * @param timeIndex, index of the time considered
+	 * @return a random variable with the realizations of the variance
+	 */
+	public RandomVariable getVarianceAtGivenTimeIndex(int timeIndex) {
+		return new RandomVariableFromDoubleArray(getTimeDiscretization().getTime(timeIndex), getVariances(timeIndex));
+	}
+
+	@Override
+	public double getInitialValueOfStateVariable() {
+		return initialVariance;
+	}
+
+	/*
+	 * It returns mu dt + K0 + K1 V_{t_{k-1}} + K2 V_{t_k}, the drift of the logarithm of the process. The paths are
+	 * generated by evolve: this method simulates the variance again from time 0 at every call.
+	 */
+	@Override
+	protected RandomVariable getDrift(RandomVariable lastRealization, int timeIndex) {
+		double time = getTimeDiscretization().getTime(timeIndex);
+		double[] lastVariances = getVariances(timeIndex - 1);
+		RandomVariable lastVariance = new RandomVariableFromDoubleArray(time, lastVariances);
+		RandomVariable variance = new RandomVariableFromDoubleArray(time, getNextVariances(lastVariances, timeIndex));
+		return lastVariance.mult(k1[timeIndex - 1]).add(variance.mult(k2[timeIndex - 1])).add(driftConstants[timeIndex - 1]);
+	}
+
+	/*
+	 * It returns sqrt(K3 V_{t_{k-1}} + K4 V_{t_k}) Z, with Z = (W_{t_k}-W_{t_{k-1}})/sqrt(dt). As getDrift, it simulates
+	 * the variance again from time 0.
+	 */
+	@Override
+	protected RandomVariable getDiffusion(RandomVariable lastRealization, int timeIndex) {
+		double time = getTimeDiscretization().getTime(timeIndex);
+		double[] lastVariances = getVariances(timeIndex - 1);
+		RandomVariable lastVariance = new RandomVariableFromDoubleArray(time, lastVariances);
+		RandomVariable variance = new RandomVariableFromDoubleArray(time, getNextVariances(lastVariances, timeIndex));
+		RandomVariable brownianIncrement = getStochasticDriver().getBrownianIncrement(timeIndex - 1, 0);
+		return lastVariance.mult(k3[timeIndex - 1]).add(variance.mult(k4[timeIndex - 1])).sqrt()
+				.mult(brownianIncrement.mult(inverseSquareRootsOfTimeSteps[timeIndex - 1]));
+	}
+
+	// it returns the variance of all the simulations at the given time index, given the one at the previous time index
+	private double[] getNextVariances(double[] lastVariances, int timeIndex) {
+		double[] variances = new double[lastVariances.length];
+		for (int path = 0; path < lastVariances.length; path++) {
+			variances[path] = getNextVariance(lastVariances[path], path, timeIndex);
+		}
+		return variances;
+	}
+
+	/*
+	 * The time step of the process needs the variance, which is not given here: the paths are generated by the methods
+	 * evolve below, which AbstractProcessSimulation calls for the schemes with a state variable.
+	 */
+	@Override
+	public void evolve(double[] simulatedProcess, double[] brownianIncrements, int numberOfPaths, int timeIndex) {
+		throw new UnsupportedOperationException("Error: the time step of the Heston model needs the variance!");
+	}
+
+	/*
+	 * It computes the QE step of the variance and of the logarithm of the process for the simulations from firstPath
+	 * to firstPath + numberOfPaths - 1.
+	 */
+	@Override
+	public void evolve(double[] simulatedProcess, double[] stateVariable, double[] brownianIncrements, int firstPath,
+			int numberOfPaths, int timeIndex) {
+		double driftConstant = driftConstants[timeIndex - 1];
+		double coefficientOfLastVariance = k1[timeIndex - 1];
+		double coefficientOfVariance = k2[timeIndex - 1];
+		double diffusionCoefficientOfLastVariance = k3[timeIndex - 1];
+		double diffusionCoefficientOfVariance = k4[timeIndex - 1];
+		double inverseSquareRootOfTimeStep = inverseSquareRootsOfTimeSteps[timeIndex - 1];
+		for (int i = 0; i < numberOfPaths; i++) {
+			double lastVariance = stateVariable[i];
+			double variance = getNextVariance(lastVariance, firstPath + i, timeIndex);
+			stateVariable[i] = variance;
+			simulatedProcess[i] = simulatedProcess[i] + driftConstant + coefficientOfLastVariance * lastVariance
+					+ coefficientOfVariance * variance
+					+ Math.sqrt(diffusionCoefficientOfLastVariance * lastVariance + diffusionCoefficientOfVariance * variance)
+							* brownianIncrements[i] * inverseSquareRootOfTimeStep;
+		}
+	}
+
+	/*
+	 * The same as above, for the simulations firstPath + pathIndices[i]: this is used when only the simulations inside
+	 * knock-out barriers are evolved.
+	 */
+	@Override
+	public void evolve(double[] simulatedProcess, double[] stateVariable, double[] brownianIncrements, int firstPath,
+			int[] pathIndices, int numberOfPaths, int timeIndex) {
+		double driftConstant = driftConstants[timeIndex - 1];
+		double coefficientOfLastVariance = k1[timeIndex - 1];
+		double coefficientOfVariance = k2[timeIndex - 1];
+		double diffusionCoefficientOfLastVariance = k3[timeIndex - 1];
+		double diffusionCoefficientOfVariance = k4[timeIndex - 1];
+		double inverseSquareRootOfTimeStep = inverseSquareRootsOfTimeSteps[timeIndex - 1];
+		for (int i = 0; i < numberOfPaths; i++) {
+			double lastVariance = stateVariable[i];
+			double variance = getNextVariance(lastVariance, firstPath + pathIndices[i], timeIndex);
+			stateVariable[i] = variance;
+			simulatedProcess[i] = simulatedProcess[i] + driftConstant + coefficientOfLastVariance * lastVariance
+					+ coefficientOfVariance * variance
+					+ Math.sqrt(diffusionCoefficientOfLastVariance * lastVariance + diffusionCoefficientOfVariance * variance)
+							* brownianIncrements[i] * inverseSquareRootOfTimeStep;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.function.DoubleBinaryOperator;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class simulates the trajectories of a local volatility model dS_t = mu S_t dt + sigma(t,S_t) S_t dW_t by using
+ * a log Euler scheme: log(S_{t_k}) = log(S_{t_{k-1}}) + (mu - sigma^2/2) dt + sigma dW, with
+ * sigma = sigma(t_{k-1},S_{t_{k-1}}).
+ *
+ * The local volatility surface is not evaluated during the simulation: it is tabulated in the constructor, at the
+ * times of the time discretization and at numberOfSpotPoints values of the process whose logarithms are equally
+ * spaced between log(minimumSpot) and log(maximumSpot). The volatility of a simulation is then linearly interpolated
+ * in the logarithm of the process, which is the simulated quantity, and it is constant outside of the grid. In this
+ * way a time step only needs an index computation, two reads and some multiplications for every simulation.
+ *
+ * @author Andrea Mazzon
+ */
+public class LocalVolatilityLogEulerScheme extends AbstractProcessSimulation implements FusedDiscretizationScheme {
+
+	private final double muDrift;
+
+	// localVolatilities[k][j] = sigma(t_k, exp(minimumLogSpot + j * logSpotStep)), for k up to the penultimate time
+	private final double[][] localVolatilities;
+	private final double minimumLogSpot;
+	private final double inverseOfLogSpotStep;
+
+	/**
+	 * It constructs an object which simulates the local volatility model, driven by a Brownian motion constructed from
+	 * the given seed.
+	 *
+	 * @param localVolatility, the function (t,S) -> sigma(t,S). It is only evaluated in the constructor
+	 * @param minimumSpot, the smallest value of the process of the grid where the volatility is tabulated
+	 * @param maximumSpot, the biggest value of the process of the grid where the volatility is tabulated
+	 * @param numberOfSpotPoints, the number of values of the process of the grid, at least 2
+	 * @param muDrift, the drift of the process
+	 * @param initialValue, the initial value of the process
+	 * @param numberOfSimulations, the number of simulations
+	 * @param seed, the seed of the Brownian motion
+	 * @param times, the time discretization
+	 */
+	public LocalVolatilityLogEulerScheme(DoubleBinaryOperator localVolatility, double minimumSpot, double maximumSpot,
+			int numberOfSpotPoints, double muDrift, double initialValue, int numberOfSimulations, int seed,
+			TimeDiscretization times) {
+		super(initialValue, numberOfSimulations, seed, times);
+		this.muDrift = muDrift;
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+		checkGrid(minimumSpot, maximumSpot, numberOfSpotPoints);
+		minimumLogSpot = Math.log(minimumSpot);
+		inverseOfLogSpotStep = (numberOfSpotPoints - 1) / (Math.log(maximumSpot) - minimumLogSpot);
+		localVolatilities = tabulate(localVolatility, numberOfSpotPoints);
+	}
+
+	/**
+	 * It constructs an object which simulates the local volatility model, driven by a given Brownian motion. The number
+	 * of simulations and the time discretization are the ones of the Brownian motion.
+	 *
+	 * @param localVolatility, the function (t,S) -> sigma(t,S). It is only evaluated in the constructor
+	 * @param minimumSpot, the smallest value of the process of the grid where the volatility is tabulated
+	 * @param maximumSpot, the biggest value of the process of the grid where the volatility is tabulated
+	 * @param numberOfSpotPoints, the number of values of the process of the grid, at least 2
+	 * @param muDrift, the drift of the process
+	 * @param initialValue, the initial value of the process
+	 * @param brownianMotion, the one-dimensional Brownian motion driving the process
+	 */
+	public LocalVolatilityLogEulerScheme(DoubleBinaryOperator localVolatility, double minimumSpot, double maximumSpot,
+			int numberOfSpotPoints, double muDrift, double initialValue, BrownianMotion brownianMotion) {
+		super(initialValue, brownianMotion);
+		this.muDrift = muDrift;
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+		checkGrid(minimumSpot, maximumSpot, numberOfSpotPoints);
+		minimumLogSpot = Math.log(minimumSpot);
+		inverseOfLogSpotStep = (numberOfSpotPoints - 1) / (Math.log(maximumSpot) - minimumLogSpot);
+		localVolatilities = tabulate(localVolatility, numberOfSpotPoints);
+	}
+
+	private static void checkGrid(double minimumSpot, double maximumSpot, int numberOfSpotPoints) {
+		if (minimumSpot <= 0 || maximumSpot <= minimumSpot || numberOfSpotPoints < 2) {
+			throw new IllegalArgumentException("Error: the grid of the values of the process is not valid!");
+		}
+	}
+
+	// the volatility is needed at the beginning of every time step, so not at the last time
+	private double[][] tabulate(DoubleBinaryOperator localVolatility, int numberOfSpotPoints) {
+		TimeDiscretization times = getTimeDiscretization();
+		double[][] table = new double[times.getNumberOfTimeSteps()][numberOfSpotPoints];
+		for (int timeIndex = 0; timeIndex < table.length; timeIndex++) {
+			for (int spotIndex = 0; spotIndex < numberOfSpotPoints; spotIndex++) {
+				double spot = Math.exp(minimumLogSpot + spotIndex / inverseOfLogSpotStep);
+				table[timeIndex][spotIndex] = localVolatility.applyAsDouble(times.getTime(timeIndex), spot);
+			}
+		}
+		return table;
+	}
+
+	/*
+	 * It returns the volatility given by the row of the table for the logarithm of the process, linearly interpolated.
+	 * The position in the grid is capped, so that the volatility is constant outside of it.
+	 */
+	private double getLocalVolatility(double[] volatilitiesAtTime, double logSpot) {
+		double position = Math.min(Math.max((logSpot - minimumLogSpot) * inverseOfLogSpotStep, 0.0),
+				volatilitiesAtTime.length - 1);
+		int spotIndex = Math.min((int) position, volatilitiesAtTime.length - 2);
+		double weight = position - spotIndex;
+		return volatilitiesAtTime[spotIndex] + weight * (volatilitiesAtTime[spotIndex + 1] - volatilitiesAtTime[spotIndex]);
+	}
+
+	/*
+	 * It returns (mu - sigma^2/2)*(t_k-t_{k-1}), with sigma = sigma(t_{k-1},S_{t_{k-1}}). Here lastRealization is the
+	 * logarithm of the process.
+	 */
+	@Override
+	protected RandomVariable getDrift(RandomVariable lastRealization, int timeIndex) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		double[] volatilitiesAtTime = localVolatilities[timeIndex - 1];
+		return lastRealization.apply(logSpot -> {
+			double volatility = getLocalVolatility(volatilitiesAtTime, logSpot);
+			return (muDrift - 0.5 * volatility * volatility) * timeStep;
+		});
+	}
+
+	/*
+	 * It returns sigma*(W_{t_k}-W_{t_{k-1}), with sigma = sigma(t_{k-1},S_{t_{k-1}}).
+	 */
+	@Override
+	protected RandomVariable getDiffusion(RandomVariable lastRealization, int timeIndex) {
+		double[] volatilitiesAtTime = localVolatilities[timeIndex - 1];
+		RandomVariable brownianIncrement = getStochasticDriver().getBrownianIncrement(timeIndex - 1, 0);
+		return lastRealization.apply(logSpot -> getLocalVolatility(volatilitiesAtTime, logSpot)).mult(brownianIncrement);
+	}
+
+	@Override
+	public void evolve(double[] simulatedProcess, double[] brownianIncrements, int numberOfPaths, int timeIndex) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		double driftTerm = muDrift * timeStep;
+		double halfTimeStep = 0.5 * timeStep;
+		double[] volatilitiesAtTime = localVolatilities[timeIndex - 1];
+		for (int i = 0; i < numberOfPaths; i++) {
+			double logSpot = simulatedProcess[i];
+			double volatility = getLocalVolatility(volatilitiesAtTime, logSpot);
+			simulatedProcess[i] = logSpot + driftTerm - halfTimeStep * volatility * volatility
+					+ volatility * brownianIncrements[i];
+		}
+	}
+}
@@ -11,11 +11,14 @@ import net.finmath.time.TimeDiscretization;
  * the trajectories of the logarithm of the geometric Brownian motion. We use
  * the exponential transform in order to return the right values. This class
  * extends AbstractSimulation by giving the implementation of getDrift and
- * getDiffusion.
+ * getDiffusion, and implements FusedDiscretizationScheme in order to compute
+ * the time steps directly on arrays of doubles, and AdjointDiscretizationScheme
+ * in order to record them for adjoint algorithmic differentiation.
  *
  * @author Andrea Mazzon
  */
-public class LogEulerSchemeForBlackScholes extends AbstractProcessSimulation {
+public class LogEulerSchemeForBlackScholes extends AbstractProcessSimulation implements FusedDiscretizationScheme,
+		AdjointDiscretizationScheme {
 
 	private double muDrift;// mu
 	private double sigmaVolatility;// sigma
@@ -32,12 +35,32 @@ public class LogEulerSchemeForBlackScholes extends AbstractProcessSimulation {
 		 */
 		transform = (x -> Math.exp(x));
 		/*
-		 * the inverse transform is needed to sum the drift and diffusion of the
-		 * logarithm computed here to the last realization of the logarithm
+		 * the inverse transform gives the initial value of the logarithm: then the
+		 * drift and diffusion computed here are added to the last realization of
+		 * the logarithm, without going back to the process at every time step
 		 */
 		inverseTransform = (x -> Math.log(x));
 	}
 
+	/**
+	 * It constructs an object which simulates the process driven by a given Brownian motion, for example an object of
+	 * type BrownianMotionFromCounterBasedRandomNumbers. The number of simulations and the time discretization are the
+	 * ones of the Brownian motion.
+	 *
+	 * @param sigmaVolatility, the volatility of the process
+	 * @param muDrift, the drift of the process
+	 * @param initialValue, the initial value of the process
+	 * @param brownianMotion, the one-dimensional Brownian motion driving the process
+	 */
+	public LogEulerSchemeForBlackScholes(double sigmaVolatility, double muDrift, double initialValue, BrownianMotion brownianMotion) {
+		super(initialValue, brownianMotion);
+		this.muDrift = muDrift;
+		this.sigmaVolatility = sigmaVolatility;
+		// as in the other constructor: we simulate the logarithm of the process
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+	}
+
 	/*
 	 * It gets and returns the drift of the logarithm of a geometric Brownian
 	 * motion, computed with the Euler scheme. That is, it simply returns
@@ -61,4 +84,55 @@ public class LogEulerSchemeForBlackScholes extends AbstractProcessSimulation {
 		RandomVariable brownianIncrement = brownianMotion.getBrownianIncrement(timeIndex - 1, 0);
 		return brownianIncrement.mult(sigmaVolatility);
 	}
-}
\ No newline at end of file
+
+	/*
+	 * It computes log(S_{t_k})=log(S_{t_{k-1}})+(mu-sigma^2/2)*(t_k-t_{k-1})+sigma*(W_{t_k}-W_{t_{k-1}}) for every
+	 * simulation. Here simulatedProcess contains the logarithm of the process.
+	 */
+	@Override
+	public void evolve(double[] simulatedProcess, double[] brownianIncrements, int numberOfPaths, int timeIndex) {
+		double drift = (muDrift - 0.5 * sigmaVolatility * sigmaVolatility) * (getTimeDiscretization().getTimeStep(timeIndex - 1));
+		for (int i = 0; i < numberOfPaths; i++) {
+			simulatedProcess[i] = simulatedProcess[i] + drift + brownianIncrements[i] * sigmaVolatility;
+		}
+	}
+
+	@Override
+	public double getSigmaVolatility() {
+		return sigmaVolatility;
+	}
+
+	@Override
+	public double getMuDrift() {
+		return muDrift;
+	}
+
+	// F is the logarithm: its derivative at X_0 is 1/X_0
+	@Override
+	public int recordInverseTransform(AdjointTape tape, int initialValueNode) {
+		double initialValue = tape.getValue(initialValueNode);
+		return tape.record(Math.log(initialValue), initialValueNode, 1 / initialValue);
+	}
+
+	/*
+	 * It records log(S_{t_k})=log(S_{t_{k-1}})+(mu-sigma^2/2)*(t_k-t_{k-1})+sigma*(W_{t_k}-W_{t_{k-1}}), with the
+	 * operations in the same order as in evolve. The partial derivatives are 1 with respect to log(S_{t_{k-1}}),
+	 * t_k-t_{k-1} with respect to mu and -sigma*(t_k-t_{k-1})+W_{t_k}-W_{t_{k-1}} with respect to sigma.
+	 */
+	@Override
+	public int recordStep(AdjointTape tape, int lastSimulatedValueNode, double brownianIncrement, int timeIndex,
+			int sigmaVolatilityNode, int muDriftNode) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		double drift = (muDrift - 0.5 * sigmaVolatility * sigmaVolatility) * timeStep;
+		double value = tape.getValue(lastSimulatedValueNode) + drift + brownianIncrement * sigmaVolatility;
+		return tape.record(value, lastSimulatedValueNode, 1.0, sigmaVolatilityNode,
+				-sigmaVolatility * timeStep + brownianIncrement, muDriftNode, timeStep);
+	}
+
+	// the transform is the exponential, whose derivative is the exponential itself
+	@Override
+	public int recordTransform(AdjointTape tape, int simulatedValueNode) {
+		double value = Math.exp(tape.getValue(simulatedValueNode));
+		return tape.record(value, simulatedValueNode, value);
+	}
+}
@@ -0,0 +1,119 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class simulates the trajectories of n geometric Brownian motions dS^j_t = mu^j S^j_t dt + sigma^j S^j_t dW^j_t
+ * driven by correlated Brownian motions (i.e., a multi-asset Black-Scholes model) by using a log Euler scheme: as in
+ * LogEulerSchemeForBlackScholes, we simulate the logarithms of the processes and we use the exponential transform in
+ * order to return the right values. This class extends AbstractMultiAssetProcessSimulation by giving the
+ * implementation of getDrift and getDiffusion, and implements FusedMultiAssetDiscretizationScheme in order to compute
+ * the time steps directly on arrays of doubles.
+ *
+ * @author Andrea Mazzon
+ */
+public class MultiAssetLogEulerSchemeForBlackScholes extends AbstractMultiAssetProcessSimulation
+		implements FusedMultiAssetDiscretizationScheme {
+
+	private final double[] muDrifts;
+	private final double[] sigmaVolatilities;
+
+	/**
+	 * It constructs an object which simulates the processes driven by a BrownianMotionFromCounterBasedRandomNumbers
+	 * with the given seed.
+	 *
+	 * @param sigmaVolatilities, the volatilities of the processes
+	 * @param muDrifts, the drifts of the processes
+	 * @param initialValues, the initial values of the processes
+	 * @param correlationMatrix, the correlation matrix of the Brownian motions driving the processes
+	 * @param numberOfSimulations, the number of simulations
+	 * @param seed, the seed of the Brownian motion
+	 * @param times, the time discretization
+	 */
+	public MultiAssetLogEulerSchemeForBlackScholes(double[] sigmaVolatilities, double[] muDrifts, double[] initialValues,
+			double[][] correlationMatrix, int numberOfSimulations, int seed, TimeDiscretization times) {
+		super(initialValues, correlationMatrix, numberOfSimulations, seed, times);
+		checkNumberOfParameters(sigmaVolatilities, muDrifts, initialValues.length);
+		this.muDrifts = muDrifts.clone();
+		this.sigmaVolatilities = sigmaVolatilities.clone();
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+	}
+
+	/**
+	 * It constructs an object which simulates the processes driven by a given Brownian motion with independent
+	 * factors, one for every asset.
+	 *
+	 * @param sigmaVolatilities, the volatilities of the processes
+	 * @param muDrifts, the drifts of the processes
+	 * @param initialValues, the initial values of the processes
+	 * @param correlationMatrix, the correlation matrix of the Brownian motions driving the processes
+	 * @param brownianMotion, the Brownian motion with independent factors, which get correlated
+	 */
+	public MultiAssetLogEulerSchemeForBlackScholes(double[] sigmaVolatilities, double[] muDrifts, double[] initialValues,
+			double[][] correlationMatrix, BrownianMotion brownianMotion) {
+		super(initialValues, correlationMatrix, brownianMotion);
+		checkNumberOfParameters(sigmaVolatilities, muDrifts, initialValues.length);
+		this.muDrifts = muDrifts.clone();
+		this.sigmaVolatilities = sigmaVolatilities.clone();
+		transform = (x -> Math.exp(x));
+		inverseTransform = (x -> Math.log(x));
+	}
+
+	// the sizes of the correlation matrix are checked by the constructor of AbstractMultiAssetProcessSimulation
+	private static void checkNumberOfParameters(double[] sigmaVolatilities, double[] muDrifts, int numberOfAssets) {
+		if (sigmaVolatilities.length != numberOfAssets) {
+			throw new IllegalArgumentException("Error: the number of volatilities is not the number of assets!");
+		}
+		if (muDrifts.length != numberOfAssets) {
+			throw new IllegalArgumentException("Error: the number of drifts is not the number of assets!");
+		}
+	}
+
+	/*
+	 * It returns the drift of the logarithm of the asset j, computed with the Euler scheme. That is, it simply returns
+	 * (mu^j-(sigma^j)^2/2)*(t_k-t_{k-1})
+	 */
+	@Override
+	protected RandomVariable getDrift(RandomVariable[] lastRealizations, int assetIndex, int timeIndex) {
+		TimeDiscretization times = getTimeDiscretization();
+		return new RandomVariableFromDoubleArray(times.getTime(timeIndex),
+				getDriftOfLogarithm(assetIndex) * times.getTimeStep(timeIndex - 1));
+	}
+
+	/*
+	 * It returns the diffusion of the logarithm of the asset j, computed with the Euler scheme. That is, it simply
+	 * returns sigma^j*(W^j_{t_k}-W^j_{t_{k-1}).
+	 */
+	@Override
+	protected RandomVariable getDiffusion(RandomVariable[] lastRealizations, int assetIndex, int timeIndex,
+			RandomVariable correlatedBrownianIncrement) {
+		return correlatedBrownianIncrement.mult(sigmaVolatilities[assetIndex]);
+	}
+
+	/*
+	 * It computes log(S^j_{t_k})=log(S^j_{t_{k-1}})+(mu^j-(sigma^j)^2/2)*(t_k-t_{k-1})+sigma^j*(W^j_{t_k}-W^j_{t_{k-1}})
+	 * for every asset and every simulation.
+	 */
+	@Override
+	public void evolve(double[][] simulatedProcesses, double[][] correlatedBrownianIncrements, int numberOfPaths,
+			int timeIndex) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		for (int assetIndex = 0; assetIndex < simulatedProcesses.length; assetIndex++) {
+			double drift = getDriftOfLogarithm(assetIndex) * timeStep;
+			double sigmaVolatility = sigmaVolatilities[assetIndex];
+			double[] simulatedProcess = simulatedProcesses[assetIndex];
+			double[] brownianIncrements = correlatedBrownianIncrements[assetIndex];
+			for (int i = 0; i < numberOfPaths; i++) {
+				simulatedProcess[i] = simulatedProcess[i] + drift + brownianIncrements[i] * sigmaVolatility;
+			}
+		}
+	}
+
+	private double getDriftOfLogarithm(int assetIndex) {
+		return muDrifts[assetIndex] - 0.5 * sigmaVolatilities[assetIndex] * sigmaVolatilities[assetIndex];
+	}
+}
@@ -0,0 +1,124 @@
+package it.univr.montecarlo.estimators;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class computes a Monte Carlo estimate whose number of paths is not given in advance: the paths are simulated by
+ * batches, and the simulation stops as soon as the standard error (or the half width of the confidence interval) is
+ * smaller than a given tolerance, or when a given time budget expires.
+ *
+ * The realizations of every batch are given by a function of a Brownian motion with numberOfPathsPerBatch paths. For
+ * example, the discounted payoff of an option computed with a discretization scheme driven by the Brownian motion, or
+ * with a Finmath library model. The realizations are not stored: the mean and the variance are updated batch by batch
+ * by a RunningStatistics object.
+ *
+ * Every batch is driven by a BrownianMotionFromCounterBasedRandomNumbers, whose seed is the seed of the estimator plus
+ * the index of the batch: in this way the estimate for a given number of batches does not depend on the tolerance and
+ * on the time budget.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class AdaptiveMonteCarloEstimator {
+
+	private final Function<BrownianMotion, RandomVariable> realizationsForBrownianMotion;
+	private final TimeDiscretization times;
+	private final int numberOfPathsPerBatch;
+	private final int seed;
+
+	/**
+	 * It constructs the estimator.
+	 *
+	 * @param realizationsForBrownianMotion, it gives the realizations of the random variable whose expectation we want
+	 *                                       to estimate, computed from a given Brownian motion. For example,
+	 *                                       brownianMotion -> new EulerSchemeForBlackScholes(sigma, mu, initialValue,
+	 *                                       brownianMotion).getFinalValueWithoutStoringPaths().sub(strike).floor(0.0)
+	 * @param times, the time discretization of the Brownian motions
+	 * @param numberOfPathsPerBatch, the number of paths of every Brownian motion
+	 * @param seed, the seed of the first batch
+	 */
+	public AdaptiveMonteCarloEstimator(Function<BrownianMotion, RandomVariable> realizationsForBrownianMotion,
+			TimeDiscretization times, int numberOfPathsPerBatch, int seed) {
+		if (numberOfPathsPerBatch < 2) {
+			throw new IllegalArgumentException("Error: a batch must have at least two paths!");
+		}
+		this.realizationsForBrownianMotion = realizationsForBrownianMotion;
+		this.times = times;
+		this.numberOfPathsPerBatch = numberOfPathsPerBatch;
+		this.seed = seed;
+	}
+
+	/**
+	 * It simulates batches of paths until the standard error of the estimate is not bigger than the given tolerance,
+	 * or until the time budget expires. At least one batch is simulated.
+	 *
+	 * @param tolerance, the standard error we want
+	 * @param timeBudgetInMilliseconds, the maximum time of the simulation: the batch being simulated when it
+	 *                                  expires is completed, so the actual time can be slightly bigger
+	 * @return the estimate, with its standard error, the number of paths and the time
+	 */
+	public MonteCarloEstimate getEstimateWithStandardError(double tolerance, long timeBudgetInMilliseconds) {
+		return getEstimate(tolerance, timeBudgetInMilliseconds);
+	}
+
+	/**
+	 * It simulates batches of paths until the half width of the confidence interval of the estimate (computed by the
+	 * normal approximation) for the given confidence level is not bigger than the given tolerance, or until the time
+	 * budget expires. At least one batch is simulated.
+	 *
+	 * @param tolerance, the half width of the confidence interval we want
+	 * @param confidenceLevel, the confidence level, for example 0.95
+	 * @param timeBudgetInMilliseconds, the maximum time of the simulation: the batch being simulated when it
+	 *                                  expires is completed, so the actual time can be slightly bigger
+	 * @return the estimate, with its standard error, the number of paths and the time
+	 */
+	public MonteCarloEstimate getEstimateWithConfidenceHalfWidth(double tolerance, double confidenceLevel,
+			long timeBudgetInMilliseconds) {
+		return getEstimate(tolerance / getQuantileForConfidenceLevel(confidenceLevel), timeBudgetInMilliseconds);
+	}
+
+	private MonteCarloEstimate getEstimate(double toleranceForStandardError, long timeBudgetInMilliseconds) {
+		if (!(toleranceForStandardError > 0)) {
+			throw new IllegalArgumentException("Error: the tolerance must be positive!");
+		}
+		long startTime = System.nanoTime();
+		// it is Long.MAX_VALUE if the budget is too big to be written in nanoseconds, for example for no limit
+		long timeBudgetInNanoseconds = TimeUnit.MILLISECONDS.toNanos(timeBudgetInMilliseconds);
+
+		RunningStatistics statistics = new RunningStatistics();
+		int batchIndex = 0;
+		boolean isToleranceReached = false;
+		do {
+			BrownianMotion brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1,
+					numberOfPathsPerBatch, seed + batchIndex);
+			RandomVariable realizations = realizationsForBrownianMotion.apply(brownianMotion);
+			for (int i = 0; i < numberOfPathsPerBatch; i++) {
+				statistics.add(realizations.get(i));
+			}
+			batchIndex++;
+			isToleranceReached = statistics.getStandardError() <= toleranceForStandardError;
+		} while (!isToleranceReached && System.nanoTime() - startTime < timeBudgetInNanoseconds);
+
+		long elapsedTimeInMilliseconds = (System.nanoTime() - startTime) / 1000000L;
+		return new MonteCarloEstimate(statistics.getMean(), statistics.getStandardError(),
+				statistics.getNumberOfValues(), elapsedTimeInMilliseconds, isToleranceReached);
+	}
+
+	/*
+	 * It returns the quantile z of order (1 + confidenceLevel) / 2 of the standard normal distribution, such that
+	 * [estimate - z * standard error, estimate + z * standard error] is the confidence interval.
+	 */
+	static double getQuantileForConfidenceLevel(double confidenceLevel) {
+		if (confidenceLevel <= 0 || confidenceLevel >= 1) {
+			throw new IllegalArgumentException("Error: the confidence level must be in (0,1)!");
+		}
+		return NormalDistribution.inverseCumulativeDistribution(0.5 * (1 + confidenceLevel));
+	}
+}
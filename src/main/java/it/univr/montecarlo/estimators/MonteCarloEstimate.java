@@ -0,0 +1,101 @@
+package it.univr.montecarlo.estimators;
+
+/**
+ * This class stores the result of a Monte Carlo estimation, for example by an AdaptiveMonteCarloEstimator: the
+ * estimate, its standard error, the number of paths used to compute it, the time needed and if the wanted error has
+ * been reached.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MonteCarloEstimate {
+
+	private final double value;
+	private final double standardError;
+	private final long numberOfPaths;
+	private final long elapsedTimeInMilliseconds;
+	private final boolean isToleranceReached;
+
+	/**
+	 * It constructs the object
+	 *
+	 * @param value, the Monte Carlo estimate
+	 * @param standardError, the standard error of the estimate
+	 * @param numberOfPaths, the number of paths used
+	 * @param elapsedTimeInMilliseconds, the time needed to compute the estimate
+	 * @param isToleranceReached, true if the estimator stopped because the wanted error was reached, false if it
+	 *                            stopped because the time budget expired. It is true if no error was wanted
+	 */
+	public MonteCarloEstimate(double value, double standardError, long numberOfPaths, long elapsedTimeInMilliseconds,
+			boolean isToleranceReached) {
+		this.value = value;
+		this.standardError = standardError;
+		this.numberOfPaths = numberOfPaths;
+		this.elapsedTimeInMilliseconds = elapsedTimeInMilliseconds;
+		this.isToleranceReached = isToleranceReached;
+	}
+
+	/**
+	 * It returns the Monte Carlo estimate
+	 *
+	 * @return the Monte Carlo estimate
+	 */
+	public double getValue() {
+		return value;
+	}
+
+	/**
+	 * It returns the standard error of the estimate
+	 *
+	 * @return the standard error of the estimate
+	 */
+	public double getStandardError() {
+		return standardError;
+	}
+
+	/**
+	 * It returns the half width of the confidence interval of the estimate for a given confidence level, given by the
+	 * normal approximation: z * standard error, where z is the quantile of order (1 + confidenceLevel) / 2 of the
+	 * standard normal distribution
+	 *
+	 * @param confidenceLevel, the confidence level, for example 0.95
+	 * @return the half width of the confidence interval
+	 */
+	public double getConfidenceHalfWidth(double confidenceLevel) {
+		return AdaptiveMonteCarloEstimator.getQuantileForConfidenceLevel(confidenceLevel) * standardError;
+	}
+
+	/**
+	 * It returns the number of paths used to compute the estimate
+	 *
+	 * @return the number of paths used
+	 */
+	public long getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	/**
+	 * It returns the time needed to compute the estimate, in milliseconds
+	 *
+	 * @return the time needed to compute the estimate
+	 */
+	public long getElapsedTimeInMilliseconds() {
+		return elapsedTimeInMilliseconds;
+	}
+
+	/**
+	 * It returns true if the estimator stopped because the wanted error was reached, false if it stopped because the
+	 * time budget expired
+	 *
+	 * @return true if the wanted error was reached
+	 */
+	public boolean isToleranceReached() {
+		return isToleranceReached;
+	}
+
+	@Override
+	public String toString() {
+		return "value " + value + ", standard error " + standardError + ", paths " + numberOfPaths + ", time "
+				+ elapsedTimeInMilliseconds + " ms" + (isToleranceReached ? "" : " (time budget expired)");
+	}
+}
@@ -0,0 +1,306 @@
+package it.univr.montecarlo.estimators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import it.univr.montecarlo.stochasticdrivers.CoarsenedBrownianMotion;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class computes the expectation E[P(X)] of a functional P of a process X discretized by a scheme extending
+ * AbstractProcessSimulation, by the multilevel Monte Carlo method of Giles.
+ *
+ * The level l has n_l = n_0 * M^l time steps, where n_0 is the number of time steps of the coarsest level and M is
+ * the refinement factor. Calling P_l the functional computed with the discretization of level l, we have
+ * E[P_L] = E[P_0] + sum_{l=1}^L E[P_l - P_{l-1}].
+ * Every expectation on the right is estimated by an independent Monte Carlo estimator. The two discretizations in
+ * P_l - P_{l-1} are driven by the same Brownian paths (the coarse one by a CoarsenedBrownianMotion), so the variance
+ * of P_l - P_{l-1} goes to zero when l increases and only a few paths are needed at the finest levels, where the
+ * paths are expensive. Schemes with a better strong order, like the Milstein scheme, give a faster decay of these
+ * variances.
+ *
+ * Differently from the other classes simulating the process, here we do not give the number of simulations but the
+ * root mean square error we want: the number of levels is increased until the estimated bias is small enough, and the
+ * number of paths of every level is chosen from the sample variances of the levels in order to minimize the cost.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MultilevelMonteCarloEstimator {
+
+	// the number of paths simulated at the same time: in this way the memory needed does not depend on the accuracy
+	private static final int MAXIMUM_NUMBER_OF_PATHS_PER_BATCH = 50000;
+
+	private final Function<BrownianMotion, AbstractProcessSimulation> schemeFactory;
+	private final Function<AbstractProcessSimulation, RandomVariable> functional;
+
+	private final double maturity;
+	private final int numberOfTimeStepsOfCoarsestLevel;
+	private final int refinementFactor;
+	private final int numberOfInitialPaths;
+	private final int maximumLevel;
+	private final int seed;
+
+	// for every level l, the statistics of the realizations of P_l - P_{l-1} (of P_0 for l = 0), filled by getValue
+	private List<RunningStatistics> statisticsOfLevels = new ArrayList<RunningStatistics>();
+
+	private double estimatedBias;
+
+	// used to give a different seed to every batch of paths
+	private int numberOfSimulatedBatches;
+
+	/**
+	 * It constructs the estimator.
+	 *
+	 * @param schemeFactory, it gives the discretization of the process driven by a given Brownian motion, whose time
+	 *                       discretization is the one of the discretization. For example,
+	 *                       brownianMotion -> new MilsteinSchemeForBlackScholes(sigma, mu, initialValue, brownianMotion)
+	 * @param functional, it gives the realizations of the functional P from the discretization of the process. For
+	 *                    example, the discounted payoff of a call option:
+	 *                    process -> process.getFinalValueWithoutStoringPaths().sub(strike).floor(0.0).mult(discountFactor)
+	 * @param maturity, the final time of the discretizations
+	 * @param numberOfTimeStepsOfCoarsestLevel, the number of time steps n_0 of the level 0
+	 * @param refinementFactor, the factor M by which the number of time steps is multiplied from one level to the next
+	 * @param numberOfInitialPaths, the number of paths simulated for a new level in order to estimate its variance
+	 * @param maximumLevel, the maximum level: if the estimated bias is still too big at this level, the estimator stops
+	 *                      anyway. See getEstimatedBias
+	 * @param seed, the seed of the Brownian motions driving the discretizations
+	 */
+	public MultilevelMonteCarloEstimator(Function<BrownianMotion, AbstractProcessSimulation> schemeFactory,
+			Function<AbstractProcessSimulation, RandomVariable> functional, double maturity,
+			int numberOfTimeStepsOfCoarsestLevel, int refinementFactor, int numberOfInitialPaths, int maximumLevel,
+			int seed) {
+		if (refinementFactor < 2) {
+			throw new IllegalArgumentException("Error: the refinement factor must be at least 2!");
+		}
+		if (numberOfInitialPaths < 2) {
+			throw new IllegalArgumentException("Error: at least two initial paths are needed to estimate the variances!");
+		}
+		this.schemeFactory = schemeFactory;
+		this.functional = functional;
+		this.maturity = maturity;
+		this.numberOfTimeStepsOfCoarsestLevel = numberOfTimeStepsOfCoarsestLevel;
+		this.refinementFactor = refinementFactor;
+		this.numberOfInitialPaths = numberOfInitialPaths;
+		this.maximumLevel = maximumLevel;
+		this.seed = seed;
+	}
+
+	/**
+	 * It returns the multilevel Monte Carlo estimate of E[P(X)] with the given root mean square error. Half of the
+	 * mean square error is given to the bias and half to the variance of the estimator.
+	 *
+	 * @param targetRootMeanSquareError, the root mean square error we want
+	 * @return the multilevel Monte Carlo estimate of E[P(X)]
+	 */
+	public double getValue(double targetRootMeanSquareError) {
+		if (targetRootMeanSquareError <= 0) {
+			throw new IllegalArgumentException("Error: the root mean square error must be positive!");
+		}
+		statisticsOfLevels.clear();
+		numberOfSimulatedBatches = 0;
+
+		// at the beginning, the levels 0, 1 and 2
+		List<Long> numbersOfPathsToAdd = new ArrayList<Long>();
+		for (int level = 0; level <= Math.min(2, maximumLevel); level++) {
+			addLevel();
+			numbersOfPathsToAdd.add((long) numberOfInitialPaths);
+		}
+
+		boolean isFinished = false;
+		while (!isFinished) {
+			for (int level = 0; level < getNumberOfLevels(); level++) {
+				if (numbersOfPathsToAdd.get(level) > 0) {
+					simulateLevel(level, numbersOfPathsToAdd.get(level));
+				}
+			}
+
+			/*
+			 * The number of paths N_l minimizing the cost sum_l N_l C_l with variance sum_l V_l / N_l = epsilon^2 / 2
+			 * is N_l = 2 / epsilon^2 * sqrt(V_l / C_l) * sum_k sqrt(V_k C_k), where C_l is the cost of a path of the
+			 * level l, proportional to its number of time steps.
+			 */
+			double sumOfSquareRootsOfVariancesTimesCosts = 0.0;
+			for (int level = 0; level < getNumberOfLevels(); level++) {
+				sumOfSquareRootsOfVariancesTimesCosts += Math.sqrt(getVarianceOfLevel(level) * getCostOfPath(level));
+			}
+			boolean areNumbersOfPathsOptimal = true;
+			for (int level = 0; level < getNumberOfLevels(); level++) {
+				double optimalNumberOfPaths = Math.ceil(2.0 / (targetRootMeanSquareError * targetRootMeanSquareError)
+						* Math.sqrt(getVarianceOfLevel(level) / getCostOfPath(level)) * sumOfSquareRootsOfVariancesTimesCosts);
+				long numberOfPathsToAdd = Math.max(0, (long) optimalNumberOfPaths - getNumberOfPathsOfLevel(level));
+				numbersOfPathsToAdd.set(level, numberOfPathsToAdd);
+				// we do not simulate again just to add less than 1% of the paths
+				if (numberOfPathsToAdd > 0.01 * getNumberOfPathsOfLevel(level)) {
+					areNumbersOfPathsOptimal = false;
+				}
+			}
+
+			if (areNumbersOfPathsOptimal) {
+				estimatedBias = computeEstimatedBias();
+				if (estimatedBias <= targetRootMeanSquareError / Math.sqrt(2) || getNumberOfLevels() > maximumLevel) {
+					isFinished = true;
+				} else {
+					// the variance of the new level is estimated from numberOfInitialPaths paths
+					addLevel();
+					numbersOfPathsToAdd.add((long) numberOfInitialPaths);
+				}
+			}
+		}
+
+		double estimate = 0.0;
+		for (int level = 0; level < getNumberOfLevels(); level++) {
+			estimate += getMeanOfLevel(level);
+		}
+		return estimate;
+	}
+
+	private void addLevel() {
+		statisticsOfLevels.add(new RunningStatistics());
+	}
+
+	/*
+	 * It simulates the given number of new realizations of P_l - P_{l-1} (of P_0 if l = 0), by batches of at most
+	 * MAXIMUM_NUMBER_OF_PATHS_PER_BATCH paths, and adds them to the statistics of the level.
+	 */
+	private void simulateLevel(int level, long numberOfPathsToSimulate) {
+		int numberOfTimeSteps = getNumberOfTimeSteps(level);
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		long numberOfRemainingPaths = numberOfPathsToSimulate;
+		while (numberOfRemainingPaths > 0) {
+			int numberOfPathsOfBatch = (int) Math.min(numberOfRemainingPaths, MAXIMUM_NUMBER_OF_PATHS_PER_BATCH);
+
+			// the increments are not stored: the coarse discretization computes them again, summing the fine ones
+			BrownianMotion brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1,
+					numberOfPathsOfBatch, seed + numberOfSimulatedBatches);
+			numberOfSimulatedBatches++;
+
+			RandomVariable realizations = functional.apply(schemeFactory.apply(brownianMotion));
+			if (level > 0) {
+				AbstractProcessSimulation coarseDiscretization = schemeFactory.apply(
+						new CoarsenedBrownianMotion(brownianMotion, refinementFactor));
+				realizations = realizations.sub(functional.apply(coarseDiscretization));
+			}
+
+			RunningStatistics statisticsOfLevel = statisticsOfLevels.get(level);
+			for (int i = 0; i < numberOfPathsOfBatch; i++) {
+				statisticsOfLevel.add(realizations.get(i));
+			}
+
+			numberOfRemainingPaths -= numberOfPathsOfBatch;
+		}
+	}
+
+	/*
+	 * If E[P - P_l] behaves like c M^(-alpha l), then E[P - P_L] = E[P_L - P_{L-1}] / (M^alpha - 1). The weak order
+	 * alpha is estimated by a linear regression of log_M|E[P_l - P_{l-1}]| on l, and it is not taken smaller than 0.5.
+	 * As in the paper of Giles, we also use the second finest level, which makes the estimate more robust.
+	 */
+	private double computeEstimatedBias() {
+		int finestLevel = getNumberOfLevels() - 1;
+		double alpha = 0.5;
+		if (finestLevel >= 2) {
+			double averageOfLevels = 0.0;
+			double averageOfLogarithms = 0.0;
+			for (int level = 1; level <= finestLevel; level++) {
+				averageOfLevels += (double) level / finestLevel;
+				averageOfLogarithms += Math.log(Math.abs(getMeanOfLevel(level))) / Math.log(refinementFactor) / finestLevel;
+			}
+			double covariance = 0.0;
+			double variance = 0.0;
+			for (int level = 1; level <= finestLevel; level++) {
+				double logarithm = Math.log(Math.abs(getMeanOfLevel(level))) / Math.log(refinementFactor);
+				covariance += (level - averageOfLevels) * (logarithm - averageOfLogarithms);
+				variance += (level - averageOfLevels) * (level - averageOfLevels);
+			}
+			double slope = covariance / variance;
+			// NaN if some mean is zero: in this case we keep 0.5
+			if (!Double.isNaN(slope)) {
+				alpha = Math.max(0.5, -slope);
+			}
+		}
+		double factor = Math.pow(refinementFactor, alpha);
+		double biasFromFinestLevel = Math.abs(getMeanOfLevel(finestLevel));
+		double biasFromSecondFinestLevel = finestLevel > 1 ? Math.abs(getMeanOfLevel(finestLevel - 1)) / factor : 0.0;
+		return Math.max(biasFromFinestLevel, biasFromSecondFinestLevel) / (factor - 1);
+	}
+
+	private int getNumberOfTimeSteps(int level) {
+		return numberOfTimeStepsOfCoarsestLevel * (int) Math.pow(refinementFactor, level);
+	}
+
+	// a path of the level l needs n_l time steps for the fine discretization and n_{l-1} for the coarse one
+	private double getCostOfPath(int level) {
+		return level == 0 ? getNumberOfTimeSteps(0) : getNumberOfTimeSteps(level) + getNumberOfTimeSteps(level - 1);
+	}
+
+	/**
+	 * It returns the number of levels used by the last call of getValue
+	 *
+	 * @return the number of levels used by the last call of getValue
+	 */
+	public int getNumberOfLevels() {
+		return statisticsOfLevels.size();
+	}
+
+	/**
+	 * It returns the number of paths simulated for the given level by the last call of getValue
+	 *
+	 * @param level, the level
+	 * @return the number of paths simulated for the level
+	 */
+	public long getNumberOfPathsOfLevel(int level) {
+		return statisticsOfLevels.get(level).getNumberOfValues();
+	}
+
+	/**
+	 * It returns the Monte Carlo estimate of E[P_l - P_{l-1}] (of E[P_0] for l = 0) computed by the last call of getValue
+	 *
+	 * @param level, the level l
+	 * @return the estimate of E[P_l - P_{l-1}]
+	 */
+	public double getMeanOfLevel(int level) {
+		return statisticsOfLevels.get(level).getMean();
+	}
+
+	/**
+	 * It returns the sample variance of P_l - P_{l-1} (of P_0 for l = 0) computed by the last call of getValue
+	 *
+	 * @param level, the level l
+	 * @return the sample variance of P_l - P_{l-1}
+	 */
+	public double getVarianceOfLevel(int level) {
+		return statisticsOfLevels.get(level).getVariance();
+	}
+
+	/**
+	 * It returns the standard error of the estimate computed by the last call of getValue, i.e., the square root of
+	 * sum_l V_l / N_l
+	 *
+	 * @return the standard error of the estimate
+	 */
+	public double getStandardError() {
+		double varianceOfEstimator = 0.0;
+		for (int level = 0; level < getNumberOfLevels(); level++) {
+			varianceOfEstimator += getVarianceOfLevel(level) / getNumberOfPathsOfLevel(level);
+		}
+		return Math.sqrt(varianceOfEstimator);
+	}
+
+	/**
+	 * It returns the estimated bias E[P - P_L] of the estimate computed by the last call of getValue, where L is the
+	 * finest level. It might be bigger than the one wanted if the maximum level has been reached.
+	 *
+	 * @return the estimated bias of the estimate
+	 */
+	public double getEstimatedBias() {
+		return estimatedBias;
+	}
+}
@@ -0,0 +1,69 @@
+package it.univr.montecarlo.estimators;
+
+/**
+ * This class computes the sample mean and the sample variance of a sequence of numbers without storing them, by the
+ * updates of Welford: when the n-th number x is added, the mean m and the sum of the squared deviations from the mean
+ * M are updated as
+ * m_n = m_{n-1} + (x - m_{n-1}) / n,
+ * M_n = M_{n-1} + (x - m_{n-1}) * (x - m_n).
+ * Differently from the formula E[X^2] - E[X]^2, this does not suffer from cancellation when the variance is small with
+ * respect to the square of the mean.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class RunningStatistics {
+
+	private long numberOfValues;
+	private double mean;
+	private double sumOfSquaredDeviations;
+
+	/**
+	 * It adds a number to the sequence
+	 *
+	 * @param value, the number to add
+	 */
+	public void add(double value) {
+		numberOfValues++;
+		double deviationFromOldMean = value - mean;
+		mean += deviationFromOldMean / numberOfValues;
+		sumOfSquaredDeviations += deviationFromOldMean * (value - mean);
+	}
+
+	/**
+	 * It returns the number of numbers added
+	 *
+	 * @return the number of numbers added
+	 */
+	public long getNumberOfValues() {
+		return numberOfValues;
+	}
+
+	/**
+	 * It returns the sample mean of the numbers added
+	 *
+	 * @return the sample mean of the numbers added
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * It returns the unbiased sample variance of the numbers added. It is 0 if less than two numbers have been added.
+	 *
+	 * @return the sample variance of the numbers added
+	 */
+	public double getVariance() {
+		return numberOfValues > 1 ? sumOfSquaredDeviations / (numberOfValues - 1) : 0.0;
+	}
+
+	/**
+	 * It returns the standard error of the sample mean, i.e., the square root of the sample variance divided by the
+	 * number of numbers added
+	 *
+	 * @return the standard error of the sample mean
+	 */
+	public double getStandardError() {
+		return numberOfValues > 0 ? Math.sqrt(getVariance() / numberOfValues) : Double.POSITIVE_INFINITY;
+	}
+}
@@ -0,0 +1,93 @@
+package it.univr.montecarlo.numbersgeneration;
+
+/**
+ * This class implements the Philox-4x32-10 counter based random number generator of Salmon, Moraes, Dror and Shaw,
+ * "Parallel random numbers: as easy as 1, 2, 3" (2011).
+ *
+ * Differently from LinearCongruentialGenerator, here there is no sequence: the random number is a function of a key
+ * (the seed) and of a counter, that is, of two long numbers we can choose freely. For example, if the counter is given
+ * by the index of the simulation and by the index of the time, we can compute the random number used for a given
+ * simulation and a given time without computing all the previous ones and without storing anything.
+ *
+ * The function consists of ten rounds, each of which multiplies two 32 bits words of the counter by two constants and
+ * mixes the high and the low parts of the products with the other words and with the key.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class PhiloxCounterBasedGenerator {
+
+	// the multipliers and the constants by which the key is updated at every round
+	private static final long FIRST_MULTIPLIER = 0xD2511F53L;
+	private static final long SECOND_MULTIPLIER = 0xCD9E8D57L;
+	private static final int FIRST_KEY_INCREMENT = 0x9E3779B9;
+	private static final int SECOND_KEY_INCREMENT = 0xBB67AE85;
+
+	private static final int NUMBER_OF_ROUNDS = 10;
+
+	private final long key;
+
+	/**
+	 * It constructs a generator with a given key
+	 *
+	 * @param key, the key (i.e., the seed) of the generator
+	 */
+	public PhiloxCounterBasedGenerator(long key) {
+		this.key = key;
+	}
+
+	/**
+	 * It returns the first 64 bits of the Philox-4x32-10 function computed for the key of the generator and the counter
+	 * given by the two arguments.
+	 *
+	 * @param firstCounter, the first 64 bits of the counter
+	 * @param secondCounter, the last 64 bits of the counter
+	 * @return a pseudo random long, which depends only on the key and on the counter
+	 */
+	public long getRandomLong(long firstCounter, long secondCounter) {
+		int counter0 = (int) firstCounter;
+		int counter1 = (int) (firstCounter >>> 32);
+		int counter2 = (int) secondCounter;
+		int counter3 = (int) (secondCounter >>> 32);
+
+		int key0 = (int) key;
+		int key1 = (int) (key >>> 32);
+
+		for (int round = 0; round < NUMBER_OF_ROUNDS; round++) {
+			if (round > 0) {
+				key0 += FIRST_KEY_INCREMENT;
+				key1 += SECOND_KEY_INCREMENT;
+			}
+			long firstProduct = FIRST_MULTIPLIER * (counter0 & 0xFFFFFFFFL);
+			long secondProduct = SECOND_MULTIPLIER * (counter2 & 0xFFFFFFFFL);
+
+			counter0 = ((int) (secondProduct >>> 32)) ^ counter1 ^ key0;
+			counter1 = (int) secondProduct;
+			counter2 = ((int) (firstProduct >>> 32)) ^ counter3 ^ key1;
+			counter3 = (int) firstProduct;
+		}
+		return ((long) counter1 << 32) | (counter0 & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * It returns a pseudo random number uniformly distributed in the open interval (0,1), obtained from the first 53
+	 * bits of getRandomLong(firstCounter, secondCounter).
+	 *
+	 * @param firstCounter, the first 64 bits of the counter
+	 * @param secondCounter, the last 64 bits of the counter
+	 * @return a pseudo random number in (0,1), which depends only on the key and on the counter
+	 */
+	public double getUniform(long firstCounter, long secondCounter) {
+		// we add 0.5 so that the number is never 0 or 1: we want to apply the inverse of a distribution function
+		return ((getRandomLong(firstCounter, secondCounter) >>> 11) + 0.5) * 0x1.0p-53;
+	}
+
+	/**
+	 * It returns the key of the generator
+	 *
+	 * @return the key of the generator
+	 */
+	public long getKey() {
+		return key;
+	}
+}
@@ -0,0 +1,317 @@
+package it.univr.montecarlo.numbersgeneration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * This class generates the points of a scrambled Sobol sequence in the unit cube of a given dimension. Differently from
+ * pseudo random numbers, the points of a Sobol sequence fill the cube in a very uniform way (they are a low discrepancy
+ * sequence), so that the error of a quasi Monte Carlo estimator can be much smaller than the one of a Monte Carlo
+ * estimator with the same number of points.
+ *
+ * The j-th coordinate of the n-th point is the XOR of the direction numbers v_{j,k} for the k such that the k-th bit of
+ * the Gray code of n is 1. For every coordinate but the first, the direction numbers are given by the recurrence
+ * associated to a primitive polynomial modulo 2: the primitive polynomials are computed here by increasing degree, and
+ * the initial direction numbers are the ones of S. Joe and F. Y. Kuo (file new-joe-kuo-6.21201), which are chosen such
+ * that the two-dimensional projections of the sequence have small t-values. For the first coordinate we have the van
+ * der Corput sequence. We embed the initial direction numbers of the first DIMENSION_WITH_JOE_KUO_DIRECTION_NUMBERS
+ * coordinates. For the coordinates after them, which the Brownian bridge uses for the finest steps of the paths, the
+ * initial direction numbers are odd numbers drawn from a generator with a fixed seed: the sequence is still a Sobol
+ * sequence, whose two-dimensional projections on these coordinates are less uniform. In this way, there is no
+ * limit on the dimension.
+ *
+ * The direction numbers are then scrambled by a random lower triangular binary matrix (Matousek's linear scrambling)
+ * and the points are XORed with a random vector (digital shift), both determined by the scrambling seed. Different
+ * scrambling seeds give independent randomizations of the sequence, which can be used to estimate the error.
+ *
+ * We have 32 bits for every coordinate, so the sequence can have at most 2^32 points.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class ScrambledSobolSequence {
+
+	private static final int NUMBER_OF_BITS = 32;
+
+	/**
+	 * The number of coordinates whose initial direction numbers are the ones of Joe and Kuo
+	 */
+	public static final int DIMENSION_WITH_JOE_KUO_DIRECTION_NUMBERS = 101;
+
+	// used to choose the initial direction numbers of the other coordinates: always the same, so is the sequence
+	private static final long SEED_FOR_DIRECTION_NUMBERS = 1897;
+
+	/*
+	 * The initial direction numbers m_1, ..., m_s of Joe and Kuo for the coordinates 2 to
+	 * DIMENSION_WITH_JOE_KUO_DIRECTION_NUMBERS: the j-th
+	 * array is the one of the j-th primitive polynomial, of degree s, as given by getPrimitivePolynomials.
+	 */
+	private static final int[][] INITIAL_DIRECTION_NUMBERS = {
+			{ 1 }, { 1, 3 }, { 1, 3, 1 }, { 1, 1, 1 }, { 1, 1, 3, 3 }, { 1, 3, 5, 13 }, { 1, 1, 5, 5, 17 },
+			{ 1, 1, 5, 5, 5 }, { 1, 1, 7, 11, 19 }, { 1, 1, 5, 1, 1 }, { 1, 1, 1, 3, 11 }, { 1, 3, 5, 5, 31 },
+			{ 1, 3, 3, 9, 7, 49 }, { 1, 1, 1, 15, 21, 21 }, { 1, 3, 1, 13, 27, 49 }, { 1, 1, 1, 15, 7, 5 },
+			{ 1, 3, 1, 15, 13, 25 }, { 1, 1, 5, 5, 19, 61 }, { 1, 3, 7, 11, 23, 15, 103 }, { 1, 3, 7, 13, 13, 15, 69 },
+			{ 1, 1, 3, 13, 7, 35, 63 }, { 1, 3, 5, 9, 1, 25, 53 }, { 1, 3, 1, 13, 9, 35, 107 },
+			{ 1, 3, 1, 5, 27, 61, 31 }, { 1, 1, 5, 11, 19, 41, 61 }, { 1, 3, 5, 3, 3, 13, 69 },
+			{ 1, 1, 7, 13, 1, 19, 1 }, { 1, 3, 7, 5, 13, 19, 59 }, { 1, 1, 3, 9, 25, 29, 41 },
+			{ 1, 3, 5, 13, 23, 1, 55 }, { 1, 3, 7, 3, 13, 59, 17 }, { 1, 3, 1, 3, 5, 53, 69 },
+			{ 1, 1, 5, 5, 23, 33, 13 }, { 1, 1, 7, 7, 1, 61, 123 }, { 1, 1, 7, 9, 13, 61, 49 },
+			{ 1, 3, 3, 5, 3, 55, 33 }, { 1, 3, 1, 15, 31, 13, 49, 245 }, { 1, 3, 5, 15, 31, 59, 63, 97 },
+			{ 1, 3, 1, 11, 11, 11, 77, 249 }, { 1, 3, 1, 11, 27, 43, 71, 9 }, { 1, 1, 7, 15, 21, 11, 81, 45 },
+			{ 1, 3, 7, 3, 25, 31, 65, 79 }, { 1, 3, 1, 1, 19, 11, 3, 205 }, { 1, 1, 5, 9, 19, 21, 29, 157 },
+			{ 1, 3, 7, 11, 1, 33, 89, 185 }, { 1, 3, 3, 3, 15, 9, 79, 71 }, { 1, 3, 7, 11, 15, 39, 119, 27 },
+			{ 1, 1, 3, 1, 11, 31, 97, 225 }, { 1, 1, 1, 3, 23, 43, 57, 177 }, { 1, 3, 7, 7, 17, 17, 37, 71 },
+			{ 1, 3, 1, 5, 27, 63, 123, 213 }, { 1, 1, 3, 5, 11, 43, 53, 133 }, { 1, 3, 5, 5, 29, 17, 47, 173, 479 },
+			{ 1, 3, 3, 11, 3, 1, 109, 9, 69 }, { 1, 1, 1, 5, 17, 39, 23, 5, 343 }, { 1, 3, 1, 5, 25, 15, 31, 103, 499 },
+			{ 1, 1, 1, 11, 11, 17, 63, 105, 183 }, { 1, 1, 5, 11, 9, 29, 97, 231, 363 },
+			{ 1, 1, 5, 15, 19, 45, 41, 7, 383 }, { 1, 3, 7, 7, 31, 19, 83, 137, 221 },
+			{ 1, 1, 1, 3, 23, 15, 111, 223, 83 }, { 1, 1, 5, 13, 31, 15, 55, 25, 161 },
+			{ 1, 1, 3, 13, 25, 47, 39, 87, 257 }, { 1, 1, 1, 11, 21, 53, 125, 249, 293 },
+			{ 1, 1, 7, 11, 11, 7, 57, 79, 323 }, { 1, 1, 5, 5, 17, 13, 81, 3, 131 },
+			{ 1, 1, 7, 13, 23, 7, 65, 251, 475 }, { 1, 3, 5, 1, 9, 43, 3, 149, 11 },
+			{ 1, 1, 3, 13, 31, 13, 13, 255, 487 }, { 1, 3, 3, 1, 5, 63, 89, 91, 127 },
+			{ 1, 1, 3, 3, 1, 19, 123, 127, 237 }, { 1, 1, 5, 7, 23, 31, 37, 243, 289 },
+			{ 1, 1, 5, 11, 17, 53, 117, 183, 491 }, { 1, 1, 1, 5, 1, 13, 13, 209, 345 },
+			{ 1, 1, 3, 15, 1, 57, 115, 7, 33 }, { 1, 3, 1, 11, 7, 43, 81, 207, 175 },
+			{ 1, 3, 1, 1, 15, 27, 63, 255, 49 }, { 1, 3, 5, 3, 27, 61, 105, 171, 305 },
+			{ 1, 1, 5, 3, 1, 3, 57, 249, 149 }, { 1, 1, 3, 5, 5, 57, 15, 13, 159 },
+			{ 1, 1, 1, 11, 7, 11, 105, 141, 225 }, { 1, 3, 3, 5, 27, 59, 121, 101, 271 },
+			{ 1, 3, 5, 9, 11, 49, 51, 59, 115 }, { 1, 1, 7, 1, 23, 45, 125, 71, 419 },
+			{ 1, 1, 3, 5, 23, 5, 105, 109, 75 }, { 1, 1, 7, 15, 7, 11, 67, 121, 453 },
+			{ 1, 3, 7, 3, 9, 13, 31, 27, 449 }, { 1, 3, 1, 15, 19, 39, 39, 89, 15 },
+			{ 1, 1, 1, 1, 1, 33, 73, 145, 379 }, { 1, 3, 1, 15, 15, 43, 29, 13, 483 },
+			{ 1, 1, 7, 3, 19, 27, 85, 131, 431 }, { 1, 3, 3, 3, 5, 35, 23, 195, 349 },
+			{ 1, 3, 3, 7, 9, 27, 39, 59, 297 }, { 1, 1, 3, 9, 11, 17, 13, 241, 157 },
+			{ 1, 3, 7, 15, 25, 57, 33, 189, 213 }, { 1, 1, 7, 1, 9, 55, 73, 83, 217 },
+			{ 1, 3, 3, 13, 19, 27, 23, 113, 249 }, { 1, 3, 5, 3, 23, 43, 3, 253, 479 },
+			{ 1, 1, 5, 5, 11, 5, 45, 117, 217 }, { 1, 3, 3, 7, 29, 37, 33, 123, 147 }
+	};
+
+	private final int dimension;
+
+	// directionNumbers[j][k] is the k-th scrambled direction number of the j-th coordinate
+	private final int[][] directionNumbers;
+	private final int[] digitalShift;
+
+	// the coordinates of the last point, before the digital shift
+	private final int[] lastPoint;
+	private long indexOfNextPoint = 0;
+
+	/**
+	 * It constructs the sequence
+	 *
+	 * @param dimension, the dimension of the points
+	 * @param scramblingSeed, the seed determining the scrambling matrices and the digital shift
+	 */
+	public ScrambledSobolSequence(int dimension, long scramblingSeed) {
+		if (dimension < 1) {
+			throw new IllegalArgumentException("Error: the dimension must be positive!");
+		}
+		this.dimension = dimension;
+		directionNumbers = new int[dimension][];
+		digitalShift = new int[dimension];
+		lastPoint = new int[dimension];
+
+		List<Integer> primitivePolynomials = getPrimitivePolynomials(dimension - 1);
+		SplittableRandom generatorForScrambling = new SplittableRandom(scramblingSeed);
+		SplittableRandom generatorForDirectionNumbers = new SplittableRandom(SEED_FOR_DIRECTION_NUMBERS);
+
+		for (int coordinate = 0; coordinate < dimension; coordinate++) {
+			int[] unscrambledDirectionNumbers;
+			if (coordinate == 0) {
+				unscrambledDirectionNumbers = getVanDerCorputDirectionNumbers();
+			} else if (coordinate < DIMENSION_WITH_JOE_KUO_DIRECTION_NUMBERS) {
+				unscrambledDirectionNumbers = getDirectionNumbers(primitivePolynomials.get(coordinate - 1),
+						INITIAL_DIRECTION_NUMBERS[coordinate - 1]);
+			} else {
+				int polynomial = primitivePolynomials.get(coordinate - 1);
+				int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+				unscrambledDirectionNumbers = getDirectionNumbers(polynomial,
+						getRandomInitialDirectionNumbers(degree, generatorForDirectionNumbers));
+			}
+			directionNumbers[coordinate] = scramble(unscrambledDirectionNumbers, generatorForScrambling);
+			digitalShift[coordinate] = generatorForScrambling.nextInt();
+		}
+	}
+
+	/**
+	 * It writes the next point of the sequence in the first dimension entries of point. The coordinates are in the
+	 * open interval (0,1).
+	 *
+	 * @param point, the array where the point is written
+	 */
+	public void getNextPoint(double[] point) {
+		if (indexOfNextPoint > 0) {
+			// Gray code: the point n differs from the point n-1 by the direction number of the lowest zero bit of n-1
+			int bitToChange = Long.numberOfTrailingZeros(~(indexOfNextPoint - 1));
+			for (int coordinate = 0; coordinate < dimension; coordinate++) {
+				lastPoint[coordinate] ^= directionNumbers[coordinate][bitToChange];
+			}
+		}
+		indexOfNextPoint++;
+		for (int coordinate = 0; coordinate < dimension; coordinate++) {
+			// unsigned value of the 32 bits, plus 0.5 so that we never get 0
+			point[coordinate] = (((lastPoint[coordinate] ^ digitalShift[coordinate]) & 0xFFFFFFFFL) + 0.5) * 0x1.0p-32;
+		}
+	}
+
+	/**
+	 * It returns the dimension of the points of the sequence
+	 *
+	 * @return the dimension of the points of the sequence
+	 */
+	public int getDimension() {
+		return dimension;
+	}
+
+	/*
+	 * For the first coordinate, v_k = 2^{-k}: written on 32 bits, 1 << (32 - k), k = 1, ..., 32
+	 */
+	private static int[] getVanDerCorputDirectionNumbers() {
+		int[] directionNumbers = new int[NUMBER_OF_BITS];
+		for (int k = 0; k < NUMBER_OF_BITS; k++) {
+			directionNumbers[k] = 1 << (NUMBER_OF_BITS - 1 - k);
+		}
+		return directionNumbers;
+	}
+
+	/*
+	 * It returns degree odd numbers m_1, ..., m_degree with m_k smaller than 2^k, drawn from the given generator.
+	 */
+	private static int[] getRandomInitialDirectionNumbers(int degree, SplittableRandom generator) {
+		int[] initialDirectionNumbers = new int[degree];
+		for (int k = 1; k <= degree; k++) {
+			initialDirectionNumbers[k - 1] = (int) (2 * generator.nextLong(1L << (k - 1)) + 1);
+		}
+		return initialDirectionNumbers;
+	}
+
+	/*
+	 * It computes the direction numbers v_k = m_k / 2^k, k = 1, ..., 32 (written on 32 bits) for a primitive polynomial
+	 * x^s + a_1 x^{s-1} + ... + a_{s-1} x + 1, given by its bits. The first s numbers m_k are the given initial ones,
+	 * which are odd and smaller than 2^k, the others are given by the recurrence
+	 * m_k = 2 a_1 m_{k-1} XOR 4 a_2 m_{k-2} XOR ... XOR 2^{s-1} a_{s-1} m_{k-s+1} XOR 2^s m_{k-s} XOR m_{k-s}
+	 */
+	private static int[] getDirectionNumbers(int polynomial, int[] initialDirectionNumbers) {
+		int degree = 31 - Integer.numberOfLeadingZeros(polynomial);
+		long[] m = new long[NUMBER_OF_BITS + 1];// we start from m[1]
+		for (int k = 1; k <= NUMBER_OF_BITS; k++) {
+			if (k <= degree) {
+				m[k] = initialDirectionNumbers[k - 1];
+			} else {
+				m[k] = m[k - degree] ^ (m[k - degree] << degree);
+				for (int i = 1; i < degree; i++) {
+					if (((polynomial >>> (degree - i)) & 1) == 1) {
+						m[k] ^= m[k - i] << i;
+					}
+				}
+			}
+		}
+		int[] directionNumbers = new int[NUMBER_OF_BITS];
+		for (int k = 1; k <= NUMBER_OF_BITS; k++) {
+			directionNumbers[k - 1] = (int) (m[k] << (NUMBER_OF_BITS - k));
+		}
+		return directionNumbers;
+	}
+
+	/*
+	 * It multiplies the direction numbers, seen as vectors of bits whose first entry is the most significant bit, by a
+	 * random lower triangular matrix with ones on the diagonal.
+	 */
+	private static int[] scramble(int[] directionNumbers, SplittableRandom generator) {
+		// rows[i] is the i-th row of the matrix: it can have ones only in the first i+1 (i.e., most significant) bits
+		int[] rows = new int[NUMBER_OF_BITS];
+		for (int i = 0; i < NUMBER_OF_BITS; i++) {
+			int diagonalBit = 1 << (NUMBER_OF_BITS - 1 - i);
+			int bitsAboveDiagonal = ~(2 * diagonalBit - 1);
+			rows[i] = (generator.nextInt() & bitsAboveDiagonal) | diagonalBit;
+		}
+		int[] scrambledDirectionNumbers = new int[NUMBER_OF_BITS];
+		for (int k = 0; k < NUMBER_OF_BITS; k++) {
+			int scrambled = 0;
+			for (int i = 0; i < NUMBER_OF_BITS; i++) {
+				int bit = Integer.bitCount(rows[i] & directionNumbers[k]) & 1;
+				scrambled |= bit << (NUMBER_OF_BITS - 1 - i);
+			}
+			scrambledDirectionNumbers[k] = scrambled;
+		}
+		return scrambledDirectionNumbers;
+	}
+
+	/*
+	 * It returns the first numberOfPolynomials primitive polynomials modulo 2, by increasing degree, as bits: the
+	 * polynomial x^3 + x + 1 is 1011.
+	 */
+	private static List<Integer> getPrimitivePolynomials(int numberOfPolynomials) {
+		List<Integer> primitivePolynomials = new ArrayList<Integer>();
+		for (int degree = 1; primitivePolynomials.size() < numberOfPolynomials; degree++) {
+			// the polynomials with degree equal to degree and constant term 1
+			for (int polynomial = (1 << degree) + 1; polynomial < (2 << degree)
+					&& primitivePolynomials.size() < numberOfPolynomials; polynomial += 2) {
+				if (isPrimitive(polynomial, degree)) {
+					primitivePolynomials.add(polynomial);
+				}
+			}
+		}
+		return primitivePolynomials;
+	}
+
+	/*
+	 * A polynomial p of degree d is primitive if x has order 2^d - 1 modulo p, i.e., if x^(2^d - 1) = 1 and
+	 * x^((2^d - 1)/q) is not 1 for any prime factor q of 2^d - 1.
+	 */
+	private static boolean isPrimitive(int polynomial, int degree) {
+		long order = (1L << degree) - 1;
+		if (getPowerOfX(order, polynomial, degree) != 1) {
+			return false;
+		}
+		long remainingFactors = order;
+		for (long factor = 2; remainingFactors > 1; factor++) {
+			if (factor * factor > remainingFactors) {
+				// what remains is prime
+				factor = remainingFactors;
+			}
+			if (remainingFactors % factor == 0) {
+				if (getPowerOfX(order / factor, polynomial, degree) == 1) {
+					return false;
+				}
+				while (remainingFactors % factor == 0) {
+					remainingFactors /= factor;
+				}
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * It computes x^exponent modulo the polynomial, with coefficients modulo 2, by repeated squaring.
+	 */
+	private static long getPowerOfX(long exponent, int polynomial, int degree) {
+		long result = 1;
+		long power = degree == 1 ? (2 ^ polynomial) : 2;// x modulo the polynomial
+		while (exponent > 0) {
+			if ((exponent & 1) == 1) {
+				result = multiplyModulo(result, power, polynomial, degree);
+			}
+			power = multiplyModulo(power, power, polynomial, degree);
+			exponent >>>= 1;
+		}
+		return result;
+	}
+
+	private static long multiplyModulo(long first, long second, int polynomial, int degree) {
+		long product = 0;
+		while (second != 0) {
+			if ((second & 1) == 1) {
+				product ^= first;
+			}
+			second >>>= 1;
+			first <<= 1;
+			if (((first >>> degree) & 1) == 1) {
+				first ^= polynomial;
+			}
+		}
+		return product;
+	}
+}
@@ -0,0 +1,216 @@
+package it.univr.montecarlo.ourmodels;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This is an abstract class for the simulation of a Black-Scholes model dX_t = r X_t dt + sigma X_t dW_t, with
+ * numeraire N_t = exp(rt), where the paths are not simulated under the risk neutral measure Q but under another
+ * measure P. The change of measure is carried by the Monte Carlo weights: getMonteCarloWeights(t) gives the
+ * realizations of (dQ/dP restricted to time t) / n, where n is the number of simulations, instead of 1/n. Since the
+ * products of the Finmath library, as EuropeanOption and BarrierOption, multiply the payoff at maturity T by the Monte
+ * Carlo weights at T, they give the right values with no changes.
+ *
+ * The logarithm of the process and the logarithm of the density are simulated together, one time step after the
+ * other, by the method evolve of the derived classes, which works on arrays of doubles. The paths are simulated all
+ * together when they are asked for the first time.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public abstract class AbstractBlackScholesModelWithWeights implements AssetModelMonteCarloSimulationModel {
+
+	protected final double initialValue;
+	protected final double riskFreeRate;
+	protected final double volatility;
+	protected final BrownianMotion brownianMotion;
+
+	// they are null until the paths are simulated
+	private volatile RandomVariable[] assetValues;
+	private RandomVariable[] monteCarloWeights;
+
+	/**
+	 * It constructs the model
+	 *
+	 * @param initialValue, the initial value X_0 of the process
+	 * @param riskFreeRate, the risk free rate r
+	 * @param volatility, the volatility sigma
+	 * @param brownianMotion, the Brownian motion under P driving the process. Its time discretization is the one of the
+	 *                        model
+	 */
+	public AbstractBlackScholesModelWithWeights(double initialValue, double riskFreeRate, double volatility,
+			BrownianMotion brownianMotion) {
+		this.initialValue = initialValue;
+		this.riskFreeRate = riskFreeRate;
+		this.volatility = volatility;
+		this.brownianMotion = brownianMotion;
+	}
+
+	/**
+	 * It overwrites the realizations of log(X_{t_{k-1}}) and log(dQ/dP) at t_{k-1} with the ones at t_k, where
+	 * k = timeIndex.
+	 *
+	 * @param logarithmsOfValues, the realizations of log(X_{t_{k-1}}), overwritten with the ones of log(X_{t_k})
+	 * @param logarithmsOfDensities, the realizations of the logarithm of dQ/dP at t_{k-1}, overwritten with the ones at
+	 *                               t_k
+	 * @param brownianIncrements, the realizations of the increment W_{t_k}-W_{t_{k-1}} of the Brownian motion under P.
+	 *                            They must not be modified
+	 * @param timeIndex, the index k of the time t_k
+	 */
+	protected abstract void evolve(double[] logarithmsOfValues, double[] logarithmsOfDensities,
+			double[] brownianIncrements, int timeIndex);
+
+	/*
+	 * It simulates the paths of the process and of the Monte Carlo weights at all the times. It is synchronized, so
+	 * that if many threads ask for the paths at the same time they are simulated only once.
+	 */
+	private synchronized void generatePaths() {
+		if (assetValues != null) {
+			return;
+		}
+		TimeDiscretization times = getTimeDiscretization();
+		int numberOfPaths = getNumberOfPaths();
+		RandomVariable[] values = new RandomVariable[times.getNumberOfTimes()];
+		RandomVariable[] weights = new RandomVariable[times.getNumberOfTimes()];
+
+		double[] logarithmsOfValues = new double[numberOfPaths];
+		double[] logarithmsOfDensities = new double[numberOfPaths];
+		Arrays.fill(logarithmsOfValues, Math.log(initialValue));
+		values[0] = new RandomVariableFromDoubleArray(times.getTime(0), initialValue);
+		weights[0] = new RandomVariableFromDoubleArray(times.getTime(0), 1.0 / numberOfPaths);
+
+		for (int timeIndex = 1; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+			evolve(logarithmsOfValues, logarithmsOfDensities,
+					brownianMotion.getBrownianIncrement(timeIndex - 1, 0).getRealizations(), timeIndex);
+			double[] valuesAtTime = new double[numberOfPaths];
+			double[] weightsAtTime = new double[numberOfPaths];
+			for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+				valuesAtTime[pathIndex] = Math.exp(logarithmsOfValues[pathIndex]);
+				weightsAtTime[pathIndex] = Math.exp(logarithmsOfDensities[pathIndex]) / numberOfPaths;
+			}
+			values[timeIndex] = new RandomVariableFromDoubleArray(times.getTime(timeIndex), valuesAtTime);
+			weights[timeIndex] = new RandomVariableFromDoubleArray(times.getTime(timeIndex), weightsAtTime);
+		}
+		monteCarloWeights = weights;
+		// it is written last and it is volatile: a thread which sees it not null also sees the weights
+		assetValues = values;
+	}
+
+	/*
+	 * It returns the time index of the largest time of the time discretization which is smaller or equal than the given
+	 * time, as in the models of the Finmath library.
+	 */
+	private int getTimeIndexForTime(double time) {
+		int timeIndex = getTimeIndex(time);
+		return timeIndex < 0 ? -timeIndex - 2 : timeIndex;
+	}
+
+	@Override
+	public int getNumberOfAssets() {
+		return 1;
+	}
+
+	@Override
+	public RandomVariable getAssetValue(int timeIndex, int assetIndex) {
+		if (assetValues == null) {
+			generatePaths();
+		}
+		return assetValues[timeIndex];
+	}
+
+	@Override
+	public RandomVariable getAssetValue(double time, int assetIndex) {
+		return getAssetValue(getTimeIndexForTime(time), assetIndex);
+	}
+
+	@Override
+	public RandomVariable getNumeraire(int timeIndex) {
+		return getNumeraire(getTime(timeIndex));
+	}
+
+	@Override
+	public RandomVariable getNumeraire(double time) {
+		return new RandomVariableFromDoubleArray(time, Math.exp(riskFreeRate * time));
+	}
+
+	@Override
+	public RandomVariable getMonteCarloWeights(int timeIndex) {
+		if (assetValues == null) {
+			generatePaths();
+		}
+		return monteCarloWeights[timeIndex];
+	}
+
+	@Override
+	public RandomVariable getMonteCarloWeights(double time) {
+		return getMonteCarloWeights(getTimeIndexForTime(time));
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return brownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return brownianMotion.getTimeDiscretization();
+	}
+
+	@Override
+	public double getTime(int timeIndex) {
+		return getTimeDiscretization().getTime(timeIndex);
+	}
+
+	@Override
+	public int getTimeIndex(double time) {
+		return getTimeDiscretization().getTimeIndex(time);
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return new RandomVariableFromDoubleArray(value);
+	}
+
+	@Override
+	public AssetModelMonteCarloSimulationModel getCloneWithModifiedSeed(int seed) {
+		return getCloneWithModifiedBrownianMotion(brownianMotion.getCloneWithModifiedSeed(seed));
+	}
+
+	/**
+	 * It returns a clone of the model where the initial value, the risk free rate and the volatility are replaced by
+	 * the values for the keys "initialValue", "riskFreeRate" and "volatility" of the map, if they are present. The
+	 * Brownian motion is the same.
+	 */
+	@Override
+	public AssetModelMonteCarloSimulationModel getCloneWithModifiedData(Map<String, Object> dataModified) {
+		double newInitialValue = ((Number) dataModified.getOrDefault("initialValue", initialValue)).doubleValue();
+		double newRiskFreeRate = ((Number) dataModified.getOrDefault("riskFreeRate", riskFreeRate)).doubleValue();
+		double newVolatility = ((Number) dataModified.getOrDefault("volatility", volatility)).doubleValue();
+		return getCloneWithModifiedParameters(newInitialValue, newRiskFreeRate, newVolatility);
+	}
+
+	/**
+	 * It returns a clone of the model driven by another Brownian motion
+	 *
+	 * @param brownianMotion, the Brownian motion driving the clone
+	 * @return the clone of the model
+	 */
+	protected abstract AssetModelMonteCarloSimulationModel getCloneWithModifiedBrownianMotion(BrownianMotion brownianMotion);
+
+	/**
+	 * It returns a clone of the model with other initial value, risk free rate and volatility
+	 *
+	 * @param initialValue, the initial value of the clone
+	 * @param riskFreeRate, the risk free rate of the clone
+	 * @param volatility, the volatility of the clone
+	 * @return the clone of the model
+	 */
+	protected abstract AssetModelMonteCarloSimulationModel getCloneWithModifiedParameters(double initialValue,
+			double riskFreeRate, double volatility);
+}
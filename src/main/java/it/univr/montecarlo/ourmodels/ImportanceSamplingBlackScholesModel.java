@@ -0,0 +1,94 @@
+package it.univr.montecarlo.ourmodels;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+
+/**
+ * This class simulates a Black-Scholes model dX_t = r X_t dt + sigma X_t dW_t by importance sampling: the drift of
+ * the Brownian motion is shifted by a constant theta. By Girsanov's theorem, under the measure P with
+ * dQ/dP = exp(-theta B_t - theta^2 t/2) at time t, where B is a Brownian motion under P, the process W_t = B_t + theta t
+ * is a Brownian motion under Q. We then simulate
+ * log(X_{t_k}) = log(X_{t_{k-1}}) + (r - sigma^2/2)(t_k-t_{k-1}) + sigma (B_{t_k}-B_{t_{k-1}} + theta (t_k-t_{k-1})),
+ * and dQ/dP enters the Monte Carlo weights.
+ *
+ * This is useful when the payoff is zero for most of the trajectories under Q, for example for a call option which is
+ * deep out of the money: with theta > 0 more trajectories end up in the money, and their payoffs are multiplied by
+ * dQ/dP, which is small on them. A good choice is the theta for which the median of X_T under P is the strike, see
+ * getDriftShiftForStrike.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class ImportanceSamplingBlackScholesModel extends AbstractBlackScholesModelWithWeights {
+
+	private final double driftShift;// theta
+
+	/**
+	 * It constructs the model
+	 *
+	 * @param initialValue, the initial value X_0 of the process
+	 * @param riskFreeRate, the risk free rate r
+	 * @param volatility, the volatility sigma
+	 * @param driftShift, the shift theta of the drift of the Brownian motion
+	 * @param brownianMotion, the Brownian motion B under P
+	 */
+	public ImportanceSamplingBlackScholesModel(double initialValue, double riskFreeRate, double volatility,
+			double driftShift, BrownianMotion brownianMotion) {
+		super(initialValue, riskFreeRate, volatility, brownianMotion);
+		this.driftShift = driftShift;
+	}
+
+	/**
+	 * It returns the shift theta of the drift of the Brownian motion for which the median of X_T under the simulation
+	 * measure is a given strike, i.e., log(K/X_0) = (r - sigma^2/2)T + sigma theta T.
+	 *
+	 * @param initialValue, the initial value X_0 of the process
+	 * @param riskFreeRate, the risk free rate r
+	 * @param volatility, the volatility sigma
+	 * @param maturity, the maturity T
+	 * @param strike, the strike K
+	 * @return the shift of the drift
+	 */
+	public static double getDriftShiftForStrike(double initialValue, double riskFreeRate, double volatility,
+			double maturity, double strike) {
+		return (Math.log(strike / initialValue) - (riskFreeRate - 0.5 * volatility * volatility) * maturity)
+				/ (volatility * maturity);
+	}
+
+	/*
+	 * The logarithm of the process gets the shifted increment, and the one of dQ/dP gets
+	 * -theta (B_{t_k}-B_{t_{k-1}}) - theta^2/2 (t_k-t_{k-1}).
+	 */
+	@Override
+	protected void evolve(double[] logarithmsOfValues, double[] logarithmsOfDensities, double[] brownianIncrements,
+			int timeIndex) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		double drift = (riskFreeRate - 0.5 * volatility * volatility) * timeStep + volatility * driftShift * timeStep;
+		double driftOfLogarithmOfDensity = -0.5 * driftShift * driftShift * timeStep;
+		for (int pathIndex = 0; pathIndex < logarithmsOfValues.length; pathIndex++) {
+			double brownianIncrement = brownianIncrements[pathIndex];
+			logarithmsOfValues[pathIndex] += drift + volatility * brownianIncrement;
+			logarithmsOfDensities[pathIndex] += driftOfLogarithmOfDensity - driftShift * brownianIncrement;
+		}
+	}
+
+	/**
+	 * It returns the shift theta of the drift of the Brownian motion
+	 *
+	 * @return the shift of the drift
+	 */
+	public double getDriftShift() {
+		return driftShift;
+	}
+
+	@Override
+	protected AssetModelMonteCarloSimulationModel getCloneWithModifiedBrownianMotion(BrownianMotion brownianMotion) {
+		return new ImportanceSamplingBlackScholesModel(initialValue, riskFreeRate, volatility, driftShift, brownianMotion);
+	}
+
+	@Override
+	protected AssetModelMonteCarloSimulationModel getCloneWithModifiedParameters(double initialValue,
+			double riskFreeRate, double volatility) {
+		return new ImportanceSamplingBlackScholesModel(initialValue, riskFreeRate, volatility, driftShift, brownianMotion);
+	}
+}
@@ -0,0 +1,98 @@
+package it.univr.montecarlo.ourmodels;
+
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+
+/**
+ * This class simulates a Black-Scholes model dX_t = r X_t dt + sigma X_t dW_t conditioned to stay in a corridor
+ * [B_L,B_U] at all the times of the time discretization, for the valuation of knock-out options by one step survival.
+ *
+ * At every time step, given X_{t_{k-1}}, the probability that X_{t_k} is in [B_L,B_U] is p_k = Phi(b_k) - Phi(a_k),
+ * where a_k and b_k are the values of the standard normal random variable Z driving the step for which X_{t_k} is B_L
+ * and B_U, respectively. Instead of Z, we take the standard normal random variable conditioned to be in [a_k,b_k],
+ * Phi^{-1}(Phi(a_k) + U (Phi(b_k) - Phi(a_k))), where U = Phi(Z) is uniform. In this way, all the trajectories stay
+ * inside the barriers, and the Monte Carlo weight at t_k is the probability p_1 p_2 ... p_k that the trajectory of
+ * the original process survives up to t_k, divided by the number of simulations.
+ *
+ * A BarrierOption with the same barriers, valued with this model, does not knock out any trajectory and multiplies
+ * its payoff by the survival probability: this has much smaller variance than the standard estimator when the
+ * barriers are close to the initial value, since no trajectory is lost. Note that this model gives the right values
+ * only for the products which are zero when the process leaves the corridor at a time of the time discretization.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class OneStepSurvivalBlackScholesModel extends AbstractBlackScholesModelWithWeights {
+
+	private final double lowerBarrier;
+	private final double upperBarrier;
+
+	/**
+	 * It constructs the model
+	 *
+	 * @param initialValue, the initial value X_0 of the process, which must be inside the barriers
+	 * @param riskFreeRate, the risk free rate r
+	 * @param volatility, the volatility sigma
+	 * @param lowerBarrier, the lower barrier B_L: it can be 0 if there is no lower barrier
+	 * @param upperBarrier, the upper barrier B_U: it can be Double.POSITIVE_INFINITY if there is no upper barrier
+	 * @param brownianMotion, the Brownian motion giving the uniform random variables U = Phi(Z)
+	 */
+	public OneStepSurvivalBlackScholesModel(double initialValue, double riskFreeRate, double volatility,
+			double lowerBarrier, double upperBarrier, BrownianMotion brownianMotion) {
+		super(initialValue, riskFreeRate, volatility, brownianMotion);
+		if (!(initialValue >= lowerBarrier && initialValue <= upperBarrier)) {
+			throw new IllegalArgumentException("Error: the initial value must be inside the barriers!");
+		}
+		this.lowerBarrier = lowerBarrier;
+		this.upperBarrier = upperBarrier;
+	}
+
+	/*
+	 * The logarithm of the process gets the conditioned increment, and the one of the weight gets log(p_k).
+	 */
+	@Override
+	protected void evolve(double[] logarithmsOfValues, double[] logarithmsOfDensities, double[] brownianIncrements,
+			int timeIndex) {
+		double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+		double drift = (riskFreeRate - 0.5 * volatility * volatility) * timeStep;
+		double standardDeviation = volatility * Math.sqrt(timeStep);
+		// they are -infinity and infinity if there are no barriers, and then Phi is 0 and 1
+		double logarithmOfLowerBarrier = Math.log(lowerBarrier);
+		double logarithmOfUpperBarrier = Math.log(upperBarrier);
+		for (int pathIndex = 0; pathIndex < logarithmsOfValues.length; pathIndex++) {
+			double logarithmOfLastValue = logarithmsOfValues[pathIndex];
+			double lowerBound = (logarithmOfLowerBarrier - logarithmOfLastValue - drift) / standardDeviation;
+			double upperBound = (logarithmOfUpperBarrier - logarithmOfLastValue - drift) / standardDeviation;
+			double probabilityBelowLowerBound = NormalDistribution.cumulativeDistribution(lowerBound);
+			double survivalProbability = NormalDistribution.cumulativeDistribution(upperBound) - probabilityBelowLowerBound;
+			if (!(survivalProbability > 0)) {
+				// the trajectory (almost) surely knocks out: its weight is 0, and its value is not changed
+				logarithmsOfDensities[pathIndex] = Double.NEGATIVE_INFINITY;
+				continue;
+			}
+			double uniform = NormalDistribution.cumulativeDistribution(brownianIncrements[pathIndex] / Math.sqrt(timeStep));
+			double conditionedNormal = NormalDistribution.inverseCumulativeDistribution(probabilityBelowLowerBound
+					+ uniform * survivalProbability);
+			// the approximations of Phi and of its inverse could give a value slightly outside of the bounds
+			conditionedNormal = Math.min(Math.max(conditionedNormal, lowerBound), upperBound);
+			double logarithmOfValue = logarithmOfLastValue + drift + standardDeviation * conditionedNormal;
+			logarithmsOfValues[pathIndex] = Math.min(Math.max(logarithmOfValue, logarithmOfLowerBarrier),
+					logarithmOfUpperBarrier);
+			logarithmsOfDensities[pathIndex] += Math.log(survivalProbability);
+		}
+	}
+
+	@Override
+	protected AssetModelMonteCarloSimulationModel getCloneWithModifiedBrownianMotion(BrownianMotion brownianMotion) {
+		return new OneStepSurvivalBlackScholesModel(initialValue, riskFreeRate, volatility, lowerBarrier, upperBarrier,
+				brownianMotion);
+	}
+
+	@Override
+	protected AssetModelMonteCarloSimulationModel getCloneWithModifiedParameters(double initialValue,
+			double riskFreeRate, double volatility) {
+		return new OneStepSurvivalBlackScholesModel(initialValue, riskFreeRate, volatility, lowerBarrier, upperBarrier,
+				brownianMotion);
+	}
+}
@@ -1,6 +1,7 @@
 package it.univr.montecarlo.ourproducts;
 
-import java.util.function.DoubleUnaryOperator;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
 
 import net.finmath.exception.CalculationException;
 import net.finmath.montecarlo.RandomVariableFromDoubleArray;
@@ -20,9 +21,21 @@ import net.finmath.time.TimeDiscretization;
  * 
  * We do that exploiting the methods of the interface AssetModelMonteCarloSimulationModel.
  *
+ * The barriers are checked at the times of the time discretization of the model. If the option is constructed with a
+ * volatility for the Brownian bridge, the continuous monitoring is approximated by multiplying the payoff of every
+ * trajectory by the probability that the logarithm of the underlying, as a Brownian bridge with that volatility
+ * between the values at two consecutive times, does not cross the barriers: for a lower barrier, this is
+ * 1-exp(-2 log(X_{t_k}/B_L) log(X_{t_{k+1}}/B_L)/(sigma^2 (t_{k+1}-t_k))), and the same with B_U/X for an upper
+ * barrier. When there are both barriers, the two probabilities are multiplied, which is a good approximation unless
+ * the barriers are very close. In this way, a coarse time discretization is enough for a continuously monitored
+ * barrier.
+ *
+ * The option also implements TimeSliceProduct, so that it can be valued by a PortfolioValuationExecutor together with
+ * other products, reading the time slices of the model once for all of them.
+ *
  * @author Andrea Mazzon
  */
-public class BarrierOption extends AbstractAssetMonteCarloProduct {
+public class BarrierOption extends AbstractAssetMonteCarloProduct implements TimeSliceProduct {
 
 	private double maturity;
 	private double strike;
@@ -30,6 +43,9 @@ public class BarrierOption extends AbstractAssetMonteCarloProduct {
 	private double upperBarrier;
 	private int underlyingIndex;
 
+	// if it is positive, the barriers are corrected by the probability that the Brownian bridge does not cross them
+	private double volatilityForBrownianBridge;
+
 	/**
 	 * It constructs an object representing a barrier, European call option on an underlying X.
 	 * @param maturity The maturity T in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
@@ -45,9 +61,28 @@ public class BarrierOption extends AbstractAssetMonteCarloProduct {
 		this.upperBarrier = upperBarrier;
 		this.underlyingIndex = underlyingIndex;
 	}
-	
 
-	
+
+	/**
+	 * It constructs an object representing a barrier, European call option on an underlying X, whose barriers are
+	 * monitored continuously: between two times of the time discretization of the model, the probability that the
+	 * underlying crosses the barriers is computed supposing that its logarithm is a Brownian bridge.
+	 * @param maturity The maturity T in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param strike The strike K in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param lowerBarrier the lower barrier B_L in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param upperBarrier the upper barrier B_U in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param underlyingIndex it identifies the underlying if model in getValue is multi-dimensional
+	 * @param volatilityForBrownianBridge the volatility of the logarithm of the underlying between two times
+	 */
+	public BarrierOption(double maturity, double strike, double lowerBarrier, double upperBarrier, int underlyingIndex,
+			double volatilityForBrownianBridge) {
+		this(maturity, strike, lowerBarrier, upperBarrier, underlyingIndex);
+		if (volatilityForBrownianBridge <= 0) {
+			throw new IllegalArgumentException("Error: the volatility for the Brownian bridge must be positive!");
+		}
+		this.volatilityForBrownianBridge = volatilityForBrownianBridge;
+	}
+
 	/**
 	 * It constructs an object representing a barrier, European call option on an underlying X.
 	 * @param maturity The maturity T in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
@@ -79,49 +114,79 @@ public class BarrierOption extends AbstractAssetMonteCarloProduct {
 		
 		TimeDiscretization timeDiscretizationOfTheUnderlying = model.getTimeDiscretization();
 		double[] discretizedTimes = timeDiscretizationOfTheUnderlying.getAsDoubleArray();
-		
+
+		int numberOfPaths = model.getNumberOfPaths();
+
 		/*
-		 * At the beginning, it is 1 for all simulated trajectories. It will be 0 for those trajectories
-		 * which exit the interval [B_L,B_U]
+		 * The bit i % 64 of isAlive[i / 64] is 1 if the trajectory omega_i has not exited the interval [B_L,B_U] yet:
+		 * at the beginning, it is 1 for all simulated trajectories. In this way we do not construct a random variable
+		 * with the indicator function for every time, and we do not look anymore at the trajectories which are
+		 * already knocked out.
 		 */
-		RandomVariable insideBarriersAtAllTimes = new RandomVariableFromDoubleArray(1.0);
-		
+		long[] isAlive = getAllTrajectoriesAlive(numberOfPaths);
+
 		/*
-		 * 1_{B_L <= X_{t_i}(omega_j)<= B_U for all i=0,1,...,k+1} =
-		 * 1_{B_L <= X_{t_{i}}(omega_j)<= B_U for all i=0,1,...,k}1_{B_L <= X_{t_{k+1}}(omega_j)<= B_U}
+		 * Used only for the Brownian bridge correction: the probabilities that the trajectories have not crossed the
+		 * barriers between the times where they are checked, and the logarithms of the last values of the trajectories.
 		 */
-		DoubleUnaryOperator indicatorFunction = x -> (x>=lowerBarrier & x<=upperBarrier ? 1.0 : 0.0);
-		//we check all times
+		double[] survivalProbabilities = null;
+		double[] logarithmsOfLastValues = null;
+		if (volatilityForBrownianBridge > 0) {
+			survivalProbabilities = new double[numberOfPaths];
+			Arrays.fill(survivalProbabilities, 1.0);
+			logarithmsOfLastValues = new double[numberOfPaths];
+		}
+
+		//we check all times up to maturity, unless all the trajectories have been knocked out
+		double lastTime = Double.NaN;
 		for (double currentTime : discretizedTimes) {
 			currentTime = Math.min(currentTime, maturity);
-			//this will give an object of type RandomVariable representing the array 
+			//this will give an object of type RandomVariable representing the array
 			//(X_{t_{k+1}}(omega_0),X_{t_{k+1}}(omega_1),...,X_{t_{k+1}}(omega_m))
 			RandomVariable realizationsAtCurrentTime = model.getAssetValue(currentTime, underlyingIndex);
-			//1_{B_L<=X_{t_{k+1}}(omega_j}<=B_U} for any simulation omega_j if t_{k+1} is the current time
-			RandomVariable realizationsAtCurrentTimeInsideBarrier = realizationsAtCurrentTime.apply(indicatorFunction);
-			
-			/*
-			 * Here we update insideBarriersAtAllTimes: its old value (that is, the one that is taken at the right) is
-			 * 1_{B_L<=X_{t_i}(omega_j}<=B_U for any 0 <= i <= k} for any simulation omega_j if t_{k+1} is the current time.
-			 * It gets updated by multiplication with realizationsAtCurrentTimeInsideBarrier, so it is now
-			 * 1_{B_L<=X_{t_i}(omega_j}<=B_U for any 0 <= i <= k+1} for any simulation omega_j if t_{k+1} is the current time
-			 */
-			insideBarriersAtAllTimes = insideBarriersAtAllTimes.mult(realizationsAtCurrentTimeInsideBarrier);
+			// at the first time there is no Brownian bridge before
+			double timeStep = Double.isNaN(lastTime) ? 0.0 : currentTime - lastTime;
+			int numberOfAlivePaths = knockOut(isAlive, 0, isAlive.length, realizationsAtCurrentTime, timeStep,
+					survivalProbabilities, logarithmsOfLastValues);
+			if (numberOfAlivePaths == 0 || currentTime == maturity) {
+				break;
+			}
+			lastTime = currentTime;
 		}
 
+		return getDiscountedPayoffs(evaluationTime, model, isAlive, survivalProbabilities);
+	}
+
+	/*
+	 * It returns the payoffs of the trajectories whose bit in isAlive is 1, multiplied by their survival probabilities
+	 * if they are not null, discounted to evaluation time. The payoffs of the other trajectories are 0.
+	 */
+	private RandomVariable getDiscountedPayoffs(double evaluationTime, AssetModelMonteCarloSimulationModel model,
+			long[] isAlive, double[] survivalProbabilities) throws CalculationException {
+		int numberOfPaths = model.getNumberOfPaths();
+
 		/*
-		 * From now on, this is the Finmath library implementation of European option apart from the point where
-		 * we multiply values by insideBarriersAtAllTimes.
+		 * From now on, this is the Finmath library implementation of European option, apart from the payoff: it is
+		 * computed only for the trajectories whose bit in isAlive is 1, that is, which have not been knocked out (the
+		 * loop over the time steps stops as soon as no trajectory is alive), and it is 0 for the others.
 		 */
 		// Get underlying and numeraire
 
 		// Get X(T)
 		final RandomVariable underlyingAtMaturity	= model.getAssetValue(maturity, underlyingIndex);
 
-		// The payoff: values = max(underlying - strike, 0) = V(T) = max(X(T)-K,0)
-		RandomVariable values = underlyingAtMaturity.sub(strike).floor(0.0);
-
-		values = values.mult(insideBarriersAtAllTimes);
+		/*
+		 * The payoff: values = max(underlying - strike, 0) = V(T) = max(X(T)-K,0) for the trajectories which have
+		 * always been inside the barriers, 0 for the others.
+		 */
+		double[] payoffs = new double[numberOfPaths];
+		forEachAlivePath(isAlive,
+				pathIndex -> payoffs[pathIndex] = Math.max(underlyingAtMaturity.get(pathIndex) - strike, 0.0));
+		if (survivalProbabilities != null) {
+			double[] probabilities = survivalProbabilities;
+			forEachAlivePath(isAlive, pathIndex -> payoffs[pathIndex] *= probabilities[pathIndex]);
+		}
+		RandomVariable values = new RandomVariableFromDoubleArray(maturity, payoffs);
 		// Discounting...
 		final RandomVariable numeraireAtMaturity	= model.getNumeraire(maturity);
 		final RandomVariable monteCarloWeights		= model.getMonteCarloWeights(maturity);
@@ -136,4 +201,167 @@ public class BarrierOption extends AbstractAssetMonteCarloProduct {
 
 	}
 
+	@Override
+	public TimeSliceValuation getTimeSliceValuation(double evaluationTime, AssetModelMonteCarloSimulationModel model) {
+		return new TimeSliceValuationOfBarrierOption(evaluationTime, model);
+	}
+
+	/*
+	 * The valuation of the option by time slices: the slices are checked by knockOut as in getValue, on the words of
+	 * isAlive of the trajectories given to visit.
+	 */
+	private class TimeSliceValuationOfBarrierOption implements TimeSliceValuation {
+
+		private final double evaluationTime;
+		private final AssetModelMonteCarloSimulationModel model;
+		private final int lastTimeIndex;
+
+		private final long[] isAlive;
+		private final double[] survivalProbabilities;
+		private final double[] logarithmsOfLastValues;
+
+		// the slice which is visited, and the time from the last one
+		private RandomVariable realizationsAtCurrentTime;
+		private double timeStep;
+		/*
+		 * If the maturity is not a time of the time discretization, getValue checks the slice before maturity once more
+		 * for the Brownian bridge up to maturity: this is the time from the slice to maturity, and 0 otherwise.
+		 */
+		private double timeStepToMaturity;
+
+		TimeSliceValuationOfBarrierOption(double evaluationTime, AssetModelMonteCarloSimulationModel model) {
+			this.evaluationTime = evaluationTime;
+			this.model = model;
+			int maturityIndex = model.getTimeIndex(maturity);
+			// the index of the last time which is not after maturity, as for model.getAssetValue(maturity, ...)
+			lastTimeIndex = maturityIndex >= 0 ? maturityIndex : -maturityIndex - 2;
+
+			int numberOfPaths = model.getNumberOfPaths();
+			isAlive = getAllTrajectoriesAlive(numberOfPaths);
+			if (volatilityForBrownianBridge > 0) {
+				survivalProbabilities = new double[numberOfPaths];
+				Arrays.fill(survivalProbabilities, 1.0);
+				logarithmsOfLastValues = new double[numberOfPaths];
+			} else {
+				survivalProbabilities = null;
+				logarithmsOfLastValues = null;
+			}
+		}
+
+		@Override
+		public int getLastTimeIndex() {
+			return lastTimeIndex;
+		}
+
+		@Override
+		public void startTimeSlice(int timeIndex) throws CalculationException {
+			realizationsAtCurrentTime = model.getAssetValue(timeIndex, underlyingIndex);
+			timeStep = timeIndex == 0 ? 0.0 : model.getTime(timeIndex) - model.getTime(timeIndex - 1);
+			boolean isMaturityBeforeNextTime = timeIndex == lastTimeIndex && model.getTime(timeIndex) < maturity
+					&& timeIndex + 1 < model.getTimeDiscretization().getNumberOfTimes();
+			timeStepToMaturity = isMaturityBeforeNextTime ? maturity - model.getTime(timeIndex) : 0.0;
+		}
+
+		@Override
+		public void visit(int firstPath, int endPath) {
+			int firstWordIndex = firstPath / 64;
+			int endWordIndex = (endPath + 63) / 64;
+			knockOut(isAlive, firstWordIndex, endWordIndex, realizationsAtCurrentTime, timeStep, survivalProbabilities,
+					logarithmsOfLastValues);
+			if (timeStepToMaturity > 0) {
+				knockOut(isAlive, firstWordIndex, endWordIndex, realizationsAtCurrentTime, timeStepToMaturity,
+						survivalProbabilities, logarithmsOfLastValues);
+			}
+		}
+
+		@Override
+		public RandomVariable getValues() throws CalculationException {
+			return getDiscountedPayoffs(evaluationTime, model, isAlive, survivalProbabilities);
+		}
+	}
+
+	// it returns the bits of isAlive, all equal to 1 for the numberOfPaths trajectories
+	private static long[] getAllTrajectoriesAlive(int numberOfPaths) {
+		long[] isAlive = new long[(numberOfPaths + 63) / 64];
+		Arrays.fill(isAlive, -1L);
+		if (numberOfPaths % 64 != 0) {
+			isAlive[isAlive.length - 1] = (1L << (numberOfPaths % 64)) - 1;
+		}
+		return isAlive;
+	}
+
+	/*
+	 * It sets to 0 the bits of isAlive of the trajectories which are alive but whose realization is outside of
+	 * [B_L,B_U], and returns the number of trajectories which are still alive. Only the words of isAlive from
+	 * firstWordIndex to endWordIndex - 1 are considered, so that different words can be checked by
+	 * different threads. Only the realizations of the alive trajectories are read, and the words of isAlive which are 0
+	 * are skipped.
+	 * If survivalProbabilities is not null, the ones of the alive trajectories are also multiplied by the probability
+	 * that the Brownian bridge from the last realization, whose logarithm is in logarithmsOfLastValues, to the current
+	 * one does not cross the barriers, if timeStep is positive. The logarithms of the current realizations are then
+	 * written in logarithmsOfLastValues.
+	 */
+	private int knockOut(long[] isAlive, int firstWordIndex, int endWordIndex, RandomVariable realizations,
+			double timeStep, double[] survivalProbabilities, double[] logarithmsOfLastValues) {
+		// for RandomVariableFromDoubleArray, this is the array of the realizations itself: no copy is made
+		double[] values = realizations.isDeterministic() ? null : realizations.getRealizations();
+		double deterministicValue = realizations.isDeterministic() ? realizations.get(0) : Double.NaN;
+
+		boolean isCorrected = survivalProbabilities != null;
+		boolean isBridgeToBeComputed = isCorrected && timeStep > 0;
+		// a barrier which cannot be reached does not change the probability
+		boolean hasLowerBarrier = lowerBarrier > 0;
+		boolean hasUpperBarrier = upperBarrier < Double.POSITIVE_INFINITY;
+		double logarithmOfLowerBarrier = Math.log(lowerBarrier);
+		double logarithmOfUpperBarrier = Math.log(upperBarrier);
+		double minusTwoOverVariance = -2.0 / (volatilityForBrownianBridge * volatilityForBrownianBridge * timeStep);
+
+		int numberOfAlivePaths = 0;
+		for (int wordIndex = firstWordIndex; wordIndex < endWordIndex; wordIndex++) {
+			long word = isAlive[wordIndex];
+			long bitsToCheck = word;
+			while (bitsToCheck != 0) {
+				int bitIndex = Long.numberOfTrailingZeros(bitsToCheck);
+				bitsToCheck &= bitsToCheck - 1;
+				int pathIndex = wordIndex * 64 + bitIndex;
+				double value = values == null ? deterministicValue : values[pathIndex];
+				// this is also true if value is NaN, as for the indicator function 1_{B_L <= x <= B_U}
+				if (!(value >= lowerBarrier && value <= upperBarrier)) {
+					word &= ~(1L << bitIndex);
+					continue;
+				}
+				if (isCorrected) {
+					double logarithmOfValue = Math.log(value);
+					if (isBridgeToBeComputed) {
+						double logarithmOfLastValue = logarithmsOfLastValues[pathIndex];
+						double probability = 1.0;
+						if (hasLowerBarrier) {
+							probability *= 1.0 - Math.exp(minusTwoOverVariance * (logarithmOfLastValue - logarithmOfLowerBarrier)
+									* (logarithmOfValue - logarithmOfLowerBarrier));
+						}
+						if (hasUpperBarrier) {
+							probability *= 1.0 - Math.exp(minusTwoOverVariance * (logarithmOfUpperBarrier - logarithmOfLastValue)
+									* (logarithmOfUpperBarrier - logarithmOfValue));
+						}
+						survivalProbabilities[pathIndex] *= probability;
+					}
+					logarithmsOfLastValues[pathIndex] = logarithmOfValue;
+				}
+			}
+			isAlive[wordIndex] = word;
+			numberOfAlivePaths += Long.bitCount(word);
+		}
+		return numberOfAlivePaths;
+	}
+
+	// it calls the given action for the index of every trajectory whose bit in isAlive is 1
+	private static void forEachAlivePath(long[] isAlive, IntConsumer action) {
+		for (int wordIndex = 0; wordIndex < isAlive.length; wordIndex++) {
+			long word = isAlive[wordIndex];
+			while (word != 0) {
+				action.accept(wordIndex * 64 + Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import it.univr.montecarlo.estimators.MonteCarloEstimate;
+import it.univr.montecarlo.estimators.RunningStatistics;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class computes the value and the Greeks delta, gamma and vega at time 0 of the option with payoff
+ * (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]} as for BarrierOption, when X is a Black-Scholes process with given
+ * interest rate r and volatility sigma, going through the paths of the model only once. No other simulation is
+ * needed, differently than for bump-and-revalue, which needs two more simulations for every Greek.
+ *
+ * If the option has no barriers, i.e., if B_L <= 0 and B_U is infinite, the payoff is a Lipschitz function of X_T, and
+ * delta and vega are computed by the pathwise method, i.e., by differentiating the payoff of every trajectory:
+ * dX_T/dX_0 = X_T/X_0 and dX_T/dsigma = X_T (log(X_T/X_0) - (r+sigma^2/2)T)/sigma. Since the derivative of the payoff
+ * is not continuous, gamma is computed by differentiating the pathwise delta by the likelihood ratio method, with the
+ * derivative of the logarithm of the density of X_T with respect to X_0, i.e., W_T/(X_0 sigma T).
+ *
+ * If the option has barriers, the payoff is not continuous in the path and the pathwise method does not see the
+ * trajectories which are knocked out by a small change of the parameters. The Greeks are then computed by the
+ * likelihood ratio method: the payoff of every trajectory is multiplied by the derivative of the logarithm of the
+ * density of the path with respect to the parameter. Called Z_k the standard normal random variable driving the
+ * k-th step, of length h_k, we have the weight Z_1/(X_0 sigma sqrt(h_1)) for delta,
+ * (Z_1^2 - 1 - Z_1 sigma sqrt(h_1))/(X_0^2 sigma^2 h_1) for gamma and the sum of (Z_k^2-1)/sigma - Z_k sqrt(h_k) for
+ * vega. The random variables Z_k are computed from the paths of the model. The barriers are checked at the times of
+ * the time discretization of the model, as for BarrierOption without Brownian bridge correction.
+ *
+ * @author Andrea Mazzon
+ */
+public class BarrierOptionGreeks {
+
+	private final double maturity;
+	private final double strike;
+	private final double lowerBarrier;
+	private final double upperBarrier;
+	private final int underlyingIndex;
+
+	/**
+	 * It constructs an object computing the Greeks of a barrier, European call option on an underlying X.
+	 *
+	 * @param maturity, the maturity T in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param strike, the strike K in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param lowerBarrier, the lower barrier B_L in the option payoff: it can be 0 if there is no lower barrier
+	 * @param upperBarrier, the upper barrier B_U in the option payoff: it can be Double.POSITIVE_INFINITY if there is no
+	 *                      upper barrier
+	 * @param underlyingIndex, it identifies the underlying if the model is multi-dimensional
+	 */
+	public BarrierOptionGreeks(double maturity, double strike, double lowerBarrier, double upperBarrier,
+			int underlyingIndex) {
+		this.maturity = maturity;
+		this.strike = strike;
+		this.lowerBarrier = lowerBarrier;
+		this.upperBarrier = upperBarrier;
+		this.underlyingIndex = underlyingIndex;
+	}
+
+	/**
+	 * It constructs an object computing the Greeks of a barrier, European call option on the first underlying.
+	 *
+	 * @param maturity, the maturity T in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param strike, the strike K in the option payoff (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}
+	 * @param lowerBarrier, the lower barrier B_L in the option payoff: it can be 0 if there is no lower barrier
+	 * @param upperBarrier, the upper barrier B_U in the option payoff: it can be Double.POSITIVE_INFINITY if there is no
+	 *                      upper barrier
+	 */
+	public BarrierOptionGreeks(double maturity, double strike, double lowerBarrier, double upperBarrier) {
+		this(maturity, strike, lowerBarrier, upperBarrier, 0);
+	}
+
+	/**
+	 * It returns the value, delta, gamma and vega at time 0 of the option, together with their standard errors,
+	 * computed from the paths of the given model.
+	 *
+	 * @param model, the model giving the paths of the underlying, which has to be a Black-Scholes process
+	 * @param riskFreeRate, the risk free rate r of the Black-Scholes process
+	 * @param volatility, the volatility sigma of the Black-Scholes process
+	 * @return a map with the estimates of "value", "delta", "gamma" and "vega"
+	 * @throws CalculationException
+	 */
+	public Map<String, MonteCarloEstimate> getGreeks(AssetModelMonteCarloSimulationModel model, double riskFreeRate,
+			double volatility) throws CalculationException {
+		long startTime = System.currentTimeMillis();
+
+		int maturityIndex = model.getTimeIndex(maturity);
+		if (maturityIndex <= 0) {
+			throw new IllegalArgumentException("Error: the maturity must be a positive time of the time discretization of the model!");
+		}
+		int numberOfPaths = model.getNumberOfPaths();
+		double initialValue = model.getAssetValue(0, underlyingIndex).get(0);
+		boolean hasBarriers = lowerBarrier > 0 || upperBarrier < Double.POSITIVE_INFINITY;
+
+		boolean[] isAlive = new boolean[numberOfPaths];
+		// Z_1 of every trajectory and the sum of the weights for vega, only for the likelihood ratio method
+		double[] firstIncrements = hasBarriers ? new double[numberOfPaths] : null;
+		double[] vegaWeights = hasBarriers ? new double[numberOfPaths] : null;
+
+		double[] lastValues = new double[numberOfPaths];
+		RandomVariable initialRealizations = model.getAssetValue(0, underlyingIndex);
+		for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+			lastValues[pathIndex] = initialRealizations.get(pathIndex);
+			isAlive[pathIndex] = lastValues[pathIndex] >= lowerBarrier && lastValues[pathIndex] <= upperBarrier;
+		}
+
+		// with no barriers, only the value at maturity is needed
+		for (int timeIndex = hasBarriers ? 1 : maturityIndex + 1; timeIndex <= maturityIndex; timeIndex++) {
+			double timeStep = model.getTime(timeIndex) - model.getTime(timeIndex - 1);
+			double driftOfLogarithm = (riskFreeRate - 0.5 * volatility * volatility) * timeStep;
+			double standardDeviationOfLogarithm = volatility * Math.sqrt(timeStep);
+			// for RandomVariableFromDoubleArray, this is the array of the realizations itself: no copy is made
+			double[] values = model.getAssetValue(timeIndex, underlyingIndex).getRealizations();
+			for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+				if (!isAlive[pathIndex]) {
+					continue;
+				}
+				double value = values[pathIndex];
+				// this is also true if value is NaN, as for BarrierOption
+				if (!(value >= lowerBarrier && value <= upperBarrier)) {
+					isAlive[pathIndex] = false;
+					continue;
+				}
+				double increment = (Math.log(value / lastValues[pathIndex]) - driftOfLogarithm) / standardDeviationOfLogarithm;
+				if (timeIndex == 1) {
+					firstIncrements[pathIndex] = increment;
+				}
+				vegaWeights[pathIndex] += (increment * increment - 1) / volatility - increment * Math.sqrt(timeStep);
+				lastValues[pathIndex] = value;
+			}
+		}
+
+		/*
+		 * As for BarrierOption, the payoffs are divided by the numeraire and multiplied by the Monte Carlo weights at
+		 * maturity, and then multiplied by the numeraire and divided by the Monte Carlo weights at time 0.
+		 */
+		RandomVariable underlyingAtMaturity = model.getAssetValue(maturityIndex, underlyingIndex);
+		RandomVariable discountFactors = model.getMonteCarloWeights(maturityIndex).div(model.getNumeraire(maturityIndex))
+				.mult(model.getNumeraire(0)).div(model.getMonteCarloWeights(0));
+
+		double firstTimeStep = model.getTime(1) - model.getTime(0);
+		double timeToMaturity = model.getTime(maturityIndex) - model.getTime(0);
+
+		RunningStatistics valueStatistics = new RunningStatistics();
+		RunningStatistics deltaStatistics = new RunningStatistics();
+		RunningStatistics gammaStatistics = new RunningStatistics();
+		RunningStatistics vegaStatistics = new RunningStatistics();
+
+		for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+			double valueAtMaturity = underlyingAtMaturity.get(pathIndex);
+			double discountFactor = discountFactors.get(pathIndex);
+			if (!isAlive[pathIndex] || !(valueAtMaturity > strike)) {
+				valueStatistics.add(0.0);
+				deltaStatistics.add(0.0);
+				gammaStatistics.add(0.0);
+				vegaStatistics.add(0.0);
+				continue;
+			}
+			double discountedPayoff = (valueAtMaturity - strike) * discountFactor;
+			valueStatistics.add(discountedPayoff);
+			if (hasBarriers) {
+				double firstIncrement = firstIncrements[pathIndex];
+				deltaStatistics.add(discountedPayoff * firstIncrement
+						/ (initialValue * volatility * Math.sqrt(firstTimeStep)));
+				gammaStatistics.add(discountedPayoff
+						* (firstIncrement * firstIncrement - 1 - firstIncrement * volatility * Math.sqrt(firstTimeStep))
+						/ (initialValue * initialValue * volatility * volatility * firstTimeStep));
+				vegaStatistics.add(discountedPayoff * vegaWeights[pathIndex]);
+			} else {
+				double logarithmOfReturn = Math.log(valueAtMaturity / initialValue);
+				double brownianMotionAtMaturity = (logarithmOfReturn
+						- (riskFreeRate - 0.5 * volatility * volatility) * timeToMaturity) / volatility;
+				double discountedValueAtMaturity = valueAtMaturity * discountFactor;
+				deltaStatistics.add(discountedValueAtMaturity / initialValue);
+				gammaStatistics.add(discountedValueAtMaturity / initialValue
+						* (brownianMotionAtMaturity / (initialValue * volatility * timeToMaturity) - 1 / initialValue));
+				vegaStatistics.add(discountedValueAtMaturity * (brownianMotionAtMaturity - volatility * timeToMaturity));
+			}
+		}
+
+		long elapsedTimeInMilliseconds = System.currentTimeMillis() - startTime;
+		Map<String, MonteCarloEstimate> greeks = new LinkedHashMap<>();
+		greeks.put("value", getEstimate(valueStatistics, elapsedTimeInMilliseconds));
+		greeks.put("delta", getEstimate(deltaStatistics, elapsedTimeInMilliseconds));
+		greeks.put("gamma", getEstimate(gammaStatistics, elapsedTimeInMilliseconds));
+		greeks.put("vega", getEstimate(vegaStatistics, elapsedTimeInMilliseconds));
+		return greeks;
+	}
+
+	private static MonteCarloEstimate getEstimate(RunningStatistics statistics, long elapsedTimeInMilliseconds) {
+		return new MonteCarloEstimate(statistics.getMean(), statistics.getStandardError(),
+				statistics.getNumberOfValues(), elapsedTimeInMilliseconds, true);
+	}
+}
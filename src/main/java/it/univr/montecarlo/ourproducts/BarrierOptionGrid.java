@@ -0,0 +1,152 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.Arrays;
+
+import it.univr.montecarlo.estimators.MonteCarloEstimate;
+import it.univr.montecarlo.estimators.RunningStatistics;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class implements the valuation of a grid of barrier options with the same maturity and underlying: for every
+ * pair of barriers (B_L,B_U) and every strike K, the option with payoff
+ * (X_T-K)1_{B_L <= X_t <= B_U for any t \in [0,T]}, as for BarrierOption.
+ *
+ * All the options are valued by going through the paths of the model only once. Since a trajectory is inside
+ * [B_L,B_U] at all the times if and only if its minimum is at least B_L and its maximum is at most B_U, we read every
+ * time slice once, updating the running minimum and maximum of every trajectory: the survival of a trajectory for all
+ * the pairs of barriers is then given by two comparisons. The payoffs for all the strikes and all the pairs of
+ * barriers are then computed trajectory by trajectory, and their means and variances are updated without storing
+ * them. In this way, the cost of reading the paths does not depend on the number of options.
+ *
+ * @author Andrea Mazzon
+ */
+public class BarrierOptionGrid {
+
+	private final double maturity;
+	private final double[] strikes;
+	private final double[] lowerBarriers;
+	private final double[] upperBarriers;
+	private final int underlyingIndex;
+
+	/**
+	 * It constructs an object representing the barrier, European call options on an underlying X, for all the strikes
+	 * and all the pairs of barriers.
+	 *
+	 * @param maturity, the maturity T of all the options
+	 * @param strikes, the strikes K of the options
+	 * @param lowerBarriers, the lower barriers B_L of the options: lowerBarriers[i] and upperBarriers[i] are a pair
+	 * @param upperBarriers, the upper barriers B_U of the options: lowerBarriers[i] and upperBarriers[i] are a pair
+	 * @param underlyingIndex, it identifies the underlying if the model is multi-dimensional
+	 */
+	public BarrierOptionGrid(double maturity, double[] strikes, double[] lowerBarriers, double[] upperBarriers,
+			int underlyingIndex) {
+		if (lowerBarriers.length != upperBarriers.length) {
+			throw new IllegalArgumentException("Error: the number of lower and upper barriers must be the same!");
+		}
+		this.maturity = maturity;
+		this.strikes = strikes.clone();
+		this.lowerBarriers = lowerBarriers.clone();
+		this.upperBarriers = upperBarriers.clone();
+		this.underlyingIndex = underlyingIndex;
+	}
+
+	/**
+	 * It returns the values of all the options at the given evaluation time, together with their standard errors.
+	 *
+	 * @param evaluationTime, the time at which the options are valued
+	 * @param model, the model giving the paths of the underlying
+	 * @return a matrix whose entry [i][j] is the estimate of the value of the option with the i-th pair of barriers and
+	 *         the j-th strike, with its standard error
+	 * @throws CalculationException
+	 */
+	public MonteCarloEstimate[][] getValues(double evaluationTime, AssetModelMonteCarloSimulationModel model)
+			throws CalculationException {
+		long startTime = System.currentTimeMillis();
+		int numberOfPaths = model.getNumberOfPaths();
+
+		// the minimum and the maximum of every trajectory at the times up to maturity
+		double[] minima = new double[numberOfPaths];
+		double[] maxima = new double[numberOfPaths];
+		Arrays.fill(minima, Double.POSITIVE_INFINITY);
+		Arrays.fill(maxima, Double.NEGATIVE_INFINITY);
+
+		for (double currentTime : model.getTimeDiscretization().getAsDoubleArray()) {
+			currentTime = Math.min(currentTime, maturity);
+			RandomVariable realizationsAtCurrentTime = model.getAssetValue(currentTime, underlyingIndex);
+			if (realizationsAtCurrentTime.isDeterministic()) {
+				double value = realizationsAtCurrentTime.get(0);
+				for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+					minima[pathIndex] = Math.min(minima[pathIndex], value);
+					maxima[pathIndex] = Math.max(maxima[pathIndex], value);
+				}
+			} else {
+				// for RandomVariableFromDoubleArray, this is the array of the realizations itself: no copy is made
+				double[] values = realizationsAtCurrentTime.getRealizations();
+				for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+					double value = values[pathIndex];
+					// as for BarrierOption, a NaN knocks the trajectory out for all the barriers
+					minima[pathIndex] = value < minima[pathIndex] || value != value ? value : minima[pathIndex];
+					maxima[pathIndex] = value > maxima[pathIndex] || value != value ? value : maxima[pathIndex];
+				}
+			}
+			if (currentTime == maturity) {
+				break;
+			}
+		}
+
+		/*
+		 * As for BarrierOption, the payoffs are divided by the numeraire and multiplied by the Monte Carlo weights at
+		 * maturity, and then multiplied by the numeraire and divided by the Monte Carlo weights at evaluation time.
+		 */
+		RandomVariable underlyingAtMaturity = model.getAssetValue(maturity, underlyingIndex);
+		RandomVariable discountFactors = model.getMonteCarloWeights(maturity).div(model.getNumeraire(maturity))
+				.mult(model.getNumeraire(evaluationTime)).div(model.getMonteCarloWeights(evaluationTime));
+
+		RunningStatistics[][] statistics = new RunningStatistics[lowerBarriers.length][strikes.length];
+		for (int barrierIndex = 0; barrierIndex < lowerBarriers.length; barrierIndex++) {
+			for (int strikeIndex = 0; strikeIndex < strikes.length; strikeIndex++) {
+				statistics[barrierIndex][strikeIndex] = new RunningStatistics();
+			}
+		}
+
+		for (int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+			double minimum = minima[pathIndex];
+			double maximum = maxima[pathIndex];
+			double valueAtMaturity = underlyingAtMaturity.get(pathIndex);
+			double discountFactor = discountFactors.get(pathIndex);
+			for (int barrierIndex = 0; barrierIndex < lowerBarriers.length; barrierIndex++) {
+				boolean isInsideBarriers = minimum >= lowerBarriers[barrierIndex] && maximum <= upperBarriers[barrierIndex];
+				RunningStatistics[] statisticsForBarriers = statistics[barrierIndex];
+				for (int strikeIndex = 0; strikeIndex < strikes.length; strikeIndex++) {
+					double payoff = isInsideBarriers ? Math.max(valueAtMaturity - strikes[strikeIndex], 0.0) : 0.0;
+					statisticsForBarriers[strikeIndex].add(payoff * discountFactor);
+				}
+			}
+		}
+
+		long elapsedTimeInMilliseconds = System.currentTimeMillis() - startTime;
+		MonteCarloEstimate[][] estimates = new MonteCarloEstimate[lowerBarriers.length][strikes.length];
+		for (int barrierIndex = 0; barrierIndex < lowerBarriers.length; barrierIndex++) {
+			for (int strikeIndex = 0; strikeIndex < strikes.length; strikeIndex++) {
+				RunningStatistics statisticsOfOption = statistics[barrierIndex][strikeIndex];
+				estimates[barrierIndex][strikeIndex] = new MonteCarloEstimate(statisticsOfOption.getMean(),
+						statisticsOfOption.getStandardError(), numberOfPaths, elapsedTimeInMilliseconds, true);
+			}
+		}
+		return estimates;
+	}
+
+	/**
+	 * It returns the values of all the options at time 0, together with their standard errors.
+	 *
+	 * @param model, the model giving the paths of the underlying
+	 * @return a matrix whose entry [i][j] is the estimate of the value of the option with the i-th pair of barriers and
+	 *         the j-th strike, with its standard error
+	 * @throws CalculationException
+	 */
+	public MonteCarloEstimate[][] getValues(AssetModelMonteCarloSimulationModel model) throws CalculationException {
+		return getValues(0.0, model);
+	}
+}
@@ -0,0 +1,197 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.List;
+import java.util.Map;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.MonteCarloSimulationModel;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class values a portfolio of products in a grid of scenarios for a Black-Scholes model, where the initial value
+ * and the volatility are shifted. All the scenarios are driven by the same Brownian motion, so by the same increments:
+ * in this way, the differences between the values in two scenarios are not affected by the noise of independent
+ * simulations (common random numbers), and the values are smooth functions of the shifts.
+ *
+ * For a given volatility, the paths of the Black-Scholes model are proportional to the initial value: the paths are
+ * then simulated once for every shift of the volatility, and the ones for the shifts of the initial value are given by
+ * multiplying them by (1 + relativeSpotShift), which is the same up to rounding errors. The scenarios are valued one
+ * after the other by a PortfolioValuationExecutor, which looks at the trajectories in parallel and reads every time
+ * slice once for all the products. Only the paths of one volatility are kept in memory, together with the increments
+ * of the Brownian motion if it stores them.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class CommonRandomNumbersScenarioEngine {
+
+	private final double initialValue;
+	private final double riskFreeRate;
+	private final double volatility;
+	private final BrownianMotion brownianMotion;
+	private final PortfolioValuationExecutor executor;
+
+	/**
+	 * It constructs the engine
+	 *
+	 * @param initialValue, the initial value of the process in the base scenario
+	 * @param riskFreeRate, the risk free rate
+	 * @param volatility, the volatility of the process in the base scenario
+	 * @param brownianMotion, the Brownian motion driving all the scenarios
+	 * @param executor, the executor valuing the products in every scenario
+	 */
+	public CommonRandomNumbersScenarioEngine(double initialValue, double riskFreeRate, double volatility,
+			BrownianMotion brownianMotion, PortfolioValuationExecutor executor) {
+		this.initialValue = initialValue;
+		this.riskFreeRate = riskFreeRate;
+		this.volatility = volatility;
+		this.brownianMotion = brownianMotion;
+		this.executor = executor;
+	}
+
+	/**
+	 * It returns the values at time 0 of the products in the scenarios where the initial value is
+	 * initialValue * (1 + relativeSpotShift) and the volatility is volatility + volatilityShift, for all the given
+	 * shifts: values[i][j][k] is the value of the k-th product for the i-th shift of the initial value and the j-th
+	 * shift of the volatility.
+	 *
+	 * @param products, the products to value
+	 * @param relativeSpotShifts, the relative shifts of the initial value, which must be bigger than -1
+	 * @param volatilityShifts, the absolute shifts of the volatility, which must give a positive volatility
+	 * @return the values of the products in the scenarios
+	 * @throws CalculationException
+	 */
+	public double[][][] getValues(List<AbstractAssetMonteCarloProduct> products, double[] relativeSpotShifts,
+			double[] volatilityShifts) throws CalculationException {
+		for (double relativeSpotShift : relativeSpotShifts) {
+			if (!(relativeSpotShift > -1)) {
+				throw new IllegalArgumentException("Error: the relative shifts of the initial value must be bigger than -1!");
+			}
+		}
+		for (double volatilityShift : volatilityShifts) {
+			if (!(volatility + volatilityShift > 0)) {
+				throw new IllegalArgumentException("Error: the shifted volatilities must be positive!");
+			}
+		}
+
+		/*
+		 * The models of all the scenarios get the increments from the same Brownian motion. If it stores them, as
+		 * BrownianMotionFromMersenneRandomNumbers, they are generated once; otherwise, as for
+		 * BrownianMotionFromCounterBasedRandomNumbers, the same increments are generated again for every volatility.
+		 */
+		double[][][] values = new double[relativeSpotShifts.length][volatilityShifts.length][];
+		for (int volatilityShiftIndex = 0; volatilityShiftIndex < volatilityShifts.length; volatilityShiftIndex++) {
+			double shiftedVolatility = volatility + volatilityShifts[volatilityShiftIndex];
+			// its paths are simulated when they are asked for the first time, and kept for all the shifts of the spot
+			MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(initialValue, riskFreeRate,
+					shiftedVolatility, brownianMotion);
+			for (int spotShiftIndex = 0; spotShiftIndex < relativeSpotShifts.length; spotShiftIndex++) {
+				double relativeSpotShift = relativeSpotShifts[spotShiftIndex];
+				AssetModelMonteCarloSimulationModel shiftedModel = relativeSpotShift == 0 ? model
+						: new ModelWithScaledAssetValues(model, 1 + relativeSpotShift);
+				values[spotShiftIndex][volatilityShiftIndex] = executor.getValues(0.0, shiftedModel, products);
+			}
+		}
+		return values;
+	}
+
+	/*
+	 * A model whose asset values are the ones of a given model multiplied by a constant, with the same numeraire and
+	 * Monte Carlo weights. The last time slice which has been asked is kept, since the products valued by the executor
+	 * ask for the same time slice one after the other.
+	 */
+	private static class ModelWithScaledAssetValues implements AssetModelMonteCarloSimulationModel {
+
+		private final AssetModelMonteCarloSimulationModel model;
+		private final double scalingFactor;
+
+		private int lastTimeIndex = -1;
+		private RandomVariable lastAssetValue;
+
+		ModelWithScaledAssetValues(AssetModelMonteCarloSimulationModel model, double scalingFactor) {
+			this.model = model;
+			this.scalingFactor = scalingFactor;
+		}
+
+		@Override
+		public int getNumberOfAssets() {
+			return model.getNumberOfAssets();
+		}
+
+		@Override
+		public synchronized RandomVariable getAssetValue(int timeIndex, int assetIndex) throws CalculationException {
+			if (timeIndex != lastTimeIndex) {
+				lastAssetValue = model.getAssetValue(timeIndex, assetIndex).mult(scalingFactor);
+				lastTimeIndex = timeIndex;
+			}
+			return lastAssetValue;
+		}
+
+		@Override
+		public RandomVariable getAssetValue(double time, int assetIndex) throws CalculationException {
+			int timeIndex = getTimeIndex(time);
+			// the largest time of the time discretization which is smaller or equal than the given time
+			return getAssetValue(timeIndex < 0 ? -timeIndex - 2 : timeIndex, assetIndex);
+		}
+
+		@Override
+		public RandomVariable getNumeraire(int timeIndex) throws CalculationException {
+			return model.getNumeraire(timeIndex);
+		}
+
+		@Override
+		public RandomVariable getNumeraire(double time) throws CalculationException {
+			return model.getNumeraire(time);
+		}
+
+		@Override
+		public RandomVariable getMonteCarloWeights(int timeIndex) throws CalculationException {
+			return model.getMonteCarloWeights(timeIndex);
+		}
+
+		@Override
+		public RandomVariable getMonteCarloWeights(double time) throws CalculationException {
+			return model.getMonteCarloWeights(time);
+		}
+
+		@Override
+		public int getNumberOfPaths() {
+			return model.getNumberOfPaths();
+		}
+
+		@Override
+		public TimeDiscretization getTimeDiscretization() {
+			return model.getTimeDiscretization();
+		}
+
+		@Override
+		public double getTime(int timeIndex) {
+			return model.getTime(timeIndex);
+		}
+
+		@Override
+		public int getTimeIndex(double time) {
+			return model.getTimeIndex(time);
+		}
+
+		@Override
+		public RandomVariable getRandomVariableForConstant(double value) {
+			return model.getRandomVariableForConstant(value);
+		}
+
+		@Override
+		public AssetModelMonteCarloSimulationModel getCloneWithModifiedSeed(int seed) {
+			return new ModelWithScaledAssetValues(model.getCloneWithModifiedSeed(seed), scalingFactor);
+		}
+
+		@Override
+		public MonteCarloSimulationModel getCloneWithModifiedData(Map<String, Object> dataModified) {
+			throw new UnsupportedOperationException("Error: the model of a scenario cannot be modified!");
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+
+/**
+ * This class values many products with the same model, reading the paths of the model only once for all of them.
+ *
+ * The products which implement TimeSliceProduct are valued together: the time slices of the model are taken one
+ * after the other, and every slice is split in chunks of numberOfPathsPerChunk consecutive trajectories, which are
+ * looked at in parallel by the threads of a ForkJoinPool. Every thread gives its chunk to all the products which need
+ * the slice, one after the other, so that the realizations of the chunk are read from memory once and then stay in the
+ * cache of the processor. If the products were valued one after the other by getValue, all the paths would instead be
+ * read once for every product.
+ *
+ * The other products, as the ones of the Finmath library, are valued by their method getValue, in parallel, after the
+ * time slice products.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class PortfolioValuationExecutor {
+
+	private final int numberOfPathsPerChunk;
+	private final ForkJoinPool forkJoinPool;
+
+	/**
+	 * It constructs the executor
+	 *
+	 * @param numberOfPathsPerChunk, the number of trajectories looked at together by the same thread. It must be a
+	 *                               positive multiple of 64, so that the chunks do not share the words of the bit sets
+	 *                               of the products
+	 * @param forkJoinPool, the pool looking at the chunks. If null, the common pool is used.
+	 */
+	public PortfolioValuationExecutor(int numberOfPathsPerChunk, ForkJoinPool forkJoinPool) {
+		if (numberOfPathsPerChunk <= 0 || numberOfPathsPerChunk % 64 != 0) {
+			throw new IllegalArgumentException("Error: the number of paths per chunk must be a positive multiple of 64!");
+		}
+		this.numberOfPathsPerChunk = numberOfPathsPerChunk;
+		this.forkJoinPool = forkJoinPool != null ? forkJoinPool : ForkJoinPool.commonPool();
+	}
+
+	/**
+	 * It returns the values of the products with the given model, in the order of the list. They are the same as the
+	 * ones returned by product.getValue(evaluationTime, model).
+	 *
+	 * @param evaluationTime, the time at which the products are valued
+	 * @param model, the model giving the paths
+	 * @param products, the products to value
+	 * @return the values of the products
+	 * @throws CalculationException
+	 */
+	public double[] getValues(double evaluationTime, AssetModelMonteCarloSimulationModel model,
+			List<AbstractAssetMonteCarloProduct> products) throws CalculationException {
+		int numberOfProducts = products.size();
+		double[] values = new double[numberOfProducts];
+
+		TimeSliceValuation[] valuations = new TimeSliceValuation[numberOfProducts];
+		List<Integer> indicesOfOtherProducts = new ArrayList<>();
+		int lastTimeIndex = -1;
+		for (int productIndex = 0; productIndex < numberOfProducts; productIndex++) {
+			AbstractAssetMonteCarloProduct product = products.get(productIndex);
+			if (product instanceof TimeSliceProduct) {
+				valuations[productIndex] = ((TimeSliceProduct) product).getTimeSliceValuation(evaluationTime, model);
+				lastTimeIndex = Math.max(lastTimeIndex, valuations[productIndex].getLastTimeIndex());
+			} else {
+				indicesOfOtherProducts.add(productIndex);
+			}
+		}
+
+		int numberOfPaths = model.getNumberOfPaths();
+		int numberOfChunks = (numberOfPaths + numberOfPathsPerChunk - 1) / numberOfPathsPerChunk;
+		List<TimeSliceValuation> valuationsNeedingSlice = new ArrayList<>();
+		for (int timeIndex = 0; timeIndex <= lastTimeIndex; timeIndex++) {
+			valuationsNeedingSlice.clear();
+			for (TimeSliceValuation valuation : valuations) {
+				if (valuation != null && valuation.getLastTimeIndex() >= timeIndex) {
+					// it is called by this thread only: here the model can generate the slice if needed
+					valuation.startTimeSlice(timeIndex);
+					valuationsNeedingSlice.add(valuation);
+				}
+			}
+			forkJoinPool.submit(() -> IntStream.range(0, numberOfChunks).parallel().forEach(chunkIndex -> {
+				int firstPath = chunkIndex * numberOfPathsPerChunk;
+				int endPath = Math.min(firstPath + numberOfPathsPerChunk, numberOfPaths);
+				for (TimeSliceValuation valuation : valuationsNeedingSlice) {
+					valuation.visit(firstPath, endPath);
+				}
+			})).join();
+		}
+		for (int productIndex = 0; productIndex < numberOfProducts; productIndex++) {
+			if (valuations[productIndex] != null) {
+				values[productIndex] = valuations[productIndex].getValues().getAverage();
+			}
+		}
+
+		if (!indicesOfOtherProducts.isEmpty()) {
+			// the exceptions of getValue are checked, so they are carried out of the lambda in this array
+			CalculationException[] exceptions = new CalculationException[1];
+			forkJoinPool.submit(() -> indicesOfOtherProducts.parallelStream().forEach(productIndex -> {
+				try {
+					values[productIndex] = products.get(productIndex).getValue(evaluationTime, model).getAverage();
+				} catch (CalculationException exception) {
+					exceptions[0] = exception;
+				}
+			})).join();
+			if (exceptions[0] != null) {
+				throw exceptions[0];
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,25 @@
+package it.univr.montecarlo.ourproducts;
+
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+
+/**
+ * This interface is implemented by the products which can be valued by looking at the time slices of a model one after
+ * the other, from the first time, in such a way that a slice can be split in ranges of trajectories looked at by
+ * different threads. In this way, a PortfolioValuationExecutor can give every time slice to all the products of a
+ * portfolio, instead of letting every product read all the time slices.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface TimeSliceProduct {
+
+	/**
+	 * It returns an object which values the product with the given model, once it has been given all the time slices
+	 * up to its last time index.
+	 *
+	 * @param evaluationTime, the time at which the product is valued
+	 * @param model, the model giving the time slices
+	 * @return the object valuing the product
+	 */
+	TimeSliceValuation getTimeSliceValuation(double evaluationTime, AssetModelMonteCarloSimulationModel model);
+}
@@ -0,0 +1,51 @@
+package it.univr.montecarlo.ourproducts;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This interface represents the valuation of a TimeSliceProduct. The time slices are given to it in order, from the
+ * time index 0 up to getLastTimeIndex(): for every time index, startTimeSlice is called once, and then visit is called
+ * for ranges of trajectories which cover all the trajectories, possibly at the same time by different threads. Once
+ * the last time slice has been visited, getValues returns the values of the product.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface TimeSliceValuation {
+
+	/**
+	 * It returns the index of the last time slice which is needed by the valuation
+	 *
+	 * @return the index of the last time slice needed
+	 */
+	int getLastTimeIndex();
+
+	/**
+	 * It is called before the time slice with the given index is visited, by a single thread: here the valuation can
+	 * get the realizations it needs from the model.
+	 *
+	 * @param timeIndex, the index of the time slice
+	 * @throws CalculationException
+	 */
+	void startTimeSlice(int timeIndex) throws CalculationException;
+
+	/**
+	 * It looks at the trajectories from firstPath to endPath - 1 of the current time slice. It can be called at the same
+	 * time by different threads, for ranges of trajectories which do not overlap: firstPath is a multiple of 64, and
+	 * endPath is a multiple of 64 or the number of trajectories.
+	 *
+	 * @param firstPath, the index of the first trajectory
+	 * @param endPath, the index after the last trajectory
+	 */
+	void visit(int firstPath, int endPath);
+
+	/**
+	 * It returns the values of the product, after the last time slice has been visited, as
+	 * AbstractAssetMonteCarloProduct.getValue(evaluationTime, model): their average is the value of the product
+	 *
+	 * @return the values of the product
+	 * @throws CalculationException
+	 */
+	RandomVariable getValues() throws CalculationException;
+}
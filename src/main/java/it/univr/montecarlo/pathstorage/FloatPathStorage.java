@@ -0,0 +1,126 @@
+package it.univr.montecarlo.pathstorage;
+
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import net.finmath.montecarlo.RandomVariableFromFloatArray;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class stores the paths of a process as floats, time slice by time slice: this halves the memory needed with
+ * respect to doubles, and the memory read when the time slices are asked, which are given as random variables on the
+ * stored floats. The simulation is anyway computed with doubles: every time step is computed from the value of the
+ * previous time step in double precision, and only the values stored here are rounded to floats. So the rounding
+ * errors do not accumulate along the paths.
+ *
+ * The rounding errors are measured when the values are stored, with respect to the double values computed by the
+ * simulation: see getMaximumAbsoluteRoundingError and getMaximumRelativeRoundingError. The relative error of a float
+ * is at most 2^-24, about 6e-8.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class FloatPathStorage implements PathStorage {
+
+	private final int numberOfSimulations;
+	private final int numberOfTimes;
+
+	// values[k][i] is the value of the simulation i at the time index k
+	private final float[][] values;
+
+	// they can be updated by many threads writing different blocks of simulations
+	private final DoubleAccumulator maximumAbsoluteRoundingError = new DoubleAccumulator(Math::max, 0.0);
+	private final DoubleAccumulator maximumRelativeRoundingError = new DoubleAccumulator(Math::max, 0.0);
+
+	/**
+	 * It constructs a storage for the given number of paths, with the given number of times
+	 *
+	 * @param numberOfSimulations, the number of paths
+	 * @param numberOfTimes, the number of times of every path
+	 */
+	public FloatPathStorage(int numberOfSimulations, int numberOfTimes) {
+		this.numberOfSimulations = numberOfSimulations;
+		this.numberOfTimes = numberOfTimes;
+		values = new float[numberOfTimes][numberOfSimulations];
+	}
+
+	@Override
+	public int getNumberOfSimulations() {
+		return numberOfSimulations;
+	}
+
+	@Override
+	public int getNumberOfTimes() {
+		return numberOfTimes;
+	}
+
+	@Override
+	public void setValues(int timeIndex, int firstSimulation, double[] valuesToStore, int numberOfValues) {
+		float[] valuesAtTimeIndex = values[timeIndex];
+		double maximumAbsoluteError = 0.0;
+		double maximumRelativeError = 0.0;
+		for (int i = 0; i < numberOfValues; i++) {
+			float roundedValue = (float) valuesToStore[i];
+			valuesAtTimeIndex[firstSimulation + i] = roundedValue;
+			// the NaN of the trajectories which are knocked out would make the errors NaN
+			if (!Double.isFinite(valuesToStore[i])) {
+				continue;
+			}
+			double absoluteError = Math.abs(roundedValue - valuesToStore[i]);
+			maximumAbsoluteError = Math.max(maximumAbsoluteError, absoluteError);
+			if (valuesToStore[i] != 0.0) {
+				maximumRelativeError = Math.max(maximumRelativeError, absoluteError / Math.abs(valuesToStore[i]));
+			}
+		}
+		maximumAbsoluteRoundingError.accumulate(maximumAbsoluteError);
+		maximumRelativeRoundingError.accumulate(maximumRelativeError);
+	}
+
+	@Override
+	public void getValuesAtTimeIndex(int timeIndex, double[] valuesAtTimeIndex) {
+		float[] storedValues = values[timeIndex];
+		for (int i = 0; i < numberOfSimulations; i++) {
+			valuesAtTimeIndex[i] = storedValues[i];
+		}
+	}
+
+	/**
+	 * It returns a RandomVariableFromFloatArray on the stored floats at the given time index, without copying them:
+	 * the time slices asked to the simulation take half the memory of the ones stored as doubles.
+	 */
+	@Override
+	public RandomVariable getRealizationsAtTimeIndex(int timeIndex, double time) {
+		return new RandomVariableFromFloatArray(time, values[timeIndex]);
+	}
+
+	@Override
+	public void getPath(int simulation, double[] path) {
+		for (int timeIndex = 0; timeIndex < numberOfTimes; timeIndex++) {
+			path[timeIndex] = values[timeIndex][simulation];
+		}
+	}
+
+	@Override
+	public double getValue(int simulation, int timeIndex) {
+		return values[timeIndex][simulation];
+	}
+
+	/**
+	 * It returns the maximum absolute difference between a stored value and the double value computed by the
+	 * simulation, over all the values stored so far
+	 *
+	 * @return the maximum absolute rounding error
+	 */
+	public double getMaximumAbsoluteRoundingError() {
+		return maximumAbsoluteRoundingError.get();
+	}
+
+	/**
+	 * It returns the maximum relative difference between a stored value and the double value computed by the
+	 * simulation, over all the non zero values stored so far
+	 *
+	 * @return the maximum relative rounding error
+	 */
+	public double getMaximumRelativeRoundingError() {
+		return maximumRelativeRoundingError.get();
+	}
+}
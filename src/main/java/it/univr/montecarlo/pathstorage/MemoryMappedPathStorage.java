@@ -0,0 +1,169 @@
+package it.univr.montecarlo.pathstorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class stores the paths of a process in a file mapped in memory, outside of the heap: in this way, the number
+ * of simulations times the number of times can be much bigger than what would fit in the heap, since the operating
+ * system keeps in memory only the pages of the file which are used, and writes the others to disk.
+ *
+ * The values are stored time slice after time slice: the value of the simulation i at the time index k is the double
+ * of index k * numberOfSimulations + i of the file. In this way, the time slices written by the simulation and read
+ * by getValuesAtTimeIndex are contiguous, whereas reading a path accesses one value for every time slice. Since a
+ * single MappedByteBuffer cannot be bigger than 2GB, the file is mapped by many buffers, each containing some whole
+ * time slices: a time slice can then have at most 2^28 - 1 doubles.
+ *
+ * The time slices can also be read without copying them, by getTimeSliceView. Note that if the process is generated
+ * in parallel (see AbstractProcessSimulation.setParallelGeneration), the arrays used by the simulation have the
+ * length of a block of paths, and not of the number of simulations.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MemoryMappedPathStorage implements PathStorage, Closeable {
+
+	private static final int BYTES_PER_DOUBLE = Double.BYTES;
+
+	private final int numberOfSimulations;
+	private final int numberOfTimes;
+
+	private final FileChannel fileChannel;
+
+	// every buffer contains numberOfTimeSlicesPerBuffer time slices (the last one might contain less)
+	private final int numberOfTimeSlicesPerBuffer;
+	private final DoubleBuffer[] buffers;
+
+	/**
+	 * It constructs a storage for the given number of paths, with the given number of times, in a given file. If the
+	 * file exists, it is overwritten.
+	 *
+	 * @param file, the file where the paths are stored
+	 * @param numberOfSimulations, the number of paths
+	 * @param numberOfTimes, the number of times of every path
+	 */
+	public MemoryMappedPathStorage(Path file, int numberOfSimulations, int numberOfTimes) {
+		long bytesPerTimeSlice = (long) numberOfSimulations * BYTES_PER_DOUBLE;
+		if (bytesPerTimeSlice > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Error: too many simulations for a memory mapped time slice!");
+		}
+		this.numberOfSimulations = numberOfSimulations;
+		this.numberOfTimes = numberOfTimes;
+		numberOfTimeSlicesPerBuffer = (int) Math.max(1, Integer.MAX_VALUE / Math.max(1, bytesPerTimeSlice));
+		buffers = new DoubleBuffer[(numberOfTimes + numberOfTimeSlicesPerBuffer - 1) / numberOfTimeSlicesPerBuffer];
+		try {
+			fileChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			for (int bufferIndex = 0; bufferIndex < buffers.length; bufferIndex++) {
+				int numberOfTimeSlicesInBuffer = Math.min(numberOfTimeSlicesPerBuffer,
+						numberOfTimes - bufferIndex * numberOfTimeSlicesPerBuffer);
+				MappedByteBuffer mappedBuffer = fileChannel.map(FileChannel.MapMode.READ_WRITE,
+						bufferIndex * numberOfTimeSlicesPerBuffer * bytesPerTimeSlice,
+						numberOfTimeSlicesInBuffer * bytesPerTimeSlice);
+				buffers[bufferIndex] = mappedBuffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * It constructs a storage for the given number of paths, with the given number of times, in a temporary file which
+	 * is deleted when the virtual machine terminates.
+	 *
+	 * @param numberOfSimulations, the number of paths
+	 * @param numberOfTimes, the number of times of every path
+	 */
+	public MemoryMappedPathStorage(int numberOfSimulations, int numberOfTimes) {
+		this(createTemporaryFile(), numberOfSimulations, numberOfTimes);
+	}
+
+	private static Path createTemporaryFile() {
+		try {
+			Path file = Files.createTempFile("paths", ".bin");
+			file.toFile().deleteOnExit();
+			return file;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * It returns a new view of the whole buffer containing the given time slice, with position at its first value.
+	 * Every call gives a different view, so different threads can use their own.
+	 */
+	private DoubleBuffer getBufferAtTimeSlice(int timeIndex) {
+		DoubleBuffer buffer = buffers[timeIndex / numberOfTimeSlicesPerBuffer].duplicate();
+		buffer.position((timeIndex % numberOfTimeSlicesPerBuffer) * numberOfSimulations);
+		return buffer;
+	}
+
+	@Override
+	public int getNumberOfSimulations() {
+		return numberOfSimulations;
+	}
+
+	@Override
+	public int getNumberOfTimes() {
+		return numberOfTimes;
+	}
+
+	@Override
+	public void setValues(int timeIndex, int firstSimulation, double[] values, int numberOfValues) {
+		DoubleBuffer buffer = getBufferAtTimeSlice(timeIndex);
+		buffer.position(buffer.position() + firstSimulation);
+		buffer.put(values, 0, numberOfValues);
+	}
+
+	@Override
+	public void getValuesAtTimeIndex(int timeIndex, double[] values) {
+		getBufferAtTimeSlice(timeIndex).get(values, 0, numberOfSimulations);
+	}
+
+	@Override
+	public void getPath(int simulation, double[] path) {
+		for (int timeIndex = 0; timeIndex < numberOfTimes; timeIndex++) {
+			path[timeIndex] = getValue(simulation, timeIndex);
+		}
+	}
+
+	@Override
+	public double getValue(int simulation, int timeIndex) {
+		DoubleBuffer buffer = buffers[timeIndex / numberOfTimeSlicesPerBuffer];
+		return buffer.get((timeIndex % numberOfTimeSlicesPerBuffer) * numberOfSimulations + simulation);
+	}
+
+	/**
+	 * It returns a read-only view of the time slice of the given time index: the values are not copied from the file,
+	 * and the i-th value of the buffer is the value of the simulation i.
+	 *
+	 * @param timeIndex, the index of the time slice
+	 * @return a read-only view of the time slice
+	 */
+	public DoubleBuffer getTimeSliceView(int timeIndex) {
+		DoubleBuffer buffer = getBufferAtTimeSlice(timeIndex);
+		buffer.limit(buffer.position() + numberOfSimulations);
+		return buffer.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * It closes the file. The memory mapping is released only when the buffers are garbage collected, so the storage
+	 * must not be used anymore after this method is called.
+	 */
+	@Override
+	public void close() {
+		try {
+			fileChannel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package it.univr.montecarlo.pathstorage;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * This class stores the paths of a process in a single array of doubles of length numberOfSimulations * numberOfTimes,
+ * path after path: the value of the simulation i at the time index k is in the entry i * numberOfTimes + k.
+ *
+ * In this way, the values of a path are contiguous in memory: reading a path, for example in order to plot it or to
+ * compute a path dependent payoff path by path, is a sequential read of numberOfTimes doubles. On the other hand,
+ * reading or writing a time slice accesses entries which are numberOfTimes doubles away from each other.
+ *
+ * Note that the number of simulations times the number of times cannot be bigger than Integer.MAX_VALUE - 8.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class PathMajorPathStorage implements PathStorage {
+
+	private final int numberOfSimulations;
+	private final int numberOfTimes;
+
+	private final double[] values;
+
+	/**
+	 * It constructs a storage for the given number of paths, with the given number of times
+	 *
+	 * @param numberOfSimulations, the number of paths
+	 * @param numberOfTimes, the number of times of every path
+	 */
+	public PathMajorPathStorage(int numberOfSimulations, int numberOfTimes) {
+		if ((long) numberOfSimulations * numberOfTimes > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Error: too many values for an array of doubles!");
+		}
+		this.numberOfSimulations = numberOfSimulations;
+		this.numberOfTimes = numberOfTimes;
+		values = new double[numberOfSimulations * numberOfTimes];
+	}
+
+	@Override
+	public int getNumberOfSimulations() {
+		return numberOfSimulations;
+	}
+
+	@Override
+	public int getNumberOfTimes() {
+		return numberOfTimes;
+	}
+
+	@Override
+	public void setValues(int timeIndex, int firstSimulation, double[] valuesToStore, int numberOfValues) {
+		int index = firstSimulation * numberOfTimes + timeIndex;
+		for (int i = 0; i < numberOfValues; i++) {
+			values[index] = valuesToStore[i];
+			index += numberOfTimes;
+		}
+	}
+
+	@Override
+	public void getValuesAtTimeIndex(int timeIndex, double[] valuesAtTimeIndex) {
+		int index = timeIndex;
+		for (int simulation = 0; simulation < numberOfSimulations; simulation++) {
+			valuesAtTimeIndex[simulation] = values[index];
+			index += numberOfTimes;
+		}
+	}
+
+	@Override
+	public void getPath(int simulation, double[] path) {
+		System.arraycopy(values, simulation * numberOfTimes, path, 0, numberOfTimes);
+	}
+
+	@Override
+	public double getValue(int simulation, int timeIndex) {
+		return values[simulation * numberOfTimes + timeIndex];
+	}
+
+	/**
+	 * It returns a read-only view of the path of the given simulation: the values are not copied, and the k-th value
+	 * of the buffer is the value of the simulation at the time index k.
+	 *
+	 * @param simulation, the index of the simulation
+	 * @return a read-only view of the path
+	 */
+	public DoubleBuffer getPathView(int simulation) {
+		return DoubleBuffer.wrap(values, simulation * numberOfTimes, numberOfTimes).slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * It returns a read-only view of all the values, path after path: the value of the simulation i at the time index
+	 * k is the one of index i * numberOfTimes + k. The values are not copied.
+	 *
+	 * @return a read-only view of all the values
+	 */
+	public DoubleBuffer getView() {
+		return DoubleBuffer.wrap(values).asReadOnlyBuffer();
+	}
+}
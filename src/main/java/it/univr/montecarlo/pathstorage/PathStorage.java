@@ -0,0 +1,87 @@
+package it.univr.montecarlo.pathstorage;
+
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This interface represents a storage for the paths of a process: a matrix of doubles with numberOfSimulations rows
+ * (the paths) and numberOfTimes columns (the time slices). The classes implementing it choose how the values are laid
+ * out in memory, for example path by path or time slice by time slice, on the heap or in a file.
+ *
+ * An object of a class implementing this interface can be given to an AbstractProcessSimulation by setPathStorage:
+ * the simulation then writes the time slices of the process in it while it is generated, and reads the realizations
+ * at given times and the single paths from it.
+ *
+ * Different threads can write in the same storage at the same time, provided that they write different entries.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface PathStorage {
+
+	/**
+	 * It returns the number of simulations, i.e., of paths, that can be stored
+	 *
+	 * @return the number of simulations
+	 */
+	int getNumberOfSimulations();
+
+	/**
+	 * It returns the number of times of every path
+	 *
+	 * @return the number of times
+	 */
+	int getNumberOfTimes();
+
+	/**
+	 * It stores the values of the simulations from firstSimulation to firstSimulation + numberOfValues - 1 at the
+	 * given time index.
+	 *
+	 * @param timeIndex, the index of the time slice
+	 * @param firstSimulation, the index of the first simulation whose value is stored
+	 * @param values, the values to store: the first numberOfValues entries are read
+	 * @param numberOfValues, the number of values to store
+	 */
+	void setValues(int timeIndex, int firstSimulation, double[] values, int numberOfValues);
+
+	/**
+	 * It writes the values of all the simulations at the given time index in the first numberOfSimulations entries of
+	 * the given array.
+	 *
+	 * @param timeIndex, the index of the time slice
+	 * @param values, the array where the values are written
+	 */
+	void getValuesAtTimeIndex(int timeIndex, double[] values);
+
+	/**
+	 * It returns a random variable with the values of all the simulations at the given time index. By default, the
+	 * values are copied by getValuesAtTimeIndex in a new array of doubles: a class can override it in order to give the
+	 * stored values without copying them.
+	 *
+	 * @param timeIndex, the index of the time slice
+	 * @param time, the time of the time slice, which is the filtration time of the random variable
+	 * @return the random variable with the values at the given time index
+	 */
+	default RandomVariable getRealizationsAtTimeIndex(int timeIndex, double time) {
+		double[] valuesAtTimeIndex = new double[getNumberOfSimulations()];
+		getValuesAtTimeIndex(timeIndex, valuesAtTimeIndex);
+		return new RandomVariableFromDoubleArray(time, valuesAtTimeIndex);
+	}
+
+	/**
+	 * It writes the path of the given simulation in the first numberOfTimes entries of the given array.
+	 *
+	 * @param simulation, the index of the simulation
+	 * @param path, the array where the path is written
+	 */
+	void getPath(int simulation, double[] path);
+
+	/**
+	 * It returns the value of a given simulation at a given time index
+	 *
+	 * @param simulation, the index of the simulation
+	 * @param timeIndex, the index of the time
+	 * @return the value of the simulation at the time index
+	 */
+	double getValue(int simulation, int timeIndex);
+}
@@ -0,0 +1,119 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements the antithetic variates method for a given Brownian motion W with n simulations: it represents
+ * a Brownian motion with 2n simulations, such that the first n are the ones of W and the simulation n+i is the one of
+ * -W for the i-th simulation of W. In this way every increment is used twice, once with flipped sign.
+ *
+ * Note that the simulation i and the simulation n+i are not independent: in order to estimate the standard error of
+ * a Monte Carlo estimator computed with this Brownian motion, one has to average the values of the two simulations
+ * first. See getStandardErrorOfAntitheticEstimator.
+ *
+ * The increments are not stored here: they are taken from the given Brownian motion every time they are asked.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class AntitheticBrownianMotion implements BrownianMotionWithSinglePathAccess {
+
+	private final BrownianMotion brownianMotion;
+
+	// the number of simulations of brownianMotion: half of the number of simulations of this object
+	private final int numberOfOriginalPaths;
+
+	/**
+	 * It constructs the antithetic version of a given Brownian motion, with twice its simulations.
+	 *
+	 * @param brownianMotion, the Brownian motion whose increments are used with both signs
+	 */
+	public AntitheticBrownianMotion(BrownianMotion brownianMotion) {
+		this.brownianMotion = brownianMotion;
+		numberOfOriginalPaths = brownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public double getBrownianIncrement(int pathIndex, int timeIndex, int factor) {
+		boolean isAntitheticPath = pathIndex >= numberOfOriginalPaths;
+		int originalPathIndex = isAntitheticPath ? pathIndex - numberOfOriginalPaths : pathIndex;
+		double originalIncrement = brownianMotion instanceof BrownianMotionWithSinglePathAccess
+				? ((BrownianMotionWithSinglePathAccess) brownianMotion).getBrownianIncrement(originalPathIndex, timeIndex, factor)
+				: brownianMotion.getBrownianIncrement(timeIndex, factor).get(originalPathIndex);
+		return isAntitheticPath ? -originalIncrement : originalIncrement;
+	}
+
+	@Override
+	public void getBrownianIncrements(int timeIndex, int factor, int firstPath, int numberOfPathsToGenerate,
+			double[] brownianIncrements) {
+		if (brownianMotion instanceof BrownianMotionWithSinglePathAccess) {
+			BrownianMotionWithSinglePathAccess.super.getBrownianIncrements(timeIndex, factor, firstPath,
+					numberOfPathsToGenerate, brownianIncrements);
+			return;
+		}
+		// in this way the increments of the original Brownian motion are asked only once
+		RandomVariable originalIncrements = brownianMotion.getBrownianIncrement(timeIndex, factor);
+		for (int i = 0; i < numberOfPathsToGenerate; i++) {
+			int pathIndex = firstPath + i;
+			brownianIncrements[i] = pathIndex < numberOfOriginalPaths ? originalIncrements.get(pathIndex)
+					: -originalIncrements.get(pathIndex - numberOfOriginalPaths);
+		}
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		double[] brownianIncrements = new double[getNumberOfPaths()];
+		getBrownianIncrements(timeIndex, factor, 0, getNumberOfPaths(), brownianIncrements);
+		return new RandomVariableFromDoubleArray(getTimeDiscretization().getTime(timeIndex + 1), brownianIncrements);
+	}
+
+	/**
+	 * It returns the standard error of the Monte Carlo estimator of the expectation of a random variable whose
+	 * realizations are computed with an AntitheticBrownianMotion: the realizations of the simulations i and n+i are
+	 * averaged, and the standard error is computed from these n independent averages.
+	 *
+	 * @param values, the realizations computed with an AntitheticBrownianMotion
+	 * @return the standard error of the average of values
+	 */
+	public static double getStandardErrorOfAntitheticEstimator(RandomVariable values) {
+		int numberOfOriginalPaths = values.size() / 2;
+		double[] averagesOfAntitheticPairs = new double[numberOfOriginalPaths];
+		for (int i = 0; i < numberOfOriginalPaths; i++) {
+			averagesOfAntitheticPairs[i] = 0.5 * (values.get(i) + values.get(i + numberOfOriginalPaths));
+		}
+		return new RandomVariableFromDoubleArray(0.0, averagesOfAntitheticPairs).getStandardError();
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return brownianMotion.getTimeDiscretization();
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return brownianMotion.getNumberOfFactors();
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return 2 * numberOfOriginalPaths;
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return brownianMotion.getRandomVariableForConstant(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new AntitheticBrownianMotion(brownianMotion.getCloneWithModifiedSeed(seed));
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new AntitheticBrownianMotion(brownianMotion.getCloneWithModifiedTimeDiscretization(newTimeDiscretization));
+	}
+}
@@ -0,0 +1,111 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import it.univr.montecarlo.numbersgeneration.PhiloxCounterBasedGenerator;
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements a multi-dimensional Brownian motion whose increments are not stored, but computed every time
+ * they are asked. This is possible because they are generated by a counter based random number generator: the
+ * increment for given simulation, time index and factor is the inverse of the standard normal distribution function
+ * computed in the uniform number given by PhiloxCounterBasedGenerator with key the seed and counter given by
+ * (simulation, time index, factor), multiplied by the square root of the time step.
+ *
+ * In this way, the memory needed by the Brownian motion does not depend on the number of times and of simulations,
+ * and any path or block of paths can be generated independently from the others, for example by different threads.
+ *
+ * Note that the increments are generated again every time they are asked: if the same increments are needed many
+ * times, it might be convenient to use BrownianMotionFromMersenneRandomNumbers.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class BrownianMotionFromCounterBasedRandomNumbers implements BrownianMotionWithSinglePathAccess {
+
+	private final TimeDiscretization timeDiscretization;
+
+	private final int numberOfFactors;
+	private final int numberOfPaths;
+	private final int seed;
+
+	private final PhiloxCounterBasedGenerator randomNumberGenerator;
+
+	// the only thing we store: the square roots of the time steps
+	private final double[] squareRootsOfTimeSteps;
+
+	/**
+	 * It constructs a Brownian motion whose increments are generated on demand by a counter based generator.
+	 *
+	 * @param timeDiscretization, the time discretization of the Brownian motion
+	 * @param numberOfFactors, the number of independent factors
+	 * @param numberOfPaths, the number of simulations
+	 * @param seed, the key of the counter based generator
+	 */
+	public BrownianMotionFromCounterBasedRandomNumbers(TimeDiscretization timeDiscretization, int numberOfFactors,
+			int numberOfPaths, int seed) {
+		this.timeDiscretization = timeDiscretization;
+		this.numberOfFactors = numberOfFactors;
+		this.numberOfPaths = numberOfPaths;
+		this.seed = seed;
+		randomNumberGenerator = new PhiloxCounterBasedGenerator(seed);
+		squareRootsOfTimeSteps = new double[timeDiscretization.getNumberOfTimeSteps()];
+		for (int timeIndex = 0; timeIndex < squareRootsOfTimeSteps.length; timeIndex++) {
+			squareRootsOfTimeSteps[timeIndex] = Math.sqrt(timeDiscretization.getTimeStep(timeIndex));
+		}
+	}
+
+	@Override
+	public double getBrownianIncrement(int pathIndex, int timeIndex, int factor) {
+		double uniform = randomNumberGenerator.getUniform(pathIndex, ((long) timeIndex << 32) | factor);
+		return NormalDistribution.inverseCumulativeDistribution(uniform) * squareRootsOfTimeSteps[timeIndex];
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		double[] brownianIncrements = new double[numberOfPaths];
+		getBrownianIncrements(timeIndex, factor, 0, numberOfPaths, brownianIncrements);
+		return new RandomVariableFromDoubleArray(timeDiscretization.getTime(timeIndex + 1), brownianIncrements);
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return new RandomVariableFromDoubleArray(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new BrownianMotionFromCounterBasedRandomNumbers(timeDiscretization, numberOfFactors, numberOfPaths, seed);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new BrownianMotionFromCounterBasedRandomNumbers(newTimeDiscretization, numberOfFactors, numberOfPaths, seed);
+	}
+
+	/**
+	 * It returns the seed of the Brownian motion, i.e., the key of the counter based generator
+	 *
+	 * @return the seed of the Brownian motion
+	 */
+	public int getSeed() {
+		return seed;
+	}
+}
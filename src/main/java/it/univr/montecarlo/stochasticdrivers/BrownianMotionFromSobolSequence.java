@@ -0,0 +1,209 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import it.univr.montecarlo.numbersgeneration.ScrambledSobolSequence;
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements a multi-dimensional Brownian motion for quasi Monte Carlo simulation: every path is given by a
+ * point of a ScrambledSobolSequence of dimension numberOfTimeSteps * numberOfFactors, and the path is constructed from
+ * the point by a Brownian bridge.
+ *
+ * The Brownian bridge first generates the final value W_T, then W at the time in the middle of [0,T] given W_0 and W_T,
+ * then the values in the middle of the two halves, and so on. The first coordinates of the Sobol points, which are the
+ * most uniformly distributed, are then used for the values which determine most of the variance of the paths. For
+ * this reason, quasi Monte Carlo with a Brownian bridge typically needs much less paths than Monte Carlo for the same
+ * accuracy. For more factors, the coordinate of the Sobol point used for a given bridge step and a given factor is
+ * step * numberOfFactors + factor. The coordinates after
+ * ScrambledSobolSequence.DIMENSION_WITH_JOE_KUO_DIRECTION_NUMBERS, whose projections are less uniform, are then the
+ * ones of the finest steps of the bridge, which determine the smallest part of the variance.
+ *
+ * The paths are generated all together the first time an increment is asked, and stored. Note that the number of
+ * paths should preferably be a power of 2.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class BrownianMotionFromSobolSequence implements BrownianMotionWithSinglePathAccess {
+
+	private final TimeDiscretization timeDiscretization;
+
+	private final int numberOfFactors;
+	private final int numberOfPaths;
+	private final int seed;
+
+	/*
+	 * The k-th step of the Brownian bridge computes W at the time of index bridgeIndices[k], given the values at the
+	 * times of indices leftIndices[k] and rightIndices[k]: W = leftWeights[k] * W_left + rightWeights[k] * W_right
+	 * + standardDeviations[k] * Z, with Z standard normal.
+	 */
+	private final int[] bridgeIndices;
+	private final int[] leftIndices;
+	private final int[] rightIndices;
+	private final double[] leftWeights;
+	private final double[] rightWeights;
+	private final double[] standardDeviations;
+
+	// brownianIncrements[timeIndex][factor][path]: not yet initialized
+	private volatile double[][][] brownianIncrements;
+
+	/**
+	 * It constructs a Brownian motion whose paths are given by the points of a scrambled Sobol sequence by a Brownian
+	 * bridge.
+	 *
+	 * @param timeDiscretization, the time discretization of the Brownian motion
+	 * @param numberOfFactors, the number of independent factors
+	 * @param numberOfPaths, the number of simulations (preferably a power of 2)
+	 * @param seed, the scrambling seed of the Sobol sequence
+	 */
+	public BrownianMotionFromSobolSequence(TimeDiscretization timeDiscretization, int numberOfFactors, int numberOfPaths,
+			int seed) {
+		this.timeDiscretization = timeDiscretization;
+		this.numberOfFactors = numberOfFactors;
+		this.numberOfPaths = numberOfPaths;
+		this.seed = seed;
+
+		int numberOfTimeSteps = timeDiscretization.getNumberOfTimeSteps();
+		bridgeIndices = new int[numberOfTimeSteps];
+		leftIndices = new int[numberOfTimeSteps];
+		rightIndices = new int[numberOfTimeSteps];
+		leftWeights = new double[numberOfTimeSteps];
+		rightWeights = new double[numberOfTimeSteps];
+		standardDeviations = new double[numberOfTimeSteps];
+
+		// the first step gives the final value, from the initial one
+		bridgeIndices[0] = numberOfTimeSteps;
+		leftIndices[0] = 0;
+		rightIndices[0] = numberOfTimeSteps;
+		standardDeviations[0] = Math.sqrt(timeDiscretization.getTime(numberOfTimeSteps) - timeDiscretization.getTime(0));
+
+		/*
+		 * Then we bisect the intervals between the time indices which are already known, from the biggest to the
+		 * smallest: intervalsLeft[i] and intervalsRight[i] are the intervals to bisect, in this order. Every bisection
+		 * adds two intervals, so there are at most 2 * numberOfTimeSteps - 1 of them.
+		 */
+		int[] intervalsLeft = new int[2 * numberOfTimeSteps];
+		int[] intervalsRight = new int[2 * numberOfTimeSteps];
+		intervalsLeft[0] = 0;
+		intervalsRight[0] = numberOfTimeSteps;
+		int numberOfIntervals = 1;
+		int step = 1;
+		for (int interval = 0; interval < numberOfIntervals; interval++) {
+			int left = intervalsLeft[interval];
+			int right = intervalsRight[interval];
+			if (right - left < 2) {
+				continue;
+			}
+			int middle = (left + right) / 2;
+			double leftTime = timeDiscretization.getTime(left);
+			double middleTime = timeDiscretization.getTime(middle);
+			double rightTime = timeDiscretization.getTime(right);
+
+			bridgeIndices[step] = middle;
+			leftIndices[step] = left;
+			rightIndices[step] = right;
+			leftWeights[step] = (rightTime - middleTime) / (rightTime - leftTime);
+			rightWeights[step] = (middleTime - leftTime) / (rightTime - leftTime);
+			standardDeviations[step] = Math.sqrt((middleTime - leftTime) * (rightTime - middleTime) / (rightTime - leftTime));
+			step++;
+
+			intervalsLeft[numberOfIntervals] = left;
+			intervalsRight[numberOfIntervals] = middle;
+			numberOfIntervals++;
+			intervalsLeft[numberOfIntervals] = middle;
+			intervalsRight[numberOfIntervals] = right;
+			numberOfIntervals++;
+		}
+	}
+
+	/*
+	 * It generates all the paths: for every path, we take the next point of the Sobol sequence, we transform its
+	 * coordinates into standard normal random variables and we construct the path by the Brownian bridge.
+	 */
+	private synchronized void generate() {
+		if (brownianIncrements != null) {
+			return;
+		}
+		int numberOfTimeSteps = timeDiscretization.getNumberOfTimeSteps();
+		double[][][] increments = new double[numberOfTimeSteps][numberOfFactors][numberOfPaths];
+
+		ScrambledSobolSequence sobolSequence = new ScrambledSobolSequence(numberOfTimeSteps * numberOfFactors, seed);
+		double[] sobolPoint = new double[numberOfTimeSteps * numberOfFactors];
+		double[] brownianPath = new double[numberOfTimeSteps + 1];// brownianPath[0] = W_0 = 0
+
+		for (int path = 0; path < numberOfPaths; path++) {
+			sobolSequence.getNextPoint(sobolPoint);
+			for (int factor = 0; factor < numberOfFactors; factor++) {
+				for (int step = 0; step < numberOfTimeSteps; step++) {
+					double normal = NormalDistribution.inverseCumulativeDistribution(sobolPoint[step * numberOfFactors + factor]);
+					brownianPath[bridgeIndices[step]] = leftWeights[step] * brownianPath[leftIndices[step]]
+							+ rightWeights[step] * brownianPath[rightIndices[step]] + standardDeviations[step] * normal;
+				}
+				for (int timeIndex = 0; timeIndex < numberOfTimeSteps; timeIndex++) {
+					increments[timeIndex][factor][path] = brownianPath[timeIndex + 1] - brownianPath[timeIndex];
+				}
+			}
+		}
+		brownianIncrements = increments;
+	}
+
+	@Override
+	public double getBrownianIncrement(int pathIndex, int timeIndex, int factor) {
+		if (brownianIncrements == null) {
+			generate();
+		}
+		return brownianIncrements[timeIndex][factor][pathIndex];
+	}
+
+	@Override
+	public void getBrownianIncrements(int timeIndex, int factor, int firstPath, int numberOfPathsToGenerate,
+			double[] increments) {
+		if (brownianIncrements == null) {
+			generate();
+		}
+		System.arraycopy(brownianIncrements[timeIndex][factor], firstPath, increments, 0, numberOfPathsToGenerate);
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		if (brownianIncrements == null) {
+			generate();
+		}
+		// the array is never modified, so we can give it to the random variable
+		return new RandomVariableFromDoubleArray(timeDiscretization.getTime(timeIndex + 1),
+				brownianIncrements[timeIndex][factor]);
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return new RandomVariableFromDoubleArray(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new BrownianMotionFromSobolSequence(timeDiscretization, numberOfFactors, numberOfPaths, seed);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new BrownianMotionFromSobolSequence(newTimeDiscretization, numberOfFactors, numberOfPaths, seed);
+	}
+}
@@ -0,0 +1,42 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import net.finmath.montecarlo.BrownianMotion;
+
+/**
+ * This interface represents a Brownian motion which can return the increment of a single simulation, for given time
+ * index and factor, without constructing the RandomVariable object with the increments of all the simulations. This is
+ * useful when the paths are simulated by blocks, for example in parallel: every block can ask only the increments of
+ * its own simulations.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public interface BrownianMotionWithSinglePathAccess extends BrownianMotion {
+
+	/**
+	 * It returns the increment W_{t_{k+1}}-W_{t_k}, k = timeIndex, for a given simulation and a given factor.
+	 *
+	 * @param pathIndex, the index of the simulation
+	 * @param timeIndex, the index k of the time t_k
+	 * @param factor, the index of the factor
+	 * @return the increment of the Brownian motion for the given simulation, time index and factor
+	 */
+	double getBrownianIncrement(int pathIndex, int timeIndex, int factor);
+
+	/**
+	 * It writes in brownianIncrements the increments W_{t_{k+1}}-W_{t_k}, k = timeIndex, of the simulations from
+	 * firstPath to firstPath + numberOfPathsToGenerate - 1, for a given factor.
+	 *
+	 * @param timeIndex, the index k of the time t_k
+	 * @param factor, the index of the factor
+	 * @param firstPath, the index of the first simulation
+	 * @param numberOfPathsToGenerate, the number of simulations
+	 * @param brownianIncrements, the array where the increments are written, starting from its first entry
+	 */
+	default void getBrownianIncrements(int timeIndex, int factor, int firstPath, int numberOfPathsToGenerate,
+			double[] brownianIncrements) {
+		for (int i = 0; i < numberOfPathsToGenerate; i++) {
+			brownianIncrements[i] = getBrownianIncrement(firstPath + i, timeIndex, factor);
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import java.util.Arrays;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class represents a given Brownian motion W observed on a coarser time discretization, which has only one time
+ * every refinementFactor times of the original one. The increment of the coarse Brownian motion from t_k to t_{k+1} is
+ * then the sum of the refinementFactor increments of W between the same two times.
+ *
+ * In this way, two discretizations of the same process with different time steps can be driven by the same paths of
+ * the Brownian motion: this is what couples the fine and the coarse level in a multilevel Monte Carlo estimator.
+ *
+ * The increments are not stored here: they are computed from the ones of the original Brownian motion every time they
+ * are asked.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class CoarsenedBrownianMotion implements BrownianMotionWithSinglePathAccess {
+
+	private final BrownianMotion brownianMotion;
+	private final int refinementFactor;
+	private final TimeDiscretization timeDiscretization;
+
+	/**
+	 * It constructs the Brownian motion observed on the coarser time discretization.
+	 *
+	 * @param brownianMotion, the Brownian motion on the fine time discretization
+	 * @param refinementFactor, the number of time steps of the fine time discretization for every time step of the
+	 *                          coarse one. The number of time steps of brownianMotion must be a multiple of it
+	 */
+	public CoarsenedBrownianMotion(BrownianMotion brownianMotion, int refinementFactor) {
+		TimeDiscretization fineTimeDiscretization = brownianMotion.getTimeDiscretization();
+		if (refinementFactor <= 0 || fineTimeDiscretization.getNumberOfTimeSteps() % refinementFactor != 0) {
+			throw new IllegalArgumentException("Error: the number of time steps must be a multiple of the refinement factor!");
+		}
+		this.brownianMotion = brownianMotion;
+		this.refinementFactor = refinementFactor;
+
+		double[] coarseTimes = new double[fineTimeDiscretization.getNumberOfTimeSteps() / refinementFactor + 1];
+		for (int timeIndex = 0; timeIndex < coarseTimes.length; timeIndex++) {
+			coarseTimes[timeIndex] = fineTimeDiscretization.getTime(timeIndex * refinementFactor);
+		}
+		timeDiscretization = new TimeDiscretizationFromArray(coarseTimes);
+	}
+
+	@Override
+	public double getBrownianIncrement(int pathIndex, int timeIndex, int factor) {
+		double increment = 0.0;
+		for (int fineTimeIndex = timeIndex * refinementFactor; fineTimeIndex < (timeIndex + 1) * refinementFactor; fineTimeIndex++) {
+			increment += brownianMotion instanceof BrownianMotionWithSinglePathAccess
+					? ((BrownianMotionWithSinglePathAccess) brownianMotion).getBrownianIncrement(pathIndex, fineTimeIndex, factor)
+					: brownianMotion.getBrownianIncrement(fineTimeIndex, factor).get(pathIndex);
+		}
+		return increment;
+	}
+
+	@Override
+	public void getBrownianIncrements(int timeIndex, int factor, int firstPath, int numberOfPathsToGenerate,
+			double[] brownianIncrements) {
+		double[] fineIncrements = new double[numberOfPathsToGenerate];
+		Arrays.fill(brownianIncrements, 0, numberOfPathsToGenerate, 0.0);
+		for (int fineTimeIndex = timeIndex * refinementFactor; fineTimeIndex < (timeIndex + 1) * refinementFactor; fineTimeIndex++) {
+			if (brownianMotion instanceof BrownianMotionWithSinglePathAccess) {
+				((BrownianMotionWithSinglePathAccess) brownianMotion).getBrownianIncrements(fineTimeIndex, factor, firstPath,
+						numberOfPathsToGenerate, fineIncrements);
+			} else {
+				RandomVariable originalIncrements = brownianMotion.getBrownianIncrement(fineTimeIndex, factor);
+				for (int i = 0; i < numberOfPathsToGenerate; i++) {
+					fineIncrements[i] = originalIncrements.get(firstPath + i);
+				}
+			}
+			for (int i = 0; i < numberOfPathsToGenerate; i++) {
+				brownianIncrements[i] += fineIncrements[i];
+			}
+		}
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		double[] brownianIncrements = new double[getNumberOfPaths()];
+		getBrownianIncrements(timeIndex, factor, 0, getNumberOfPaths(), brownianIncrements);
+		return new RandomVariableFromDoubleArray(timeDiscretization.getTime(timeIndex + 1), brownianIncrements);
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return brownianMotion.getNumberOfFactors();
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return brownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return brownianMotion.getRandomVariableForConstant(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new CoarsenedBrownianMotion(brownianMotion.getCloneWithModifiedSeed(seed), refinementFactor);
+	}
+
+	/**
+	 * It returns a Brownian motion with the given time discretization, which is not anymore the coarsened version of
+	 * the original Brownian motion: it is the original Brownian motion with the new time discretization.
+	 */
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return brownianMotion.getCloneWithModifiedTimeDiscretization(newTimeDiscretization);
+	}
+}
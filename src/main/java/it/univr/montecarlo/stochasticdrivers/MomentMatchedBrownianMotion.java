@@ -0,0 +1,126 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements the moment matching method for a given Brownian motion W: for every time index k and every
+ * factor, the increments W_{t_{k+1}}-W_{t_k} of all the simulations are shifted and rescaled such that their sample
+ * mean is exactly 0 and their sample variance (i.e., the one given by RandomVariable.getVariance()) is exactly
+ * t_{k+1}-t_k.
+ *
+ * Note that after moment matching the simulations are not independent anymore. The increments are not stored here:
+ * for every time index and factor we only store the sample mean and the rescaling factor, computed the first time the
+ * increments are asked.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MomentMatchedBrownianMotion implements BrownianMotionWithSinglePathAccess {
+
+	private final BrownianMotion brownianMotion;
+
+	/*
+	 * The entry timeIndex * numberOfFactors + factor is {mean, scaling} for the increments of the given time index and
+	 * factor, or null if they have not been computed yet. It is an AtomicReferenceArray so that the increments can be
+	 * asked by many threads: at most, the same moments get computed twice.
+	 */
+	private final AtomicReferenceArray<double[]> meansAndScalings;
+
+	/**
+	 * It constructs the moment matched version of a given Brownian motion.
+	 *
+	 * @param brownianMotion, the Brownian motion whose increments are shifted and rescaled
+	 */
+	public MomentMatchedBrownianMotion(BrownianMotion brownianMotion) {
+		this.brownianMotion = brownianMotion;
+		meansAndScalings = new AtomicReferenceArray<double[]>(
+				brownianMotion.getTimeDiscretization().getNumberOfTimeSteps() * brownianMotion.getNumberOfFactors());
+	}
+
+	/*
+	 * It returns {mean, scaling} for given time index and factor, computing them if needed: the increment x of the
+	 * original Brownian motion becomes (x - mean) * scaling.
+	 */
+	private double[] getMeanAndScaling(int timeIndex, int factor) {
+		int index = timeIndex * getNumberOfFactors() + factor;
+		double[] meanAndScaling = meansAndScalings.get(index);
+		if (meanAndScaling == null) {
+			RandomVariable originalIncrements = brownianMotion.getBrownianIncrement(timeIndex, factor);
+			double mean = originalIncrements.getAverage();
+			double timeStep = getTimeDiscretization().getTimeStep(timeIndex);
+			double scaling = Math.sqrt(timeStep / originalIncrements.getVariance());
+			meanAndScaling = new double[] {mean, scaling};
+			meansAndScalings.compareAndSet(index, null, meanAndScaling);
+		}
+		return meanAndScaling;
+	}
+
+	@Override
+	public double getBrownianIncrement(int pathIndex, int timeIndex, int factor) {
+		double[] meanAndScaling = getMeanAndScaling(timeIndex, factor);
+		double originalIncrement = brownianMotion instanceof BrownianMotionWithSinglePathAccess
+				? ((BrownianMotionWithSinglePathAccess) brownianMotion).getBrownianIncrement(pathIndex, timeIndex, factor)
+				: brownianMotion.getBrownianIncrement(timeIndex, factor).get(pathIndex);
+		return (originalIncrement - meanAndScaling[0]) * meanAndScaling[1];
+	}
+
+	@Override
+	public void getBrownianIncrements(int timeIndex, int factor, int firstPath, int numberOfPathsToGenerate,
+			double[] brownianIncrements) {
+		double[] meanAndScaling = getMeanAndScaling(timeIndex, factor);
+		if (brownianMotion instanceof BrownianMotionWithSinglePathAccess) {
+			((BrownianMotionWithSinglePathAccess) brownianMotion).getBrownianIncrements(timeIndex, factor, firstPath,
+					numberOfPathsToGenerate, brownianIncrements);
+		} else {
+			RandomVariable originalIncrements = brownianMotion.getBrownianIncrement(timeIndex, factor);
+			for (int i = 0; i < numberOfPathsToGenerate; i++) {
+				brownianIncrements[i] = originalIncrements.get(firstPath + i);
+			}
+		}
+		for (int i = 0; i < numberOfPathsToGenerate; i++) {
+			brownianIncrements[i] = (brownianIncrements[i] - meanAndScaling[0]) * meanAndScaling[1];
+		}
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		double[] brownianIncrements = new double[getNumberOfPaths()];
+		getBrownianIncrements(timeIndex, factor, 0, getNumberOfPaths(), brownianIncrements);
+		return new RandomVariableFromDoubleArray(getTimeDiscretization().getTime(timeIndex + 1), brownianIncrements);
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return brownianMotion.getTimeDiscretization();
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return brownianMotion.getNumberOfFactors();
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return brownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return brownianMotion.getRandomVariableForConstant(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new MomentMatchedBrownianMotion(brownianMotion.getCloneWithModifiedSeed(seed));
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new MomentMatchedBrownianMotion(brownianMotion.getCloneWithModifiedTimeDiscretization(newTimeDiscretization));
+	}
+}
@@ -0,0 +1,135 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.Map;
+
+import it.univr.montecarlo.estimators.MonteCarloEstimate;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests AdjointSensitivities. For a call option on a process simulated by the log Euler scheme, we compare
+ * the sensitivities with respect to the initial value and to sigma with the analytic delta and vega, and we check
+ * that the results do not depend on the number of time steps between two checkpoints, which only changes the memory used
+ * by the tape. We do the same with the process driven by a BrownianMotionFromCounterBasedRandomNumbers, whose increments
+ * are computed simulation by simulation. For an Asian option on a process simulated by the Milstein scheme, we compare the sensitivities with the ones
+ * computed by bump-and-revalue, using the same random numbers, and we compare the times needed.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class AdjointSensitivitiesTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.25;
+		double muDrift = 0.02;
+		double strike = 100;
+
+		double finalTime = 1.0;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, finalTime / numberOfTimeSteps);
+
+		int numberOfSimulations = 100000;
+		int seed = 1897;
+
+		double discountFactor = Math.exp(-muDrift * finalTime);
+
+		// the discounted payoff of the call option and its derivative with respect to the final value
+		DifferentiablePathFunctional callOption = (path, derivatives) -> {
+			double finalValue = path[path.length - 1];
+			if (finalValue <= strike) {
+				return 0.0;
+			}
+			derivatives[path.length - 1] = discountFactor;
+			return (finalValue - strike) * discountFactor;
+		};
+
+		LogEulerSchemeForBlackScholes logEulerScheme = new LogEulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+
+		System.out.println("Call option, log Euler scheme");
+		for (int numberOfTimeStepsPerCheckpoint : new int[] { numberOfTimeSteps, 10, 1 }) {
+			Map<String, MonteCarloEstimate> sensitivities = new AdjointSensitivities(logEulerScheme,
+					numberOfTimeStepsPerCheckpoint).getValueAndSensitivities(callOption);
+			System.out.println(numberOfTimeStepsPerCheckpoint + " time steps per checkpoint:");
+			printSensitivities(sensitivities);
+		}
+		System.out.println("Value computed from the paths of the process: "
+				+ logEulerScheme.getRealizationsOfPathFunctional(path -> callOption.getValueAndDerivatives(path,
+						new double[path.length])).getAverage());
+		System.out.println("Analytic: value "
+				+ AnalyticFormulas.blackScholesOptionValue(initialValue, muDrift, sigmaVolatility, finalTime, strike)
+				+ ", delta " + AnalyticFormulas.blackScholesOptionDelta(initialValue, muDrift, sigmaVolatility, finalTime, strike)
+				+ ", vega " + AnalyticFormulas.blackScholesOptionVega(initialValue, muDrift, sigmaVolatility, finalTime, strike)
+				+ ", derivative with respect to mu (discount factor fixed) "
+				+ finalTime * initialValue
+						* AnalyticFormulas.blackScholesOptionDelta(initialValue, muDrift, sigmaVolatility, finalTime, strike));
+
+		LogEulerSchemeForBlackScholes counterBasedScheme = new LogEulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, new BrownianMotionFromCounterBasedRandomNumbers(times, 1, numberOfSimulations, seed));
+		System.out.println("Driven by BrownianMotionFromCounterBasedRandomNumbers, 10 time steps per checkpoint:");
+		printSensitivities(new AdjointSensitivities(counterBasedScheme, 10).getValueAndSensitivities(callOption));
+		System.out.println("Value computed from the paths of the process: "
+				+ counterBasedScheme.getRealizationsOfPathFunctional(path -> callOption.getValueAndDerivatives(path,
+						new double[path.length])).getAverage());
+
+		System.out.println();
+		System.out.println("Asian option, Milstein scheme");
+
+		// the discounted payoff of the option on the arithmetic average of the path
+		DifferentiablePathFunctional asianOption = (path, derivatives) -> {
+			double average = 0.0;
+			for (double value : path) {
+				average += value;
+			}
+			average /= path.length;
+			if (average <= strike) {
+				return 0.0;
+			}
+			for (int timeIndex = 0; timeIndex < path.length; timeIndex++) {
+				derivatives[timeIndex] = discountFactor / path.length;
+			}
+			return (average - strike) * discountFactor;
+		};
+
+		MilsteinSchemeForBlackScholes milsteinScheme = new MilsteinSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+
+		long startTime = System.currentTimeMillis();
+		Map<String, MonteCarloEstimate> sensitivities = new AdjointSensitivities(milsteinScheme, 10)
+				.getValueAndSensitivities(asianOption);
+		long timeOfAdjoint = System.currentTimeMillis() - startTime;
+		printSensitivities(sensitivities);
+		System.out.println("Time: " + timeOfAdjoint + " ms");
+
+		startTime = System.currentTimeMillis();
+		double initialValueBump = 1.0;
+		double sigmaVolatilityBump = 0.01;
+		double muDriftBump = 0.01;
+		double[] bumpedValues = new double[6];
+		double[][] bumps = { { initialValueBump, 0, 0 }, { -initialValueBump, 0, 0 }, { 0, sigmaVolatilityBump, 0 },
+				{ 0, -sigmaVolatilityBump, 0 }, { 0, 0, muDriftBump }, { 0, 0, -muDriftBump } };
+		for (int bumpIndex = 0; bumpIndex < bumps.length; bumpIndex++) {
+			MilsteinSchemeForBlackScholes bumpedScheme = new MilsteinSchemeForBlackScholes(
+					sigmaVolatility + bumps[bumpIndex][1], muDrift + bumps[bumpIndex][2],
+					initialValue + bumps[bumpIndex][0], numberOfSimulations, seed, times);
+			bumpedValues[bumpIndex] = bumpedScheme.getRealizationsOfPathFunctional(
+					path -> asianOption.getValueAndDerivatives(path, new double[path.length])).getAverage();
+		}
+		long timeOfBumpAndRevalue = System.currentTimeMillis() - startTime;
+		System.out.println("Bump-and-revalue: initialValue " + (bumpedValues[0] - bumpedValues[1]) / (2 * initialValueBump)
+				+ ", sigmaVolatility " + (bumpedValues[2] - bumpedValues[3]) / (2 * sigmaVolatilityBump)
+				+ ", muDrift " + (bumpedValues[4] - bumpedValues[5]) / (2 * muDriftBump));
+		System.out.println("Time (six simulations): " + timeOfBumpAndRevalue + " ms");
+	}
+
+	private static void printSensitivities(Map<String, MonteCarloEstimate> sensitivities) {
+		for (Map.Entry<String, MonteCarloEstimate> sensitivity : sensitivities.entrySet()) {
+			System.out.println(sensitivity.getKey() + ": " + sensitivity.getValue().getValue() + ", standard error "
+					+ sensitivity.getValue().getStandardError());
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the access to the same AbstractProcessSimulation by many threads: many call options with different
+ * strikes are valued in parallel, by tasks of the common ForkJoinPool, from the same Euler scheme, which is itself
+ * generated in parallel by the common pool. We check that all the tasks get the same final value, i.e., that the
+ * paths are generated only once, and that the prices are the ones computed by a single thread.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class ConcurrentAccessTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.2;
+		double muDrift = 0.0;
+
+		double timeStep = 0.01;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfSimulations = 200000;
+		int seed = 1897;
+
+		int numberOfStrikes = 64;
+		double[] strikes = new double[numberOfStrikes];
+		for (int i = 0; i < numberOfStrikes; i++) {
+			strikes[i] = 80 + 40.0 * i / numberOfStrikes;
+		}
+
+		AbstractProcessSimulation sharedSimulation = new EulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+		sharedSimulation.setParallelGeneration(10000, null);
+
+		RandomVariable[] finalValues = new RandomVariable[numberOfStrikes];
+		double[] prices = new double[numberOfStrikes];
+
+		long startTime = System.currentTimeMillis();
+		IntStream.range(0, numberOfStrikes).parallel().forEach(i -> {
+			finalValues[i] = sharedSimulation.getFinalValue();
+			prices[i] = finalValues[i].sub(strikes[i]).floor(0.0).getAverage();
+		});
+		long endTime = System.currentTimeMillis();
+
+		boolean isFinalValueTheSame = Arrays.stream(finalValues).allMatch(finalValue -> finalValue == finalValues[0]);
+		System.out.println("All the tasks got the same final value: " + isFinalValueTheSame);
+		System.out.println("Time: " + (endTime - startTime) + " ms");
+
+		AbstractProcessSimulation singleThreadSimulation = new EulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+		singleThreadSimulation.setParallelGeneration(10000, null);
+		RandomVariable finalValue = singleThreadSimulation.getFinalValue();
+
+		boolean arePricesTheSame = true;
+		for (int i = 0; i < numberOfStrikes; i++) {
+			arePricesTheSame = arePricesTheSame && prices[i] == finalValue.sub(strikes[i]).floor(0.0).getAverage();
+		}
+		System.out.println("Same prices as with a single thread: " + arePricesTheSame);
+	}
+}
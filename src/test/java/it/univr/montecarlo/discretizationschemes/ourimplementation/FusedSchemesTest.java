@@ -0,0 +1,61 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the methods evolve of the Euler, log Euler and Milstein schemes for the Black-Scholes model, by
+ * which the paths are generated: for every scheme, driven by the same Brownian motion, we compute the paths time step
+ * after time step as lastRealization.add(getDrift(...)).add(getDiffusion(...)), as they were computed before the
+ * schemes implemented FusedDiscretizationScheme, and we print the maximum absolute difference with the paths given by
+ * getProcessAtGivenTimeIndex, over all the simulations and all the times.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class FusedSchemesTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100.0;
+		double volatility = 0.3;
+		double muDrift = 0.05;
+
+		double finalTime = 1.0;
+		double timeStep = 0.01;
+		int numberOfTimesSteps = (int) (finalTime/timeStep);
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimesSteps, timeStep);
+
+		int numberOfSimulatedPaths = 100000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfSimulatedPaths, seed);
+
+		AbstractProcessSimulation[] simulators = {
+				new EulerSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion),
+				new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion),
+				new MilsteinSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion) };
+
+		for (AbstractProcessSimulation simulator : simulators) {
+			RandomVariable lastRealization = new RandomVariableFromDoubleArray(0.0,
+					simulator.inverseTransform.applyAsDouble(initialValue));
+			double maximumDifference = 0.0;
+			for (int timeIndex = 1; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+				lastRealization = lastRealization.add(simulator.getDrift(lastRealization, timeIndex))
+						.add(simulator.getDiffusion(lastRealization, timeIndex));
+				RandomVariable realizationsOfProcess = lastRealization.apply(simulator.transform);
+				RandomVariable realizationsOfFusedScheme = simulator.getProcessAtGivenTimeIndex(timeIndex);
+				for (int pathIndex = 0; pathIndex < numberOfSimulatedPaths; pathIndex++) {
+					maximumDifference = Math.max(maximumDifference,
+							Math.abs(realizationsOfProcess.get(pathIndex) - realizationsOfFusedScheme.get(pathIndex)));
+				}
+			}
+			System.out.println(simulator.getClass().getSimpleName() + ", maximum difference between the paths given by "
+					+ "getDrift and getDiffusion and by evolve: " + maximumDifference);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests HestonQuadraticExponentialScheme and LocalVolatilityLogEulerScheme. For the Heston model, we check
+ * that the discounted process is close to a martingale and that the average of the variance is close to its
+ * expectation, and that with a very small volatility of the variance the price of a call option is close to the
+ * Black-Scholes one with volatility sqrt(theta). Since the variance is evolved together with the process, we also
+ * check that the final value is the same when it is computed without storing the paths, and that with knock-out
+ * barriers the trajectories which are not knocked out are the same as without barriers. For the local volatility model, we check that a flat surface gives
+ * the Black-Scholes price, and we value the same option with a skew.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class HestonAndLocalVolatilityTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double riskFreeRate = 0.03;
+		double strike = 100;
+
+		double maturity = 1.0;
+		int numberOfTimeSteps = 50;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfSimulations = 200000;
+		int seed = 1897;
+
+		double kappa = 1.5;
+		double theta = 0.04;
+		double xi = 0.6;
+		double rho = -0.7;
+		double initialVariance = 0.09;
+
+		double blackScholesPrice = AnalyticFormulas.blackScholesOptionValue(initialValue, riskFreeRate, Math.sqrt(theta),
+				maturity, strike);
+
+		System.out.println("Heston model");
+
+		HestonQuadraticExponentialScheme hestonScheme = new HestonQuadraticExponentialScheme(riskFreeRate, kappa, theta,
+				xi, rho, initialValue, initialVariance, numberOfSimulations, seed, times);
+		hestonScheme.setParallelGeneration(10000, null);
+
+		long startTime = System.currentTimeMillis();
+		RandomVariable finalValue = hestonScheme.getFinalValue();
+		long endTime = System.currentTimeMillis();
+		System.out.println("Time: " + (endTime - startTime) + " ms");
+
+		RandomVariable discountedFinalValue = finalValue.mult(Math.exp(-riskFreeRate * maturity));
+		System.out.println("Average of the discounted final value: " + discountedFinalValue.getAverage()
+				+ ", standard error: " + discountedFinalValue.getStandardError());
+
+		RandomVariable finalVariance = hestonScheme.getVarianceAtGivenTimeIndex(numberOfTimeSteps);
+		double expectedVariance = theta + (initialVariance - theta) * Math.exp(-kappa * maturity);
+		System.out.println("Average of the final variance: " + finalVariance.getAverage() + ", expected: "
+				+ expectedVariance + ", standard error: " + finalVariance.getStandardError());
+
+		System.out.println("Price of the call option: "
+				+ finalValue.sub(strike).floor(0.0).getAverage() * Math.exp(-riskFreeRate * maturity));
+
+		HestonQuadraticExponentialScheme almostBlackScholesScheme = new HestonQuadraticExponentialScheme(riskFreeRate,
+				kappa, theta, 0.001, rho, initialValue, theta, numberOfSimulations, seed, times);
+		double almostBlackScholesPrice = almostBlackScholesScheme.getFinalValue().sub(strike).floor(0.0).getAverage()
+				* Math.exp(-riskFreeRate * maturity);
+		System.out.println("Price with xi = 0.001 and initial variance theta: " + almostBlackScholesPrice
+				+ ", Black-Scholes price: " + blackScholesPrice);
+
+		HestonQuadraticExponentialScheme streamingScheme = new HestonQuadraticExponentialScheme(riskFreeRate, kappa,
+				theta, xi, rho, initialValue, initialVariance, numberOfSimulations, seed, times);
+		streamingScheme.setParallelGeneration(10000, null);
+		System.out.println("Maximum difference of the final value without storing the paths: "
+				+ getMaximumAbsoluteDifference(streamingScheme.getFinalValueWithoutStoringPaths(), finalValue)
+				+ " (should be 0)");
+
+		HestonQuadraticExponentialScheme knockedOutScheme = new HestonQuadraticExponentialScheme(riskFreeRate, kappa,
+				theta, xi, rho, initialValue, initialVariance, numberOfSimulations, seed, times);
+		knockedOutScheme.setParallelGeneration(10000, null);
+		knockedOutScheme.setKnockOutBarriers(80, 120);
+		RandomVariable knockedOutFinalValue = knockedOutScheme.getFinalValue();
+		int numberOfAlivePaths = 0;
+		double maximumDifference = 0.0;
+		for (int pathIndex = 0; pathIndex < numberOfSimulations; pathIndex++) {
+			if (!Double.isNaN(knockedOutFinalValue.get(pathIndex))) {
+				numberOfAlivePaths++;
+				maximumDifference = Math.max(maximumDifference,
+						Math.abs(knockedOutFinalValue.get(pathIndex) - finalValue.get(pathIndex)));
+			}
+		}
+		System.out.println("With knock-out barriers 80 and 120, " + numberOfAlivePaths + " trajectories alive, maximum "
+				+ "difference with the ones without barriers: " + maximumDifference + " (should be 0)");
+
+		System.out.println();
+		System.out.println("Local volatility model");
+
+		LocalVolatilityLogEulerScheme flatScheme = new LocalVolatilityLogEulerScheme((time, spot) -> Math.sqrt(theta),
+				20, 500, 200, riskFreeRate, initialValue, numberOfSimulations, seed, times);
+		double flatPrice = flatScheme.getFinalValue().sub(strike).floor(0.0).getAverage() * Math.exp(-riskFreeRate * maturity);
+		System.out.println("Price with a flat surface: " + flatPrice + ", Black-Scholes price: " + blackScholesPrice);
+
+		LocalVolatilityLogEulerScheme skewScheme = new LocalVolatilityLogEulerScheme(
+				(time, spot) -> Math.sqrt(theta) * Math.pow(spot / initialValue, -0.5) * (1 + 0.1 * time),
+				20, 500, 200, riskFreeRate, initialValue, numberOfSimulations, seed, times);
+		skewScheme.setParallelGeneration(10000, null);
+
+		startTime = System.currentTimeMillis();
+		RandomVariable finalValueWithSkew = skewScheme.getFinalValue();
+		endTime = System.currentTimeMillis();
+		System.out.println("Time with a skew: " + (endTime - startTime) + " ms");
+		System.out.println("Price with a skew: "
+				+ finalValueWithSkew.sub(strike).floor(0.0).getAverage() * Math.exp(-riskFreeRate * maturity));
+	}
+
+	private static double getMaximumAbsoluteDifference(RandomVariable first, RandomVariable second) {
+		double maximumDifference = 0.0;
+		for (int pathIndex = 0; pathIndex < first.size(); pathIndex++) {
+			maximumDifference = Math.max(maximumDifference, Math.abs(first.get(pathIndex) - second.get(pathIndex)));
+		}
+		return maximumDifference;
+	}
+}
@@ -0,0 +1,78 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the incremental simulation of the process: we first ask the realizations of the process at an early
+ * time index, which makes the process be simulated only up to that index, and then the final value, which makes the
+ * simulation be continued from there. We check that the realizations are the same as the ones of a process which is
+ * simulated directly up to the final time, both by a single thread and in parallel, and we compare the times needed to
+ * get the process at the early time index. The process is driven by a BrownianMotionFromCounterBasedRandomNumbers,
+ * which generates the increments only when they are asked: a Brownian motion which generates all its increments
+ * the first time one of them is asked would take most of the time also for the early time index.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class IncrementalSimulationTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.3;
+		double muDrift = 0.02;
+
+		double timeStep = 0.001;
+		int numberOfTimeSteps = 1000;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfSimulations = 20000;
+		int seed = 1897;
+
+		int earlyTimeIndex = 50;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1, numberOfSimulations, seed);
+
+		for (boolean isGeneratedInParallel : new boolean[] { false, true }) {
+			System.out.println(isGeneratedInParallel ? "Parallel generation" : "Generation by a single thread");
+
+			AbstractProcessSimulation incrementalSimulation = new LogEulerSchemeForBlackScholes(sigmaVolatility,
+					muDrift, initialValue, brownianMotion);
+			AbstractProcessSimulation fullSimulation = new LogEulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+					initialValue, brownianMotion);
+			if (isGeneratedInParallel) {
+				incrementalSimulation.setParallelGeneration(2500, null);
+				fullSimulation.setParallelGeneration(2500, null);
+			}
+
+			long startTime = System.currentTimeMillis();
+			RandomVariable earlyValue = incrementalSimulation.getProcessAtGivenTimeIndex(earlyTimeIndex);
+			long timeForEarlyValue = System.currentTimeMillis() - startTime;
+
+			startTime = System.currentTimeMillis();
+			RandomVariable finalValue = incrementalSimulation.getFinalValue();
+			long timeForFinalValue = System.currentTimeMillis() - startTime;
+
+			startTime = System.currentTimeMillis();
+			RandomVariable finalValueOfFullSimulation = fullSimulation.getFinalValue();
+			long timeForFullSimulation = System.currentTimeMillis() - startTime;
+
+			RandomVariable earlyValueOfFullSimulation = fullSimulation.getProcessAtGivenTimeIndex(earlyTimeIndex);
+			boolean isEarlyValueTheSame = earlyValue.sub(earlyValueOfFullSimulation).getStandardDeviation() == 0.0
+					&& earlyValue.getAverage() == earlyValueOfFullSimulation.getAverage();
+			boolean isFinalValueTheSame = finalValue.sub(finalValueOfFullSimulation).getStandardDeviation() == 0.0
+					&& finalValue.getAverage() == finalValueOfFullSimulation.getAverage();
+
+			System.out.println("Time to get the value at the time index " + earlyTimeIndex + ": " + timeForEarlyValue + " ms");
+			System.out.println("Time to continue up to the final time: " + timeForFinalValue + " ms");
+			System.out.println("Time of the simulation up to the final time: " + timeForFullSimulation + " ms");
+			System.out.println("Same value at the time index " + earlyTimeIndex + ": " + isEarlyValueTheSame);
+			System.out.println("Same final value: " + isFinalValueTheSame);
+			System.out.println();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the knock-out barriers of AbstractProcessSimulation: we value a barrier option with a tight corridor
+ * simulating all the trajectories and simulating only the ones which are still inside the barriers, and we compare
+ * the values and the times needed by the simulations. The process is driven by a
+ * BrownianMotionFromCounterBasedRandomNumbers, so that the increments of the trajectories which are knocked out are not
+ * generated.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class KnockOutSimulationTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.3;
+		double muDrift = 0.0;
+
+		double lowerBarrier = 90;
+		double upperBarrier = 115;
+		double strike = 100;
+
+		double finalTime = 1.0;
+		int numberOfTimeSteps = 500;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, finalTime / numberOfTimeSteps);
+
+		int numberOfSimulations = 200000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1, numberOfSimulations, seed);
+
+		for (boolean hasKnockOutBarriers : new boolean[] { false, true }) {
+			LogEulerSchemeForBlackScholes scheme = new LogEulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+					initialValue, brownianMotion);
+			if (hasKnockOutBarriers) {
+				scheme.setKnockOutBarriers(lowerBarrier, upperBarrier);
+			}
+
+			// the time of the simulation without storing the paths, which is the one of the time steps
+			long startTime = System.currentTimeMillis();
+			scheme.getFinalValueWithoutStoringPaths();
+			long timeOfSimulation = System.currentTimeMillis() - startTime;
+
+			RandomVariable finalValue = scheme.getFinalValue();
+
+			// the payoff is zero for the trajectories which exit the barriers: this is also true if they are NaN
+			RandomVariable payoffs = scheme.getRealizationsOfPathFunctional(path -> {
+				for (double value : path) {
+					if (!(value >= lowerBarrier && value <= upperBarrier)) {
+						return 0.0;
+					}
+				}
+				return Math.max(path[path.length - 1] - strike, 0.0);
+			});
+
+			long numberOfSurvivingTrajectories = 0;
+			for (int simulationIndex = 0; simulationIndex < numberOfSimulations; simulationIndex++) {
+				if (!Double.isNaN(finalValue.get(simulationIndex))) {
+					numberOfSurvivingTrajectories++;
+				}
+			}
+
+			System.out.println(hasKnockOutBarriers ? "Only the trajectories inside the barriers:" : "All the trajectories:");
+			System.out.println("Value: " + payoffs.getAverage() + ", time of the simulation: " + timeOfSimulation
+					+ " ms, trajectories with a final value: " + numberOfSurvivingTrajectories);
+		}
+	}
+}
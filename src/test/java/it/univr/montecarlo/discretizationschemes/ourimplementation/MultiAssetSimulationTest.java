@@ -0,0 +1,111 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the simulation of 50 correlated geometric Brownian motions by MultiAssetLogEulerSchemeForBlackScholes:
+ * we check that the averages of the final values are close to S^j_0 exp(mu^j T), that the sample correlation of the
+ * log returns of two assets is close to the one given, and we value a basket call option. The same option is then
+ * valued by a log Euler scheme which only implements getDrift and getDiffusion, driven by the same Brownian motion:
+ * the prices must be the same, up to rounding errors.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MultiAssetSimulationTest {
+
+	public static void main(String[] args) {
+
+		int numberOfAssets = 50;
+		double correlation = 0.5;
+
+		double[] initialValues = new double[numberOfAssets];
+		double[] sigmaVolatilities = new double[numberOfAssets];
+		double[] muDrifts = new double[numberOfAssets];
+		double[][] correlationMatrix = new double[numberOfAssets][numberOfAssets];
+		for (int i = 0; i < numberOfAssets; i++) {
+			initialValues[i] = 100;
+			sigmaVolatilities[i] = 0.1 + 0.2 * i / numberOfAssets;
+			muDrifts[i] = 0.02;
+			for (int j = 0; j < numberOfAssets; j++) {
+				correlationMatrix[i][j] = i == j ? 1.0 : correlation;
+			}
+		}
+
+		double maturity = 1.0;
+		int numberOfTimeSteps = 50;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfSimulations = 50000;
+		int seed = 1897;
+
+		double strike = 100;
+
+		MultiAssetLogEulerSchemeForBlackScholes fusedScheme = new MultiAssetLogEulerSchemeForBlackScholes(sigmaVolatilities,
+				muDrifts, initialValues, correlationMatrix, numberOfSimulations, seed, times);
+
+		long startTime = System.currentTimeMillis();
+		RandomVariable[] finalValues = fusedScheme.getFinalValuesWithoutStoringPaths();
+		long endTime = System.currentTimeMillis();
+		System.out.println("Time of the simulation of " + numberOfAssets + " assets: " + (endTime - startTime) + " ms");
+
+		double maximumErrorInStandardErrors = 0.0;
+		for (int assetIndex = 0; assetIndex < numberOfAssets; assetIndex++) {
+			double expectedValue = initialValues[assetIndex] * Math.exp(muDrifts[assetIndex] * maturity);
+			maximumErrorInStandardErrors = Math.max(maximumErrorInStandardErrors,
+					Math.abs(finalValues[assetIndex].getAverage() - expectedValue) / finalValues[assetIndex].getStandardError());
+		}
+		System.out.println("Maximum error of the averages of the final values, in standard errors: " + maximumErrorInStandardErrors);
+
+		RandomVariable firstLogReturn = finalValues[0].log();
+		RandomVariable lastLogReturn = finalValues[numberOfAssets - 1].log();
+		double sampleCovariance = firstLogReturn.mult(lastLogReturn).getAverage()
+				- firstLogReturn.getAverage() * lastLogReturn.getAverage();
+		double sampleCorrelation = sampleCovariance / (firstLogReturn.getStandardDeviation() * lastLogReturn.getStandardDeviation());
+		System.out.println("Sample correlation of the log returns: " + sampleCorrelation + ", given: " + correlation);
+
+		double fusedPrice = getBasketCallPrice(finalValues, strike);
+		System.out.println("Price of the basket call option: " + fusedPrice);
+
+		// the same scheme, which only implements getDrift and getDiffusion
+		AbstractMultiAssetProcessSimulation randomVariableScheme = new AbstractMultiAssetProcessSimulation(initialValues,
+				correlationMatrix, fusedScheme.getStochasticDriver()) {
+			{
+				transform = (x -> Math.exp(x));
+				inverseTransform = (x -> Math.log(x));
+			}
+
+			@Override
+			protected RandomVariable getDrift(RandomVariable[] lastRealizations, int assetIndex, int timeIndex) {
+				double timeStep = getTimeDiscretization().getTimeStep(timeIndex - 1);
+				return new RandomVariableFromDoubleArray(getTimeDiscretization().getTime(timeIndex),
+						(muDrifts[assetIndex] - 0.5 * sigmaVolatilities[assetIndex] * sigmaVolatilities[assetIndex]) * timeStep);
+			}
+
+			@Override
+			protected RandomVariable getDiffusion(RandomVariable[] lastRealizations, int assetIndex, int timeIndex,
+					RandomVariable correlatedBrownianIncrement) {
+				return correlatedBrownianIncrement.mult(sigmaVolatilities[assetIndex]);
+			}
+		};
+
+		startTime = System.currentTimeMillis();
+		RandomVariable[] finalValuesOfRandomVariableScheme = randomVariableScheme.getFinalValuesWithoutStoringPaths();
+		endTime = System.currentTimeMillis();
+		double randomVariablePrice = getBasketCallPrice(finalValuesOfRandomVariableScheme, strike);
+		System.out.println("Time of the simulation with getDrift and getDiffusion: " + (endTime - startTime) + " ms");
+		System.out.println("Price with getDrift and getDiffusion: " + randomVariablePrice + ", difference: "
+				+ Math.abs(randomVariablePrice - fusedPrice));
+	}
+
+	private static double getBasketCallPrice(RandomVariable[] finalValues, double strike) {
+		RandomVariable basket = finalValues[0];
+		for (int assetIndex = 1; assetIndex < finalValues.length; assetIndex++) {
+			basket = basket.add(finalValues[assetIndex]);
+		}
+		return basket.mult(1.0 / finalValues.length).sub(strike).floor(0.0).getAverage();
+	}
+}
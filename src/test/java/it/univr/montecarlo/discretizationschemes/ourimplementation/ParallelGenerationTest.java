@@ -0,0 +1,66 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import java.util.concurrent.ForkJoinPool;
+
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the parallel generation of the paths of AbstractProcessSimulation. We generate the same process
+ * with pools with different numbers of threads, and check that the simulated values are the same. We also print the
+ * time needed for the generation.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class ParallelGenerationTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100.0;
+		double volatility = 0.3;
+		double muDrift = 0.0;
+
+		double finalTime = 1.0;
+		double timeStep = 0.01;
+		int numberOfTimesSteps = (int) (finalTime/timeStep);
+
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimesSteps, timeStep);
+
+		int numberOfSimulatedPaths = 200000;
+		int numberOfPathsPerBlock = 10000;
+		int seed = 1897;
+
+		int[] numbersOfThreads = {1, 2, Runtime.getRuntime().availableProcessors()};
+
+		RandomVariable finalValueWithOneThread = null;
+
+		for (int numberOfThreads : numbersOfThreads) {
+
+			AbstractProcessSimulation simulator = new EulerSchemeForBlackScholes(volatility, muDrift, initialValue,
+					numberOfSimulatedPaths, seed, times);
+
+			ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+			simulator.setParallelGeneration(numberOfPathsPerBlock, pool);
+
+			long startTime = System.currentTimeMillis();
+			RandomVariable finalValue = simulator.getFinalValue();
+			long endTime = System.currentTimeMillis();
+			pool.shutdown();
+
+			if (finalValueWithOneThread == null) {
+				finalValueWithOneThread = finalValue;
+			}
+
+			//the paths must not depend on the number of threads
+			boolean sameValues = true;
+			for (int i = 0; i < numberOfSimulatedPaths; i++) {
+				sameValues &= finalValue.get(i) == finalValueWithOneThread.get(i);
+			}
+
+			System.out.println("Threads: " + numberOfThreads + ", average of the final value: " + finalValue.getAverage()
+					+ ", same values as with one thread: " + sameValues + ", time: " + (endTime - startTime) + " ms");
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package it.univr.montecarlo.discretizationschemes.ourimplementation;
+
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the simulation of the process without storing its paths: for the three schemes for the
+ * Black-Scholes model, driven by the same Brownian motion, we check that the snapshots given by
+ * getProcessAtGivenTimeIndicesWithoutStoringPaths and the final value given by getFinalValueWithoutStoringPaths are the
+ * same as the ones given by getProcessAtGivenTimeIndex. We do it for a BrownianMotionFromMersenneRandomNumbers, which
+ * stores its increments, and for a BrownianMotionFromCounterBasedRandomNumbers, which generates them on demand.
+ * Finally, we check that for the schemes constructed from a seed the values simulated without storing the paths are
+ * the ones of a BrownianMotionFromCounterBasedRandomNumbers with the same seed, also if the paths have already been
+ * simulated by the BrownianMotionFromMersenneRandomNumbers constructed from the seed.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class StreamingSimulationTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100.0;
+		double volatility = 0.3;
+		double muDrift = 0.0;
+
+		double finalTime = 1.0;
+		double timeStep = 0.01;
+		int numberOfTimesSteps = (int) (finalTime/timeStep);
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimesSteps, timeStep);
+
+		int numberOfSimulatedPaths = 100000;
+		int seed = 1897;
+
+		// the same time index is asked twice, and not in increasing order
+		int[] snapshotTimeIndices = { 50, 10, numberOfTimesSteps, 50 };
+
+		BrownianMotion[] brownianMotions = {
+				new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfSimulatedPaths, seed),
+				new BrownianMotionFromCounterBasedRandomNumbers(times, 1, numberOfSimulatedPaths, seed) };
+
+		for (BrownianMotion brownianMotion : brownianMotions) {
+			System.out.println(brownianMotion.getClass().getSimpleName());
+
+			AbstractProcessSimulation[] storingSimulators = {
+					new EulerSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion),
+					new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion),
+					new MilsteinSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion) };
+
+			AbstractProcessSimulation[] streamingSimulators = {
+					new EulerSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion),
+					new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion),
+					new MilsteinSchemeForBlackScholes(volatility, muDrift, initialValue, brownianMotion) };
+
+			for (int schemeIndex = 0; schemeIndex < storingSimulators.length; schemeIndex++) {
+				RandomVariable[] snapshots = streamingSimulators[schemeIndex]
+						.getProcessAtGivenTimeIndicesWithoutStoringPaths(snapshotTimeIndices);
+				RandomVariable finalValue = streamingSimulators[schemeIndex].getFinalValueWithoutStoringPaths();
+
+				double maximumDifference = getMaximumAbsoluteDifference(finalValue,
+						storingSimulators[schemeIndex].getFinalValue());
+				for (int i = 0; i < snapshotTimeIndices.length; i++) {
+					maximumDifference = Math.max(maximumDifference, getMaximumAbsoluteDifference(snapshots[i],
+							storingSimulators[schemeIndex].getProcessAtGivenTimeIndex(snapshotTimeIndices[i])));
+				}
+				System.out.println(storingSimulators[schemeIndex].getClass().getSimpleName()
+						+ ", maximum difference with the stored paths: " + maximumDifference + " (should be 0)");
+			}
+			System.out.println();
+		}
+
+		System.out.println("Schemes constructed from the seed");
+		BrownianMotion counterBasedBrownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1,
+				numberOfSimulatedPaths, seed);
+		AbstractProcessSimulation[] seedSimulators = {
+				new EulerSchemeForBlackScholes(volatility, muDrift, initialValue, numberOfSimulatedPaths, seed, times),
+				new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue, numberOfSimulatedPaths, seed, times),
+				new MilsteinSchemeForBlackScholes(volatility, muDrift, initialValue, numberOfSimulatedPaths, seed, times) };
+		AbstractProcessSimulation[] counterBasedSimulators = {
+				new EulerSchemeForBlackScholes(volatility, muDrift, initialValue, counterBasedBrownianMotion),
+				new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue, counterBasedBrownianMotion),
+				new MilsteinSchemeForBlackScholes(volatility, muDrift, initialValue, counterBasedBrownianMotion) };
+		for (int schemeIndex = 0; schemeIndex < seedSimulators.length; schemeIndex++) {
+			// the paths driven by the Mersenne Brownian motion are simulated, but not used below
+			seedSimulators[schemeIndex].getFinalValue();
+			double maximumDifference = getMaximumAbsoluteDifference(
+					seedSimulators[schemeIndex].getFinalValueWithoutStoringPaths(),
+					counterBasedSimulators[schemeIndex].getFinalValue());
+			System.out.println(seedSimulators[schemeIndex].getClass().getSimpleName()
+					+ ", maximum difference with the counter based Brownian motion: " + maximumDifference + " (should be 0)");
+		}
+	}
+
+	private static double getMaximumAbsoluteDifference(RandomVariable first, RandomVariable second) {
+		double maximumDifference = 0.0;
+		for (int pathIndex = 0; pathIndex < first.size(); pathIndex++) {
+			maximumDifference = Math.max(maximumDifference, Math.abs(first.get(pathIndex) - second.get(pathIndex)));
+		}
+		return maximumDifference;
+	}
+}
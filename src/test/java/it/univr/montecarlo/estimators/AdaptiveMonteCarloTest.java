@@ -0,0 +1,89 @@
+package it.univr.montecarlo.estimators;
+
+import java.util.function.Function;
+
+import it.univr.analyticformulas.OurAnalyticFormulas;
+import it.univr.montecarlo.ourproducts.BarrierOption;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests AdaptiveMonteCarloEstimator: we value the down and out barrier option of BarrierOptionTest with the
+ * Finmath library MonteCarloBlackScholesModel, without fixing the number of simulations. First we ask for smaller and
+ * smaller standard errors, then for a confidence interval, then we give a time budget too small to reach the
+ * tolerance, and finally we give Long.MAX_VALUE as no limit of time.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class AdaptiveMonteCarloTest {
+
+	public static void main(String[] args) {
+
+		//option parameters
+		double upperBarrier = Long.MAX_VALUE;
+		double lowerBarrier = 90;
+		double maturity = 2.0;
+		double strike = 100;
+
+		AbstractAssetMonteCarloProduct optionValueCalculator = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier);
+
+		//time discretization parameters
+		double initialTime = 0.0;
+		double timeStep = 0.1;
+		int numberOfTimeSteps = (int) (maturity/timeStep);
+
+		TimeDiscretization times = new TimeDiscretizationFromArray(initialTime, numberOfTimeSteps, timeStep);
+
+		//model parameters
+		double initialValue = 100;
+		double riskFreeRate = 0.0;
+		double volatility = 0.2;
+
+		//the realizations of the discounted payoff for a given Brownian motion
+		Function<BrownianMotion, RandomVariable> discountedPayoff = brownianMotion -> {
+			MonteCarloBlackScholesModel blackScholesProcess = new MonteCarloBlackScholesModel(initialValue, riskFreeRate,
+					volatility, brownianMotion);
+			try {
+				return optionValueCalculator.getValue(0.0, blackScholesProcess);
+			} catch (CalculationException e) {
+				throw new IllegalStateException(e);
+			}
+		};
+
+		int numberOfPathsPerBatch = 5000;
+		int seed = 1897;
+		long timeBudgetInMilliseconds = 60000;
+
+		AdaptiveMonteCarloEstimator estimator = new AdaptiveMonteCarloEstimator(discountedPayoff, times,
+				numberOfPathsPerBatch, seed);
+
+		System.out.println("The analytic price (continuous monitoring) is: "
+				+ OurAnalyticFormulas.blackScholesDownAndOut(initialValue, riskFreeRate, volatility, maturity, strike, lowerBarrier));
+		System.out.println();
+
+		double[] tolerances = {0.1, 0.05, 0.02};
+		for (double tolerance : tolerances) {
+			MonteCarloEstimate estimate = estimator.getEstimateWithStandardError(tolerance, timeBudgetInMilliseconds);
+			System.out.println("Standard error at most " + tolerance + ": " + estimate);
+		}
+		System.out.println();
+
+		double confidenceLevel = 0.99;
+		MonteCarloEstimate estimate = estimator.getEstimateWithConfidenceHalfWidth(0.05, confidenceLevel, timeBudgetInMilliseconds);
+		System.out.println("Half width of the 99% confidence interval at most 0.05: " + estimate);
+		System.out.println("Half width: " + estimate.getConfidenceHalfWidth(confidenceLevel));
+		System.out.println();
+
+		estimate = estimator.getEstimateWithStandardError(0.001, 200);
+		System.out.println("Standard error at most 0.001 in 200 ms: " + estimate);
+
+		estimate = estimator.getEstimateWithStandardError(0.05, Long.MAX_VALUE);
+		System.out.println("Standard error at most 0.05 without limit of time: " + estimate);
+	}
+}
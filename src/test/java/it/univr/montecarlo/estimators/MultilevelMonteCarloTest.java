@@ -0,0 +1,78 @@
+package it.univr.montecarlo.estimators;
+
+import java.util.function.Function;
+
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.EulerSchemeForBlackScholes;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.MilsteinSchemeForBlackScholes;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class tests MultilevelMonteCarloEstimator: we value a European call option in the Black-Scholes model for
+ * different target root mean square errors, with the Euler and with the Milstein scheme. We print the error with
+ * respect to the analytic price, the numbers of paths of the levels and the time needed.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MultilevelMonteCarloTest {
+
+	public static void main(String[] args) {
+
+		//option parameters
+		double maturity = 1.0;
+		double strike = 100;
+
+		//model parameters
+		double initialValue = 100;
+		double riskFreeRate = 0.05;
+		double volatility = 0.2;
+
+		double discountFactor = Math.exp(-riskFreeRate * maturity);
+		double analyticPrice = AnalyticFormulas.blackScholesOptionValue(initialValue, riskFreeRate, volatility, maturity, strike);
+		System.out.println("Analytic price: " + analyticPrice);
+
+		Function<AbstractProcessSimulation, RandomVariable> discountedPayoff = process -> process
+				.getFinalValueWithoutStoringPaths().sub(strike).floor(0.0).mult(discountFactor);
+
+		Function<BrownianMotion, AbstractProcessSimulation> euler = brownianMotion -> new EulerSchemeForBlackScholes(
+				volatility, riskFreeRate, initialValue, brownianMotion);
+		Function<BrownianMotion, AbstractProcessSimulation> milstein = brownianMotion -> new MilsteinSchemeForBlackScholes(
+				volatility, riskFreeRate, initialValue, brownianMotion);
+
+		int numberOfTimeStepsOfCoarsestLevel = 1;
+		int refinementFactor = 4;
+		int numberOfInitialPaths = 2000;
+		int maximumLevel = 8;
+		int seed = 1897;
+
+		double[] targetRootMeanSquareErrors = {0.05, 0.02, 0.01};
+
+		String[] names = {"Euler", "Milstein"};
+		@SuppressWarnings("unchecked")
+		Function<BrownianMotion, AbstractProcessSimulation>[] schemes = new Function[] {euler, milstein};
+
+		for (int i = 0; i < schemes.length; i++) {
+			System.out.println();
+			System.out.println(names[i] + " scheme");
+			MultilevelMonteCarloEstimator estimator = new MultilevelMonteCarloEstimator(schemes[i], discountedPayoff,
+					maturity, numberOfTimeStepsOfCoarsestLevel, refinementFactor, numberOfInitialPaths, maximumLevel, seed);
+			for (double targetRootMeanSquareError : targetRootMeanSquareErrors) {
+				long startTime = System.currentTimeMillis();
+				double value = estimator.getValue(targetRootMeanSquareError);
+				long endTime = System.currentTimeMillis();
+
+				System.out.println("Target RMSE " + targetRootMeanSquareError + ": value " + value + ", error "
+						+ Math.abs(value - analyticPrice) + ", standard error " + estimator.getStandardError()
+						+ ", estimated bias " + estimator.getEstimatedBias() + ", time " + (endTime - startTime) + " ms");
+				String numbersOfPaths = "";
+				for (int level = 0; level < estimator.getNumberOfLevels(); level++) {
+					numbersOfPaths += estimator.getNumberOfPathsOfLevel(level) + " ";
+				}
+				System.out.println("Paths per level: " + numbersOfPaths);
+			}
+		}
+	}
+}
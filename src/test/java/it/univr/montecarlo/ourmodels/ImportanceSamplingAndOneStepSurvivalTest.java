@@ -0,0 +1,91 @@
+package it.univr.montecarlo.ourmodels;
+
+import it.univr.montecarlo.ourproducts.BarrierOption;
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.AssetModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.EuropeanOption;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests ImportanceSamplingBlackScholesModel and OneStepSurvivalBlackScholesModel. For a call option which
+ * is deep out of the money, we compare the values and the standard errors given by the Black-Scholes model and by
+ * importance sampling with the analytic value. For a knock-out option with barriers close to the initial value, we
+ * compare the values and the standard errors given by the Black-Scholes model and by one step survival, together
+ * with the times needed.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class ImportanceSamplingAndOneStepSurvivalTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double initialValue = 100;
+		double riskFreeRate = 0.02;
+		double volatility = 0.2;
+		double maturity = 1.0;
+
+		int numberOfTimeSteps = 50;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfPaths = 100000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		AssetModelMonteCarloSimulationModel blackScholesModel = new MonteCarloBlackScholesModel(initialValue,
+				riskFreeRate, volatility, brownianMotion);
+
+		double strike = 180;
+		System.out.println("Call option with strike " + strike);
+
+		double driftShift = ImportanceSamplingBlackScholesModel.getDriftShiftForStrike(initialValue, riskFreeRate,
+				volatility, maturity, strike);
+		AssetModelMonteCarloSimulationModel importanceSamplingModel = new ImportanceSamplingBlackScholesModel(
+				initialValue, riskFreeRate, volatility, driftShift, brownianMotion);
+
+		EuropeanOption callOption = new EuropeanOption(maturity, strike);
+		printValue("Black-Scholes model", callOption.getValue(0.0, blackScholesModel));
+		printValue("Importance sampling with theta = " + driftShift, callOption.getValue(0.0, importanceSamplingModel));
+		System.out.println("Analytic value: "
+				+ AnalyticFormulas.blackScholesOptionValue(initialValue, riskFreeRate, volatility, maturity, strike));
+
+		System.out.println();
+		double lowerBarrier = 95;
+		double upperBarrier = 110;
+		strike = 100;
+		System.out.println("Barrier option with strike " + strike + " and barriers " + lowerBarrier + " and " + upperBarrier);
+
+		BarrierOption barrierOption = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier);
+
+		// both times include the simulation of the paths
+		long startTime = System.currentTimeMillis();
+		RandomVariable values = barrierOption.getValue(0.0,
+				new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, brownianMotion));
+		long time = System.currentTimeMillis() - startTime;
+		printValue("Black-Scholes model", values);
+		System.out.println("Time: " + time + " ms");
+
+		startTime = System.currentTimeMillis();
+		AssetModelMonteCarloSimulationModel oneStepSurvivalModel = new OneStepSurvivalBlackScholesModel(initialValue,
+				riskFreeRate, volatility, lowerBarrier, upperBarrier, brownianMotion);
+		values = barrierOption.getValue(0.0, oneStepSurvivalModel);
+		time = System.currentTimeMillis() - startTime;
+		printValue("One step survival", values);
+		System.out.println("Time: " + time + " ms");
+	}
+
+	/*
+	 * The average of the values returned by the products is the value of the option, and its standard error is the
+	 * standard error of the estimate.
+	 */
+	private static void printValue(String description, RandomVariable values) {
+		System.out.println(description + ": value " + values.getAverage() + ", standard error "
+				+ values.getStandardError());
+	}
+}
@@ -0,0 +1,62 @@
+package it.univr.montecarlo.ourproducts;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the monitoring of the barriers in BarrierOption, which goes through the alive trajectories once for
+ * every time. We compare the value with the one computed as the product of the indicator functions of the event
+ * {B_L <= X_{t_i} <= B_U} for all the times t_i, constructed as random variables, and we compare the times needed by
+ * the two computations, once the paths of the model have been generated.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class BarrierMonitoringTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double lowerBarrier = 80;
+		double upperBarrier = 130;
+		double maturity = 1.0;
+		double strike = 100;
+
+		int numberOfTimeSteps = 250;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfPaths = 100000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(100, 0.0, 0.3, brownianMotion);
+
+		BarrierOption option = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier);
+
+		// the first valuation also generates the paths of the model
+		option.getValue(model);
+
+		long startTime = System.nanoTime();
+		double value = option.getValue(model);
+		long timeOfFusedMonitoring = System.nanoTime() - startTime;
+
+		startTime = System.nanoTime();
+		RandomVariable insideBarriersAtAllTimes = model.getRandomVariableForConstant(1.0);
+		for (int timeIndex = 0; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+			insideBarriersAtAllTimes = insideBarriersAtAllTimes.mult(model.getAssetValue(times.getTime(timeIndex), 0)
+					.apply(x -> x >= lowerBarrier & x <= upperBarrier ? 1.0 : 0.0));
+		}
+		double valueWithIndicatorFunctions = model.getAssetValue(maturity, 0).sub(strike).floor(0.0)
+				.mult(insideBarriersAtAllTimes).getAverage();
+		long timeWithIndicatorFunctions = System.nanoTime() - startTime;
+
+		System.out.println("Value with the alive trajectories: " + value + ", time: " + timeOfFusedMonitoring / 1000000 + " ms");
+		System.out.println("Value with the indicator functions: " + valueWithIndicatorFunctions + ", time: "
+				+ timeWithIndicatorFunctions / 1000000 + " ms");
+		System.out.println("Difference: " + Math.abs(value - valueWithIndicatorFunctions));
+	}
+}
@@ -0,0 +1,69 @@
+package it.univr.montecarlo.ourproducts;
+
+import it.univr.montecarlo.estimators.MonteCarloEstimate;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests BarrierOptionGrid: we value a grid of barrier options with 20 strikes and 5 pairs of barriers
+ * going through the paths once, and we compare the values and the time with the ones given by a BarrierOption for
+ * every strike and pair of barriers.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class BarrierOptionGridTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double maturity = 1.0;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfPaths = 100000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(100, 0.02, 0.25, brownianMotion);
+
+		double[] strikes = new double[20];
+		for (int strikeIndex = 0; strikeIndex < strikes.length; strikeIndex++) {
+			strikes[strikeIndex] = 80 + 2 * strikeIndex;
+		}
+		double[] lowerBarriers = { 70, 75, 80, 85, 0 };
+		double[] upperBarriers = { 150, 140, 130, 125, Double.POSITIVE_INFINITY };
+
+		// the paths of the model are generated before the two valuations
+		model.getAssetValue(maturity, 0);
+
+		long startTime = System.currentTimeMillis();
+		MonteCarloEstimate[][] estimates = new BarrierOptionGrid(maturity, strikes, lowerBarriers, upperBarriers, 0)
+				.getValues(model);
+		long timeOfGrid = System.currentTimeMillis() - startTime;
+
+		startTime = System.currentTimeMillis();
+		double maximumDifference = 0.0;
+		double maximumStandardError = 0.0;
+		for (int barrierIndex = 0; barrierIndex < lowerBarriers.length; barrierIndex++) {
+			for (int strikeIndex = 0; strikeIndex < strikes.length; strikeIndex++) {
+				double value = new BarrierOption(maturity, strikes[strikeIndex], lowerBarriers[barrierIndex],
+						upperBarriers[barrierIndex]).getValue(model);
+				maximumDifference = Math.max(maximumDifference,
+						Math.abs(value - estimates[barrierIndex][strikeIndex].getValue()));
+				maximumStandardError = Math.max(maximumStandardError, estimates[barrierIndex][strikeIndex].getStandardError());
+			}
+		}
+		long timeOfSingleOptions = System.currentTimeMillis() - startTime;
+
+		System.out.println("Time for the grid: " + timeOfGrid + " ms");
+		System.out.println("Time for the single options: " + timeOfSingleOptions + " ms");
+		System.out.println("Maximum difference of the values: " + maximumDifference);
+		System.out.println("Maximum standard error: " + maximumStandardError);
+		System.out.println("Barriers " + lowerBarriers[2] + " and " + upperBarriers[2] + ", strike " + strikes[10] + ": "
+				+ estimates[2][10]);
+	}
+}
@@ -0,0 +1,78 @@
+package it.univr.montecarlo.ourproducts;
+
+import it.univr.analyticformulas.OurAnalyticFormulas;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests the Brownian bridge correction of BarrierOption. For a down-and-out call option, we compare the
+ * prices given with and without the correction on coarse time discretizations with the analytic price of the option
+ * with continuously monitored barrier. For a double barrier option, we compare the prices given with the correction on
+ * a coarse and on a fine time discretization with the one given without the correction on the fine one, which slowly
+ * converges to the price of the continuously monitored option.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class BrownianBridgeCorrectionTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double initialValue = 100;
+		double riskFreeRate = 0.0;
+		double volatility = 0.3;
+
+		double maturity = 1.0;
+		double strike = 100;
+		double lowerBarrier = 85;
+
+		int numberOfPaths = 100000;
+		int seed = 1897;
+
+		double analyticPrice = OurAnalyticFormulas.blackScholesDownAndOut(initialValue, riskFreeRate, volatility,
+				maturity, strike, lowerBarrier);
+		System.out.println("Down-and-out call option, analytic price: " + analyticPrice);
+
+		BarrierOption discreteOption = new BarrierOption(maturity, strike, lowerBarrier, Double.POSITIVE_INFINITY);
+		BarrierOption correctedOption = new BarrierOption(maturity, strike, lowerBarrier, Double.POSITIVE_INFINITY, 0, volatility);
+
+		for (int numberOfTimeSteps : new int[] { 10, 25, 50 }) {
+			MonteCarloBlackScholesModel model = getModel(initialValue, riskFreeRate, volatility, maturity,
+					numberOfTimeSteps, numberOfPaths, seed);
+			System.out.println(numberOfTimeSteps + " time steps: price without correction " + discreteOption.getValue(model)
+					+ ", with correction " + correctedOption.getValue(model));
+		}
+
+		System.out.println();
+		double upperBarrier = 140;
+		System.out.println("Double barrier call option, barriers " + lowerBarrier + " and " + upperBarrier);
+
+		MonteCarloBlackScholesModel fineModel = getModel(initialValue, riskFreeRate, volatility, maturity, 1000,
+				numberOfPaths, seed);
+		long startTime = System.currentTimeMillis();
+		double finePrice = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier).getValue(fineModel);
+		long timeOfFinePrice = System.currentTimeMillis() - startTime;
+		double correctedFinePrice = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier, 0, volatility).getValue(fineModel);
+
+		MonteCarloBlackScholesModel coarseModel = getModel(initialValue, riskFreeRate, volatility, maturity, 50,
+				numberOfPaths, seed);
+		startTime = System.currentTimeMillis();
+		double coarsePrice = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier, 0, volatility).getValue(coarseModel);
+		long timeOfCoarsePrice = System.currentTimeMillis() - startTime;
+
+		System.out.println("1000 time steps without correction: " + finePrice + ", time " + timeOfFinePrice + " ms");
+		System.out.println("1000 time steps with correction: " + correctedFinePrice);
+		System.out.println("50 time steps with correction: " + coarsePrice + ", time " + timeOfCoarsePrice + " ms");
+	}
+
+	private static MonteCarloBlackScholesModel getModel(double initialValue, double riskFreeRate, double volatility,
+			double maturity, int numberOfTimeSteps, int numberOfPaths, int seed) {
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		return new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, brownianMotion);
+	}
+}
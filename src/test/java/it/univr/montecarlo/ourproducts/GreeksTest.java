@@ -0,0 +1,87 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.Map;
+
+import it.univr.montecarlo.estimators.MonteCarloEstimate;
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests BarrierOptionGreeks. For a call option without barriers, we compare the Greeks computed by the
+ * pathwise method with the analytic ones. For a barrier option, we compare the Greeks computed by the likelihood ratio
+ * method with the ones computed by bump-and-revalue with central finite differences, using the same random numbers
+ * for the bumped models, and we compare the times needed.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class GreeksTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double initialValue = 100;
+		double riskFreeRate = 0.02;
+		double volatility = 0.25;
+
+		double maturity = 1.0;
+		double strike = 100;
+
+		int numberOfTimeSteps = 50;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfPaths = 200000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, brownianMotion);
+
+		System.out.println("Call option, pathwise method");
+		Map<String, MonteCarloEstimate> greeks = new BarrierOptionGreeks(maturity, strike, 0, Double.POSITIVE_INFINITY)
+				.getGreeks(model, riskFreeRate, volatility);
+		printGreeks(greeks);
+		System.out.println("Analytic: value " + AnalyticFormulas.blackScholesOptionValue(initialValue, riskFreeRate, volatility, maturity, strike)
+				+ ", delta " + AnalyticFormulas.blackScholesOptionDelta(initialValue, riskFreeRate, volatility, maturity, strike)
+				+ ", gamma " + AnalyticFormulas.blackScholesOptionGamma(initialValue, riskFreeRate, volatility, maturity, strike)
+				+ ", vega " + AnalyticFormulas.blackScholesOptionVega(initialValue, riskFreeRate, volatility, maturity, strike));
+
+		System.out.println();
+		double lowerBarrier = 80;
+		double upperBarrier = 150;
+		System.out.println("Barrier option with barriers " + lowerBarrier + " and " + upperBarrier + ", likelihood ratio method");
+
+		long startTime = System.currentTimeMillis();
+		greeks = new BarrierOptionGreeks(maturity, strike, lowerBarrier, upperBarrier).getGreeks(model, riskFreeRate, volatility);
+		long timeOfLikelihoodRatio = System.currentTimeMillis() - startTime;
+		printGreeks(greeks);
+		System.out.println("Time (paths already generated): " + timeOfLikelihoodRatio + " ms");
+
+		startTime = System.currentTimeMillis();
+		BarrierOption option = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier);
+		// the payoff is not continuous, so that the finite differences of the second order are noisy for small bumps
+		double spotBump = 3.0;
+		double volatilityBump = 0.01;
+		double value = option.getValue(new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, brownianMotion));
+		double valueUp = option.getValue(new MonteCarloBlackScholesModel(initialValue + spotBump, riskFreeRate, volatility, brownianMotion));
+		double valueDown = option.getValue(new MonteCarloBlackScholesModel(initialValue - spotBump, riskFreeRate, volatility, brownianMotion));
+		double valueVolatilityUp = option.getValue(new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility + volatilityBump, brownianMotion));
+		double valueVolatilityDown = option.getValue(new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility - volatilityBump, brownianMotion));
+		long timeOfBumpAndRevalue = System.currentTimeMillis() - startTime;
+
+		System.out.println("Bump-and-revalue: value " + value + ", delta " + (valueUp - valueDown) / (2 * spotBump)
+				+ ", gamma " + (valueUp - 2 * value + valueDown) / (spotBump * spotBump)
+				+ ", vega " + (valueVolatilityUp - valueVolatilityDown) / (2 * volatilityBump));
+		System.out.println("Time (five simulations): " + timeOfBumpAndRevalue + " ms");
+	}
+
+	private static void printGreeks(Map<String, MonteCarloEstimate> greeks) {
+		for (Map.Entry<String, MonteCarloEstimate> greek : greeks.entrySet()) {
+			System.out.println(greek.getKey() + ": " + greek.getValue().getValue() + ", standard error "
+					+ greek.getValue().getStandardError());
+		}
+	}
+}
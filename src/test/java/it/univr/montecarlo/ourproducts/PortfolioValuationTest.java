@@ -0,0 +1,80 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.montecarlo.assetderivativevaluation.products.EuropeanOption;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests PortfolioValuationExecutor: we value a portfolio of 48 barrier options with different maturities,
+ * strikes and barriers (some of them with the Brownian bridge correction, and some with a maturity which is not a time
+ * of the time discretization) and of 4 European options of the Finmath library. We compare the values and the time with
+ * the ones given by calling getValue for every product.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class PortfolioValuationTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double maturity = 1.0;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfPaths = 100000;
+		int seed = 1897;
+
+		double volatility = 0.25;
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(100, 0.02, volatility, brownianMotion);
+
+		double[] maturities = { 0.5, 0.755, 1.0 };
+		double[] strikes = { 90, 100, 110, 120 };
+		double[] lowerBarriers = { 80, 0 };
+		double[] upperBarriers = { 130, Double.POSITIVE_INFINITY };
+
+		List<AbstractAssetMonteCarloProduct> products = new ArrayList<>();
+		for (double maturityOfOption : maturities) {
+			for (double strike : strikes) {
+				products.add(new BarrierOption(maturityOfOption, strike, lowerBarriers[0], upperBarriers[0]));
+				products.add(new BarrierOption(maturityOfOption, strike, lowerBarriers[0], upperBarriers[1], 0, volatility));
+				products.add(new BarrierOption(maturityOfOption, strike, lowerBarriers[1], upperBarriers[0], 0, volatility));
+				products.add(new BarrierOption(maturityOfOption, strike, lowerBarriers[1], upperBarriers[1]));
+			}
+		}
+		for (double strike : strikes) {
+			products.add(new EuropeanOption(maturity, strike));
+		}
+
+		// the paths of the model are generated before the two valuations
+		model.getAssetValue(maturity, 0);
+
+		long startTime = System.currentTimeMillis();
+		double[] values = new PortfolioValuationExecutor(4096, null).getValues(0.0, model, products);
+		long timeOfExecutor = System.currentTimeMillis() - startTime;
+
+		startTime = System.currentTimeMillis();
+		double maximumDifference = 0.0;
+		for (int productIndex = 0; productIndex < products.size(); productIndex++) {
+			double value = products.get(productIndex).getValue(model);
+			maximumDifference = Math.max(maximumDifference, Math.abs(value - values[productIndex]));
+		}
+		long timeOfSingleProducts = System.currentTimeMillis() - startTime;
+
+		System.out.println("Number of products: " + products.size());
+		System.out.println("Time for the executor: " + timeOfExecutor + " ms");
+		System.out.println("Time for the single products: " + timeOfSingleProducts + " ms");
+		System.out.println("Maximum difference of the values: " + maximumDifference);
+		System.out.println("Barrier option with maturity " + maturities[1] + ", strike " + strikes[1] + " and barriers "
+				+ lowerBarriers[0] + ", " + upperBarriers[0] + ": " + values[16]);
+		System.out.println("European option with strike " + strikes[1] + ": " + values[values.length - 3]);
+	}
+}
@@ -0,0 +1,100 @@
+package it.univr.montecarlo.ourproducts;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.montecarlo.assetderivativevaluation.products.EuropeanOption;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests CommonRandomNumbersScenarioEngine: we compute the values of a barrier option and of a European
+ * option for shifts of the initial value and of the volatility, and the finite difference approximations of delta and
+ * vega of the European option from them. We compare these with the ones we get if every scenario is driven by a
+ * Brownian motion with another seed, and with the analytic values.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class ScenarioEngineTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		double maturity = 1.0;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, maturity / numberOfTimeSteps);
+
+		int numberOfPaths = 100000;
+		int seed = 1897;
+
+		double initialValue = 100;
+		double riskFreeRate = 0.02;
+		double volatility = 0.25;
+		double strike = 100;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+
+		List<AbstractAssetMonteCarloProduct> products = Arrays.asList(new BarrierOption(maturity, strike, 80, 130),
+				new EuropeanOption(maturity, strike));
+
+		double[] relativeSpotShifts = { -0.01, 0.0, 0.01 };
+		double[] volatilityShifts = { -0.01, 0.0, 0.01 };
+
+		PortfolioValuationExecutor executor = new PortfolioValuationExecutor(4096, null);
+		long startTime = System.currentTimeMillis();
+		double[][][] values = new CommonRandomNumbersScenarioEngine(initialValue, riskFreeRate, volatility, brownianMotion,
+				executor).getValues(products, relativeSpotShifts, volatilityShifts);
+		long timeOfCube = System.currentTimeMillis() - startTime;
+
+		// the same scenarios, every one driven by a Brownian motion with another seed
+		double[][][] valuesWithIndependentSeeds = new double[relativeSpotShifts.length][volatilityShifts.length][];
+		for (int i = 0; i < relativeSpotShifts.length; i++) {
+			for (int j = 0; j < volatilityShifts.length; j++) {
+				MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(initialValue * (1 + relativeSpotShifts[i]),
+						riskFreeRate, volatility + volatilityShifts[j],
+						brownianMotion.getCloneWithModifiedSeed(seed + 1 + i * volatilityShifts.length + j));
+				valuesWithIndependentSeeds[i][j] = executor.getValues(0.0, model, products);
+			}
+		}
+
+		System.out.println("Time for the scenario cube: " + timeOfCube + " ms");
+		System.out.println();
+		System.out.println("Values of the barrier option, common random numbers (rows: spot shifts, columns: volatility shifts)");
+		printMatrix(values, 0);
+		System.out.println("Values of the barrier option, independent seeds");
+		printMatrix(valuesWithIndependentSeeds, 0);
+
+		double spotBump = initialValue * relativeSpotShifts[2];
+		double volatilityBump = volatilityShifts[2];
+		System.out.println("Delta of the European option");
+		System.out.println("Analytic: " + AnalyticFormulas.blackScholesOptionDelta(initialValue, riskFreeRate, volatility,
+				maturity, strike));
+		System.out.println("Common random numbers: " + (values[2][1][1] - values[0][1][1]) / (2 * spotBump));
+		System.out.println("Independent seeds: "
+				+ (valuesWithIndependentSeeds[2][1][1] - valuesWithIndependentSeeds[0][1][1]) / (2 * spotBump));
+		System.out.println();
+		System.out.println("Vega of the European option");
+		System.out.println("Analytic: " + AnalyticFormulas.blackScholesOptionVega(initialValue, riskFreeRate, volatility,
+				maturity, strike));
+		System.out.println("Common random numbers: " + (values[1][2][1] - values[1][0][1]) / (2 * volatilityBump));
+		System.out.println("Independent seeds: "
+				+ (valuesWithIndependentSeeds[1][2][1] - valuesWithIndependentSeeds[1][0][1]) / (2 * volatilityBump));
+	}
+
+	private static void printMatrix(double[][][] values, int productIndex) {
+		for (double[][] valuesForSpotShift : values) {
+			StringBuilder row = new StringBuilder();
+			for (double[] valuesOfScenario : valuesForSpotShift) {
+				row.append(String.format("%10.4f", valuesOfScenario[productIndex]));
+			}
+			System.out.println(row);
+		}
+		System.out.println();
+	}
+}
@@ -0,0 +1,69 @@
+package it.univr.montecarlo.pathstorage;
+
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.MilsteinSchemeForBlackScholes;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests FloatPathStorage: we simulate the same Milstein scheme keeping the paths as doubles and as floats,
+ * and we print the rounding errors measured by the storage and the difference between the prices of a call option
+ * computed with the two storages. We also check that the time slices are given on the stored floats, and that the
+ * rounding errors are not NaN when knocked out trajectories are stored.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class FloatStorageTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.2;
+		double muDrift = 0.0;
+
+		double timeStep = 0.01;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfSimulations = 100000;
+		int seed = 1897;
+
+		AbstractProcessSimulation doublePaths = new MilsteinSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+
+		AbstractProcessSimulation floatPaths = new MilsteinSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+		FloatPathStorage storage = new FloatPathStorage(numberOfSimulations, times.getNumberOfTimes());
+		floatPaths.setPathStorage(storage);
+
+		double strike = 100;
+		RandomVariable payoffWithDoubles = doublePaths.getFinalValue().sub(strike).floor(0.0);
+		RandomVariable payoffWithFloats = floatPaths.getFinalValue().sub(strike).floor(0.0);
+
+		System.out.println("Memory of the paths with doubles: " + 8L * numberOfSimulations * times.getNumberOfTimes() / 1000000 + " MB");
+		System.out.println("Memory of the paths with floats: " + 4L * numberOfSimulations * times.getNumberOfTimes() / 1000000 + " MB");
+		System.out.println();
+		System.out.println("Maximum absolute rounding error: " + storage.getMaximumAbsoluteRoundingError());
+		System.out.println("Maximum relative rounding error: " + storage.getMaximumRelativeRoundingError());
+		System.out.println();
+		System.out.println("Price of the call option with doubles: " + payoffWithDoubles.getAverage());
+		System.out.println("Price of the call option with floats: " + payoffWithFloats.getAverage());
+		System.out.println("Difference: " + Math.abs(payoffWithDoubles.getAverage() - payoffWithFloats.getAverage())
+				+ ", standard error: " + payoffWithDoubles.getStandardError());
+		System.out.println();
+		System.out.println("Class of the final value with floats: " + floatPaths.getFinalValue().getClass().getSimpleName());
+
+		AbstractProcessSimulation knockedOutPaths = new MilsteinSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+		FloatPathStorage storageWithKnockOut = new FloatPathStorage(numberOfSimulations, times.getNumberOfTimes());
+		knockedOutPaths.setPathStorage(storageWithKnockOut);
+		knockedOutPaths.setKnockOutBarriers(90, 110);
+		knockedOutPaths.getFinalValue();
+		System.out.println("Maximum absolute rounding error with knock-out barriers: "
+				+ storageWithKnockOut.getMaximumAbsoluteRoundingError());
+		System.out.println("Maximum relative rounding error with knock-out barriers: "
+				+ storageWithKnockOut.getMaximumRelativeRoundingError());
+	}
+}
@@ -0,0 +1,80 @@
+package it.univr.montecarlo.pathstorage;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.EulerSchemeForBlackScholes;
+import it.univr.montecarlo.stochasticdrivers.BrownianMotionFromCounterBasedRandomNumbers;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests MemoryMappedPathStorage: we simulate an Euler scheme driven by a
+ * BrownianMotionFromCounterBasedRandomNumbers in parallel, once keeping the paths in the heap and once in a memory
+ * mapped file, and we check that the time slices and the paths are the same. We also compute the average of the final
+ * value reading the last time slice from the file without copying it.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class MemoryMappedStorageTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.2;
+		double muDrift = 0.0;
+
+		double timeStep = 0.01;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfSimulations = 100000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1, numberOfSimulations, seed);
+
+		AbstractProcessSimulation pathsInHeap = new EulerSchemeForBlackScholes(sigmaVolatility, muDrift, initialValue, brownianMotion);
+		pathsInHeap.setParallelGeneration(5000, null);
+
+		AbstractProcessSimulation pathsInFile = new EulerSchemeForBlackScholes(sigmaVolatility, muDrift, initialValue, brownianMotion);
+		pathsInFile.setParallelGeneration(5000, null);
+
+		try (MemoryMappedPathStorage storage = new MemoryMappedPathStorage(numberOfSimulations, times.getNumberOfTimes())) {
+			pathsInFile.setPathStorage(storage);
+
+			long startTime = System.currentTimeMillis();
+			RandomVariable finalValueFromFile = pathsInFile.getFinalValue();
+			long endTime = System.currentTimeMillis();
+			System.out.println("Time to generate the paths in the file: " + (endTime - startTime) + " ms");
+
+			boolean areTimeSlicesEqual = true;
+			for (int timeIndex = 0; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+				RandomVariable first = pathsInHeap.getProcessAtGivenTimeIndex(timeIndex);
+				RandomVariable second = pathsInFile.getProcessAtGivenTimeIndex(timeIndex);
+				for (int i = 0; i < numberOfSimulations; i++) {
+					areTimeSlicesEqual = areTimeSlicesEqual && first.get(i) == second.get(i);
+				}
+			}
+			System.out.println("Same time slices: " + areTimeSlicesEqual);
+
+			boolean arePathsEqual = true;
+			for (int pathNumber = 0; pathNumber < numberOfSimulations; pathNumber += 997) {
+				arePathsEqual = arePathsEqual && Arrays.equals(pathsInHeap.getPathForGivenSimulation(pathNumber),
+						pathsInFile.getPathForGivenSimulation(pathNumber));
+			}
+			System.out.println("Same paths: " + arePathsEqual);
+
+			//the average of the final value without copying the time slice
+			DoubleBuffer finalTimeSlice = storage.getTimeSliceView(numberOfTimeSteps);
+			double sum = 0.0;
+			while (finalTimeSlice.hasRemaining()) {
+				sum += finalTimeSlice.get();
+			}
+			System.out.println("Average of the final value: " + finalValueFromFile.getAverage() + ", " + sum / numberOfSimulations);
+		}
+	}
+}
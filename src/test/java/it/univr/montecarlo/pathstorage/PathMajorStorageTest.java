@@ -0,0 +1,85 @@
+package it.univr.montecarlo.pathstorage;
+
+import java.util.Arrays;
+
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.LogEulerSchemeForBlackScholes;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests PathMajorPathStorage: we simulate the same log Euler scheme with the default storage of the paths
+ * and with a PathMajorPathStorage, in parallel, and we check that the paths and the time slices are the same. Then we
+ * compare the time needed to read all the paths one by one and to value an arithmetic Asian option path by path.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class PathMajorStorageTest {
+
+	public static void main(String[] args) {
+
+		double initialValue = 100;
+		double sigmaVolatility = 0.2;
+		double muDrift = 0.0;
+
+		double timeStep = 0.01;
+		int numberOfTimeSteps = 100;
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfSimulations = 50000;
+		int seed = 1897;
+
+		AbstractProcessSimulation defaultStorage = new LogEulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+		defaultStorage.setParallelGeneration(1000, null);
+
+		AbstractProcessSimulation pathMajorStorage = new LogEulerSchemeForBlackScholes(sigmaVolatility, muDrift,
+				initialValue, numberOfSimulations, seed, times);
+		pathMajorStorage.setParallelGeneration(1000, null);
+		pathMajorStorage.setPathStorage(new PathMajorPathStorage(numberOfSimulations, times.getNumberOfTimes()));
+
+		boolean areTimeSlicesEqual = true;
+		for (int timeIndex = 0; timeIndex < times.getNumberOfTimes(); timeIndex++) {
+			RandomVariable first = defaultStorage.getProcessAtGivenTimeIndex(timeIndex);
+			RandomVariable second = pathMajorStorage.getProcessAtGivenTimeIndex(timeIndex);
+			for (int i = 0; i < numberOfSimulations; i++) {
+				areTimeSlicesEqual = areTimeSlicesEqual && first.get(i) == second.get(i);
+			}
+		}
+		System.out.println("Same time slices: " + areTimeSlicesEqual);
+
+		long startTime = System.currentTimeMillis();
+		double[][] pathsFromDefaultStorage = new double[1000][];
+		for (int pathNumber = 0; pathNumber < pathsFromDefaultStorage.length; pathNumber++) {
+			pathsFromDefaultStorage[pathNumber] = defaultStorage.getPathForGivenSimulation(pathNumber * 50);
+		}
+		long endTime = System.currentTimeMillis();
+		System.out.println("Time to get 1000 paths with the default storage: " + (endTime - startTime) + " ms");
+
+		startTime = System.currentTimeMillis();
+		double[][] pathsFromPathMajorStorage = new double[1000][];
+		for (int pathNumber = 0; pathNumber < pathsFromPathMajorStorage.length; pathNumber++) {
+			pathsFromPathMajorStorage[pathNumber] = pathMajorStorage.getPathForGivenSimulation(pathNumber * 50);
+		}
+		endTime = System.currentTimeMillis();
+		System.out.println("Time to get 1000 paths with the path major storage: " + (endTime - startTime) + " ms");
+		System.out.println("Same paths: " + Arrays.deepEquals(pathsFromDefaultStorage, pathsFromPathMajorStorage));
+		System.out.println();
+
+		//arithmetic Asian call option with strike equal to the initial value, valued path by path
+		double strike = initialValue;
+		startTime = System.currentTimeMillis();
+		double priceWithDefaultStorage = defaultStorage.getRealizationsOfPathFunctional(
+				path -> Math.max(Arrays.stream(path).average().getAsDouble() - strike, 0.0)).getAverage();
+		endTime = System.currentTimeMillis();
+		System.out.println("Asian option with the default storage: " + priceWithDefaultStorage + ", time " + (endTime - startTime) + " ms");
+
+		startTime = System.currentTimeMillis();
+		double priceWithPathMajorStorage = pathMajorStorage.getRealizationsOfPathFunctional(
+				path -> Math.max(Arrays.stream(path).average().getAsDouble() - strike, 0.0)).getAverage();
+		endTime = System.currentTimeMillis();
+		System.out.println("Asian option with the path major storage: " + priceWithPathMajorStorage + ", time " + (endTime - startTime) + " ms");
+	}
+}
@@ -0,0 +1,73 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import java.util.concurrent.ForkJoinPool;
+
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.LogEulerSchemeForBlackScholes;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests BrownianMotionFromCounterBasedRandomNumbers. We first check mean and variance of its increments.
+ * Then we use it as the driver of a log Euler scheme, and check that the final value is the same if the process is
+ * generated by a single thread, in parallel, or without storing the paths.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class CounterBasedBrownianMotionTest {
+
+	public static void main(String[] args) {
+
+		double finalTime = 1.0;
+		double timeStep = 0.01;
+		int numberOfTimesSteps = (int) (finalTime/timeStep);
+
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimesSteps, timeStep);
+
+		int numberOfSimulatedPaths = 100000;
+		int seed = 1897;
+
+		BrownianMotion brownianMotion = new BrownianMotionFromCounterBasedRandomNumbers(times, 1, numberOfSimulatedPaths, seed);
+
+		RandomVariable firstIncrement = brownianMotion.getBrownianIncrement(0, 0);
+
+		System.out.println("Mean of the first increment: " + firstIncrement.getAverage() + " (should be 0)");
+		System.out.println("Variance of the first increment: " + firstIncrement.getVariance() + " (should be " + timeStep + ")");
+
+		//the increments are generated again, but they are the same
+		System.out.println("Same increment when generated again: "
+				+ (brownianMotion.getBrownianIncrement(0, 0).get(17) == firstIncrement.get(17)));
+
+		System.out.println();
+
+		double initialValue = 100.0;
+		double volatility = 0.3;
+		double muDrift = 0.0;
+
+		AbstractProcessSimulation simulatorWithOneThread = new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue,
+				brownianMotion);
+
+		AbstractProcessSimulation simulatorInParallel = new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue,
+				brownianMotion);
+		simulatorInParallel.setParallelGeneration(5000, ForkJoinPool.commonPool());
+
+		AbstractProcessSimulation simulatorWithoutPaths = new LogEulerSchemeForBlackScholes(volatility, muDrift, initialValue,
+				brownianMotion);
+
+		RandomVariable finalValueWithOneThread = simulatorWithOneThread.getFinalValue();
+		RandomVariable finalValueInParallel = simulatorInParallel.getFinalValue();
+		RandomVariable finalValueWithoutPaths = simulatorWithoutPaths.getFinalValueWithoutStoringPaths();
+
+		boolean sameValues = true;
+		for (int i = 0; i < numberOfSimulatedPaths; i++) {
+			sameValues &= finalValueInParallel.get(i) == finalValueWithOneThread.get(i);
+			sameValues &= finalValueWithoutPaths.get(i) == finalValueWithOneThread.get(i);
+		}
+
+		System.out.println("Average of the final value: " + finalValueWithOneThread.getAverage() + " (should be " + initialValue + ")");
+		System.out.println("Same values with one thread, in parallel and without storing the paths: " + sameValues);
+	}
+}
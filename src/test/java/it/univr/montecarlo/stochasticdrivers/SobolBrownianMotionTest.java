@@ -0,0 +1,121 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import it.univr.analyticformulas.OurAnalyticFormulas;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.LogEulerSchemeForBlackScholes;
+import it.univr.montecarlo.ourproducts.BarrierOption;
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.montecarlo.assetderivativevaluation.products.EuropeanOption;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests BrownianMotionFromSobolSequence. We value a European option and a down and out barrier option with
+ * the Finmath library MonteCarloBlackScholesModel, driven by BrownianMotionFromMersenneRandomNumbers and by
+ * BrownianMotionFromSobolSequence, for many seeds. We then compare the root mean square errors of the prices with
+ * respect to the analytic price (for the European option) and to the average over all the seeds of the quasi Monte Carlo
+ * prices (for the discretely monitored barrier option). We do the same for the European option with 500 time steps, as
+ * for the barrier options monitored on a fine grid: the Sobol sequence has then dimension 500, more than the number
+ * of coordinates with the initial direction numbers of Joe and Kuo. We also use the Sobol Brownian motion as the
+ * driver of a log Euler scheme.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class SobolBrownianMotionTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		//option parameters
+		double maturity = 1.0;
+		double strike = 100;
+		double lowerBarrier = 90;
+		double upperBarrier = Long.MAX_VALUE;
+
+		//model parameters
+		double initialValue = 100;
+		double riskFreeRate = 0.0;
+		double volatility = 0.2;
+
+		double timeStep = 1.0 / 64;
+		int numberOfTimeSteps = (int) (maturity/timeStep);
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfPaths = 4096;
+		int numberOfSeeds = 20;
+
+		AbstractAssetMonteCarloProduct europeanOption = new EuropeanOption(maturity, strike);
+		AbstractAssetMonteCarloProduct barrierOption = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier);
+
+		double analyticEuropeanPrice = AnalyticFormulas.blackScholesOptionValue(initialValue, riskFreeRate, volatility, maturity, strike);
+
+		double[] europeanPricesMonteCarlo = new double[numberOfSeeds];
+		double[] europeanPricesQuasiMonteCarlo = new double[numberOfSeeds];
+		double[] barrierPricesMonteCarlo = new double[numberOfSeeds];
+		double[] barrierPricesQuasiMonteCarlo = new double[numberOfSeeds];
+
+		for (int seed = 0; seed < numberOfSeeds; seed++) {
+			BrownianMotion pseudoRandomDriver = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+			BrownianMotion quasiRandomDriver = new BrownianMotionFromSobolSequence(times, 1, numberOfPaths, seed);
+
+			MonteCarloBlackScholesModel monteCarloModel = new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, pseudoRandomDriver);
+			MonteCarloBlackScholesModel quasiMonteCarloModel = new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, quasiRandomDriver);
+
+			europeanPricesMonteCarlo[seed] = europeanOption.getValue(monteCarloModel);
+			europeanPricesQuasiMonteCarlo[seed] = europeanOption.getValue(quasiMonteCarloModel);
+			barrierPricesMonteCarlo[seed] = barrierOption.getValue(monteCarloModel);
+			barrierPricesQuasiMonteCarlo[seed] = barrierOption.getValue(quasiMonteCarloModel);
+		}
+
+		//our best approximation of the price of the discretely monitored barrier option
+		double referenceBarrierPrice = 0.0;
+		for (double price : barrierPricesQuasiMonteCarlo) {
+			referenceBarrierPrice += price / numberOfSeeds;
+		}
+
+		System.out.println("European option, analytic price " + analyticEuropeanPrice);
+		System.out.println("RMSE Monte Carlo: " + getRootMeanSquareError(europeanPricesMonteCarlo, analyticEuropeanPrice));
+		System.out.println("RMSE quasi Monte Carlo: " + getRootMeanSquareError(europeanPricesQuasiMonteCarlo, analyticEuropeanPrice));
+		System.out.println();
+		System.out.println("Barrier option, reference price " + referenceBarrierPrice + " (continuous monitoring: "
+				+ OurAnalyticFormulas.blackScholesDownAndOut(initialValue, riskFreeRate, volatility, maturity, strike, lowerBarrier) + ")");
+		System.out.println("RMSE Monte Carlo: " + getRootMeanSquareError(barrierPricesMonteCarlo, referenceBarrierPrice));
+		System.out.println("RMSE quasi Monte Carlo: " + getRootMeanSquareError(barrierPricesQuasiMonteCarlo, referenceBarrierPrice));
+		System.out.println();
+
+		int numberOfTimeStepsOfFineGrid = 500;
+		TimeDiscretization fineTimes = new TimeDiscretizationFromArray(0.0, numberOfTimeStepsOfFineGrid,
+				maturity / numberOfTimeStepsOfFineGrid);
+		for (int seed = 0; seed < numberOfSeeds; seed++) {
+			BrownianMotion pseudoRandomDriver = new BrownianMotionFromMersenneRandomNumbers(fineTimes, 1, numberOfPaths, seed);
+			BrownianMotion quasiRandomDriver = new BrownianMotionFromSobolSequence(fineTimes, 1, numberOfPaths, seed);
+			europeanPricesMonteCarlo[seed] = europeanOption.getValue(
+					new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, pseudoRandomDriver));
+			europeanPricesQuasiMonteCarlo[seed] = europeanOption.getValue(
+					new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, quasiRandomDriver));
+		}
+		System.out.println("European option with " + numberOfTimeStepsOfFineGrid + " time steps");
+		System.out.println("RMSE Monte Carlo: " + getRootMeanSquareError(europeanPricesMonteCarlo, analyticEuropeanPrice));
+		System.out.println("RMSE quasi Monte Carlo: " + getRootMeanSquareError(europeanPricesQuasiMonteCarlo, analyticEuropeanPrice));
+		System.out.println();
+
+		//the expectation of the log Euler scheme with muDrift = 0 is initialValue
+		AbstractProcessSimulation logEuler = new LogEulerSchemeForBlackScholes(volatility, 0.0, initialValue,
+				new BrownianMotionFromSobolSequence(times, 1, numberOfPaths, 1897));
+		System.out.println("Error of the log Euler scheme driven by the Sobol Brownian motion: "
+				+ Math.abs(logEuler.getFinalValue().getAverage() - initialValue));
+	}
+
+	private static double getRootMeanSquareError(double[] prices, double referencePrice) {
+		double sumOfSquaredErrors = 0.0;
+		for (double price : prices) {
+			sumOfSquaredErrors += (price - referencePrice) * (price - referencePrice);
+		}
+		return Math.sqrt(sumOfSquaredErrors / prices.length);
+	}
+}
@@ -0,0 +1,104 @@
+package it.univr.montecarlo.stochasticdrivers;
+
+import it.univr.analyticformulas.OurAnalyticFormulas;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.AbstractProcessSimulation;
+import it.univr.montecarlo.discretizationschemes.ourimplementation.EulerSchemeForBlackScholes;
+import it.univr.montecarlo.ourproducts.BarrierOption;
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
+import net.finmath.montecarlo.assetderivativevaluation.MonteCarloBlackScholesModel;
+import net.finmath.montecarlo.assetderivativevaluation.products.AbstractAssetMonteCarloProduct;
+import net.finmath.montecarlo.assetderivativevaluation.products.EuropeanOption;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class tests AntitheticBrownianMotion and MomentMatchedBrownianMotion. We value a European option and a down
+ * and out barrier option with the Finmath library MonteCarloBlackScholesModel, driven by a plain Brownian motion and by
+ * its antithetic and moment matched versions, and we compare the errors and the standard errors. Then we check the
+ * average of the final value of an Euler scheme with the variance reduction options of AbstractProcessSimulation.
+ *
+ * @author Andrea Mazzon
+ *
+ */
+public class VarianceReductionTest {
+
+	public static void main(String[] args) throws CalculationException {
+
+		//option parameters
+		double maturity = 1.0;
+		double strike = 100;
+		double lowerBarrier = 90;
+		double upperBarrier = Long.MAX_VALUE;
+
+		//model parameters
+		double initialValue = 100;
+		double riskFreeRate = 0.0;
+		double volatility = 0.2;
+
+		double timeStep = 0.01;
+		int numberOfTimeSteps = (int) (maturity/timeStep);
+		TimeDiscretization times = new TimeDiscretizationFromArray(0.0, numberOfTimeSteps, timeStep);
+
+		int numberOfPaths = 20000;
+		int seed = 1897;
+
+		AbstractAssetMonteCarloProduct europeanOption = new EuropeanOption(maturity, strike);
+		AbstractAssetMonteCarloProduct barrierOption = new BarrierOption(maturity, strike, lowerBarrier, upperBarrier);
+
+		System.out.println("Analytic price of the European option: "
+				+ AnalyticFormulas.blackScholesOptionValue(initialValue, riskFreeRate, volatility, maturity, strike));
+		System.out.println("Analytic price of the barrier option (continuous monitoring): "
+				+ OurAnalyticFormulas.blackScholesDownAndOut(initialValue, riskFreeRate, volatility, maturity, strike, lowerBarrier));
+		System.out.println();
+
+		//the same number of simulations in the three cases
+		BrownianMotion plainDriver = new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed);
+		BrownianMotion antitheticDriver = new AntitheticBrownianMotion(
+				new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths / 2, seed));
+		BrownianMotion momentMatchedDriver = new MomentMatchedBrownianMotion(
+				new BrownianMotionFromMersenneRandomNumbers(times, 1, numberOfPaths, seed));
+
+		BrownianMotion[] drivers = {plainDriver, antitheticDriver, momentMatchedDriver};
+		String[] names = {"Plain", "Antithetic", "Moment matching"};
+
+		for (int i = 0; i < drivers.length; i++) {
+			MonteCarloBlackScholesModel model = new MonteCarloBlackScholesModel(initialValue, riskFreeRate, volatility, drivers[i]);
+
+			long startTime = System.currentTimeMillis();
+			RandomVariable europeanValues = europeanOption.getValue(0.0, model);
+			RandomVariable barrierValues = barrierOption.getValue(0.0, model);
+			long endTime = System.currentTimeMillis();
+
+			boolean isAntithetic = drivers[i] instanceof AntitheticBrownianMotion;
+			double europeanStandardError = isAntithetic
+					? AntitheticBrownianMotion.getStandardErrorOfAntitheticEstimator(europeanValues)
+					: europeanValues.getStandardError();
+			double barrierStandardError = isAntithetic
+					? AntitheticBrownianMotion.getStandardErrorOfAntitheticEstimator(barrierValues)
+					: barrierValues.getStandardError();
+
+			System.out.println(names[i] + ": European " + europeanValues.getAverage() + " (standard error "
+					+ europeanStandardError + "), barrier " + barrierValues.getAverage() + " (standard error "
+					+ barrierStandardError + "), time " + (endTime - startTime) + " ms");
+		}
+
+		System.out.println();
+
+		//the expectation of the Euler scheme is known: it is initialValue if muDrift = 0
+		AbstractProcessSimulation plainEuler = new EulerSchemeForBlackScholes(volatility, 0.0, initialValue, numberOfPaths, seed, times);
+
+		AbstractProcessSimulation antitheticEuler = new EulerSchemeForBlackScholes(volatility, 0.0, initialValue, numberOfPaths, seed, times);
+		antitheticEuler.setAntitheticVariates(true);
+
+		AbstractProcessSimulation momentMatchedEuler = new EulerSchemeForBlackScholes(volatility, 0.0, initialValue, numberOfPaths, seed, times);
+		momentMatchedEuler.setMomentMatching(true);
+
+		System.out.println("Error of the plain Euler scheme: " + Math.abs(plainEuler.getFinalValue().getAverage() - initialValue));
+		System.out.println("Error with antithetic variates: " + Math.abs(antitheticEuler.getFinalValue().getAverage() - initialValue));
+		System.out.println("Error with moment matching: " + Math.abs(momentMatchedEuler.getFinalValue().getAverage() - initialValue));
+	}
+}